@@ -0,0 +1,104 @@
+package com.example.transactionalms.config;
+
+import com.example.transactionalms.model.Money;
+import org.bson.types.Decimal128;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ns per 100-item batch, {@link BigDecimal} against {@link Money}: the running balance as the batch endpoint
+ * computes it (amounts already parsed), and the conversion of the three amounts of each transaction to the
+ * Decimal128 values the driver writes. Run with {@code -prof gc} for the allocation side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MoneyBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final MongoConfig.MoneyToDecimal128 moneyWriter = MongoConfig.MoneyToDecimal128.INSTANCE;
+
+    private boolean[] withdrawals;
+    private BigDecimal[] decimalAmounts;
+    private Money[] moneyAmounts;
+    private BigDecimal decimalBalance;
+    private Money moneyBalance;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        withdrawals = new boolean[BATCH_SIZE];
+        decimalAmounts = new BigDecimal[BATCH_SIZE];
+        moneyAmounts = new Money[BATCH_SIZE];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long cents = random.nextLong(1, 50_000);
+            withdrawals[i] = i % 3 == 0;
+            decimalAmounts[i] = BigDecimal.valueOf(cents, 2);
+            moneyAmounts[i] = Money.ofMinor(cents);
+        }
+        decimalBalance = new BigDecimal("49750.75");
+        moneyBalance = Money.of(decimalBalance);
+    }
+
+    @Benchmark
+    public BigDecimal runningBalanceBigDecimal() {
+        BigDecimal running = decimalBalance;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (!withdrawals[i]) {
+                running = running.add(decimalAmounts[i]);
+            } else if (decimalAmounts[i].compareTo(running) <= 0) {
+                running = running.subtract(decimalAmounts[i]);
+            }
+        }
+        return running;
+    }
+
+    @Benchmark
+    public Money runningBalanceMoney() {
+        Money running = moneyBalance;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (!withdrawals[i]) {
+                running = running.add(moneyAmounts[i]);
+            } else if (moneyAmounts[i].compareTo(running) <= 0) {
+                running = running.subtract(moneyAmounts[i]);
+            }
+        }
+        return running;
+    }
+
+    @Benchmark
+    public long toDecimal128BigDecimal() {
+        long sink = 0;
+        BigDecimal running = decimalBalance;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            BigDecimal next = running.add(decimalAmounts[i]);
+            sink += new Decimal128(running).getLow() + new Decimal128(decimalAmounts[i]).getLow() + new Decimal128(next).getLow();
+            running = next;
+        }
+        return sink;
+    }
+
+    @Benchmark
+    public long toDecimal128Money() {
+        long sink = 0;
+        Money running = moneyBalance;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Money next = running.add(moneyAmounts[i]);
+            sink += moneyWriter.convert(running).getLow() + moneyWriter.convert(moneyAmounts[i]).getLow()
+                    + moneyWriter.convert(next).getLow();
+            running = next;
+        }
+        return sink;
+    }
+}
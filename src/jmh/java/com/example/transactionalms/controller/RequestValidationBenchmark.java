@@ -0,0 +1,71 @@
+package com.example.transactionalms.controller;
+
+import com.example.transactionalms.dto.FieldViolationDTO;
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ns per request validation: a validator factory built per call (the previous handler code), the shared
+ * {@link jakarta.validation.Validator}, and the hand-written fast path. Allocation per call is the
+ * {@code gc.alloc.rate.norm} line of the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestValidationBenchmark {
+
+    @Param({"valid", "invalid"})
+    public String requestKind;
+
+    private ValidatorFactory sharedFactory;
+    private TransactionRequestValidator requestValidator;
+    private TransactionRequestDTO request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sharedFactory = Validation.buildDefaultValidatorFactory();
+        requestValidator = new TransactionRequestValidator(sharedFactory.getValidator());
+        request = "valid".equals(requestKind)
+                ? new TransactionRequestDTO("6790a7c1d2e3f4a5b6c7d8e9", "WITHDRAWAL", new BigDecimal("1500.00"), "user-000123")
+                : new TransactionRequestDTO("", "WITHDRAWAL", BigDecimal.ZERO, " ");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sharedFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransactionRequestDTO>> factoryPerCall() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            return factory.getValidator().validate(request);
+        }
+    }
+
+    @Benchmark
+    public List<FieldViolationDTO> sharedValidator() {
+        return requestValidator.validateWithBeanValidation(request);
+    }
+
+    @Benchmark
+    public List<FieldViolationDTO> fastPath() {
+        return requestValidator.validate(request);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.transactionalms.dto;
+
+import com.example.transactionalms.model.Money;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ns per JSON write and read of the request and response bodies and of the {@link MessageDto}
+ * notification, with readers and writers resolved once as the WebFlux codecs do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializationBenchmark {
+
+    private ObjectWriter requestWriter;
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+    private ObjectReader responseReader;
+    private ObjectWriter messageWriter;
+    private ObjectReader messageReader;
+
+    private TransactionRequestDTO request;
+    private TransactionResponseDTO response;
+    private MessageDto message;
+    private byte[] requestJson;
+    private byte[] responseJson;
+    private byte[] messageJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JsonMapper mapper = JsonMapper.builder().findAndAddModules().build();
+        requestWriter = mapper.writerFor(TransactionRequestDTO.class);
+        requestReader = mapper.readerFor(TransactionRequestDTO.class);
+        responseWriter = mapper.writerFor(TransactionResponseDTO.class);
+        responseReader = mapper.readerFor(TransactionResponseDTO.class);
+        messageWriter = mapper.writerFor(MessageDto.class);
+        messageReader = mapper.readerFor(MessageDto.class);
+
+        request = new TransactionRequestDTO("6790a7c1d2e3f4a5b6c7d8e9", "WITHDRAWAL", new BigDecimal("1500.00"), "user-000123");
+        response = new TransactionResponseDTO("65a1f0c2e4b0a1b2c3d4e5f6", "6790a7c1d2e3f4a5b6c7d8e9", "WITHDRAWAL",
+                Money.of("49750.75"), Money.of("1500.00"), Money.of("48250.75"), "SUCCESS");
+        message = new MessageDto("65a1f0c2e4b0a1b2c3d4e5f6", "2025-01-15T10:15:30", "Transacción exitosa", "transaction", true);
+        requestJson = requestWriter.writeValueAsBytes(request);
+        responseJson = responseWriter.writeValueAsBytes(response);
+        messageJson = messageWriter.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws IOException {
+        return requestWriter.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public TransactionRequestDTO readRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public TransactionResponseDTO readResponse() throws IOException {
+        return responseReader.readValue(responseJson);
+    }
+
+    @Benchmark
+    public byte[] writeMessage() throws IOException {
+        return messageWriter.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public MessageDto readMessage() throws IOException {
+        return messageReader.readValue(messageJson);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.transactionalms.messaging;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ns per message for encode/decode, plus the encoded size reported as the {@code bytesPerMessage} counter.
+ * The legacy text format is encode-only, so it has no decode run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageCodecBenchmark {
+
+    private static final TransactionEvent EVENT = new TransactionEvent("65a1f0c2e4b0a1b2c3d4e5f6", "6790a7c1d2e3f4a5b6c7d8e9",
+            "user-000123", "WITHDRAWAL", new BigDecimal("1500.00"), new BigDecimal("48250.75"), true, System.currentTimeMillis());
+
+    @State(Scope.Benchmark)
+    public static class Encoding {
+        @Param({"legacy", "json", "smile", "cbor", "binary"})
+        public String format;
+
+        private MessageEncoder encoder;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            encoder = "legacy".equals(format) ? new LegacyTextMessageEncoder() : codec(format);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Decoding {
+        @Param({"json", "smile", "cbor", "binary"})
+        public String codecName;
+
+        private MessageCodec codec;
+        private byte[] encoded;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            codec = codec(codecName);
+            encoded = codec.encode(EVENT);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long bytesPerMessage;
+    }
+
+    static MessageCodec codec(String name) {
+        return switch (name) {
+            case "json" -> JacksonMessageCodec.json();
+            case "smile" -> JacksonMessageCodec.smile();
+            case "cbor" -> JacksonMessageCodec.cbor();
+            default -> new BinaryMessageCodec();
+        };
+    }
+
+    @Benchmark
+    public byte[] encode(Encoding encoding, Size size) {
+        byte[] body = encoding.encoder.encode(EVENT);
+        size.bytesPerMessage = body.length;
+        return body;
+    }
+
+    @Benchmark
+    public TransactionEvent decode(Decoding decoding) {
+        return decoding.codec.decode(decoding.encoded);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ns per balance computation: one deposit, one withdrawal, and the running balance of a 100-item
+ * batch for a single account as the batch endpoint computes it. Each call includes converting the request
+ * amount to {@link Money}; {@link com.example.transactionalms.config.MoneyBenchmark} compares the arithmetic alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BalanceArithmeticBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private Money balance;
+    private TransactionRequestDTO deposit;
+    private TransactionRequestDTO withdrawal;
+    private List<TransactionRequestDTO> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        balance = Money.of("49750.75");
+        deposit = new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("1500.00"), "u1");
+        withdrawal = new TransactionRequestDTO("a1", "WITHDRAWAL", new BigDecimal("1500.00"), "u1");
+        batch = new ArrayList<>(BATCH_SIZE);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(1, 50_000), 2);
+            batch.add(new TransactionRequestDTO("a1", i % 3 == 0 ? "WITHDRAWAL" : "DEPOSIT", amount, "u1"));
+        }
+    }
+
+    @Benchmark
+    public Money deposit() {
+        return TransactionService.computeFinalBalance(deposit, balance);
+    }
+
+    @Benchmark
+    public Money withdrawal() {
+        return TransactionService.computeFinalBalance(withdrawal, balance);
+    }
+
+    @Benchmark
+    public Money batchRunningBalance() {
+        Money running = balance;
+        for (TransactionRequestDTO request : batch) {
+            try {
+                running = TransactionService.computeFinalBalance(request, running);
+            } catch (IllegalArgumentException rejected) {
+                // the batch endpoint rejects the item and carries on
+            }
+        }
+        return running;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.AccountsClientProperties;
+import com.example.transactionalms.config.TransactionLimitsProperties;
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.dto.TransactionResponseDTO;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.repository.OutboxRepository;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * µs per {@link TransactionService#performTransaction} with everything outside the process stubbed: the
+ * accounts service answers through a canned {@link WebClient} exchange function, and the transaction and
+ * outbox repositories complete immediately. The outbox write is what the request path publishes to; the
+ * broker publisher only runs in the relay. What is left is the service's own reactive pipeline, the
+ * accounts client with its circuit breaker and bulkhead, the sequencer, the cache and the limits check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PerformTransactionBenchmark {
+
+    private static final String ACCOUNT_JSON = "{\"accountId\":\"6790a7c1d2e3f4a5b6c7d8e9\",\"balance\":49750.75}";
+
+    @Param({"true", "false"})
+    public boolean accountCache;
+
+    private TransactionService transactionService;
+    private TransactionRequestDTO request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransactionMetrics metrics = new TransactionMetrics(meterRegistry);
+        WebClient accounts = WebClient.builder()
+                .exchangeFunction(clientRequest -> Mono.just(clientRequest.method() == HttpMethod.GET
+                        ? ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(ACCOUNT_JSON)
+                        .build()
+                        : ClientResponse.create(HttpStatus.OK).build()))
+                .build();
+        TransactionRepository repository = transactionRepository();
+        OutboxService outbox = new OutboxService(outboxRepository(), repository, null, null, metrics, meterRegistry,
+                false, 100, Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(30));
+        AccountAggregateService aggregates = new AccountAggregateService(null, 1) {
+            @Override
+            public Mono<Void> record(List<Transaction> transactions) {
+                return Mono.empty();
+            }
+        };
+
+        transactionService = new TransactionService(repository,
+                new AccountsClient(accounts, new AccountsClientProperties(), meterRegistry),
+                outbox,
+                new AccountSequencer(64, meterRegistry),
+                new AccountCache(accountCache, 10_000, Duration.ofMinutes(5), meterRegistry),
+                null, null, aggregates,
+                new TransactionLimitsEngine(new TransactionLimitsProperties(), null),
+                metrics,
+                TransactionWriterTest.direct(repository));
+        request = new TransactionRequestDTO("6790a7c1d2e3f4a5b6c7d8e9", "DEPOSIT", new BigDecimal("15.00"), "user-000123");
+    }
+
+    @Benchmark
+    public TransactionResponseDTO performTransaction() {
+        return transactionService.performTransaction(request).block();
+    }
+
+    private static TransactionRepository transactionRepository() {
+        return (TransactionRepository) Proxy.newProxyInstance(TransactionRepository.class.getClassLoader(),
+                new Class<?>[]{TransactionRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        Transaction transaction = (Transaction) args[0];
+                        if (transaction.getId() == null) {
+                            transaction.setId(ObjectId.get().toHexString());
+                        }
+                        yield Mono.just(transaction);
+                    }
+                    case "saveAll" -> Flux.fromIterable((Iterable<?>) args[0]);
+                    case "markBalanceRequested" -> Mono.just(1L);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static OutboxRepository outboxRepository() {
+        return (OutboxRepository) Proxy.newProxyInstance(OutboxRepository.class.getClassLoader(),
+                new Class<?>[]{OutboxRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> Mono.just(args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
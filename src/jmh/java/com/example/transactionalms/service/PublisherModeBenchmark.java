@@ -0,0 +1,123 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.VirtualThreads;
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.messaging.JacksonMessageCodec;
+import com.example.transactionalms.messaging.LegacyTextMessageEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ms to publish {@code concurrency} events at once and have every confirm back, against a stub broker where
+ * each send costs 20 µs and confirms arrive 1 ms later:
+ * <ul>
+ *   <li>{@code reactive}: the current path, buffered sends on four channels with asynchronous confirms;</li>
+ *   <li>{@code legacy}: the publisher this service used to have, one {@code convertAndSend} of the
+ *   {@link LegacyTextMessageEncoder} message per event and no confirms, on a bounded-elastic pool of 64 threads;</li>
+ *   <li>{@code blocking-platform}: {@link BlockingMessagePublisher} on a bounded-elastic pool of 64 threads;</li>
+ *   <li>{@code blocking-virtual}: the same publisher on virtual threads (Java 21 only, run with
+ *   {@code -PjavaVersion=21}; on older runtimes the setup fails and JMH moves on).</li>
+ * </ul>
+ * {@code legacy} comes out ahead here (about 15 against 32 ms for 1000 events on one core) and that is not a
+ * regression of the reactive path. The stub's 20 µs send is a park, i.e. waiting, which 64 legacy threads
+ * overlap while four channels take their turn; on a real channel a publish is a buffered socket write that
+ * costs CPU and shares one connection, so more threads do not make it cheaper. {@code legacy} also encodes
+ * nothing (the stub ignores the object) and waits for no confirm. Without the send cost the reactive path
+ * takes about 13 ms, which is its encoding and confirm bookkeeping; raising {@code channel-pool-size} to 16
+ * brings it to about 21 ms in this benchmark only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class PublisherModeBenchmark {
+
+    @Param({"1000", "10000"})
+    public int concurrency;
+
+    @Param({"reactive", "legacy", "blocking-platform", "blocking-virtual"})
+    public String mode;
+
+    private ScheduledExecutorService broker;
+    private Scheduler scheduler;
+    private ReactiveMessagePublisher reactive;
+    private TransactionEventPublisher publisher;
+    private TransactionEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = Executors.newScheduledThreadPool(2);
+        ReactiveMessagePublisherTest.StubBrokerTemplate template =
+                new ReactiveMessagePublisherTest.StubBrokerTemplate(broker, 0, 20_000, 1, true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        switch (mode) {
+            case "reactive" -> {
+                scheduler = Schedulers.newBoundedElastic(4, 10_000, "amqp-publisher");
+                reactive = new ReactiveMessagePublisher(template, JacksonMessageCodec.json(), scheduler, meterRegistry,
+                        "queue-transaction", 64, Duration.ofMillis(5), 1024, 4, Duration.ofSeconds(30));
+                reactive.start();
+                publisher = reactive;
+            }
+            case "legacy" -> {
+                scheduler = Schedulers.newBoundedElastic(64, 100_000, "amqp-publisher");
+                Scheduler legacyScheduler = scheduler;
+                publisher = event -> Mono.fromRunnable(() -> template.convertAndSend("queue-transaction",
+                                LegacyTextMessageEncoder.toLegacyMessage(event)))
+                        .subscribeOn(legacyScheduler)
+                        .then();
+            }
+            case "blocking-platform" -> {
+                scheduler = Schedulers.newBoundedElastic(64, 100_000, "amqp-publisher");
+                publisher = new BlockingMessagePublisher(template, JacksonMessageCodec.json(), scheduler, meterRegistry,
+                        "queue-transaction", Duration.ofSeconds(30));
+            }
+            default -> {
+                scheduler = Schedulers.fromExecutorService(VirtualThreads.newExecutor("amqp-vt-"), "amqp-publisher");
+                publisher = new BlockingMessagePublisher(template, JacksonMessageCodec.json(), scheduler, meterRegistry,
+                        "queue-transaction", Duration.ofSeconds(30));
+            }
+        }
+        event = new TransactionEvent("65a1f0c2e4b0a1b2c3d4e5f6", "6790a7c1d2e3f4a5b6c7d8e9", "user-000123",
+                "DEPOSIT", new BigDecimal("15.00"), new BigDecimal("1015.00"), true, System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (reactive != null) {
+            reactive.stop();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+        broker.shutdownNow();
+    }
+
+    @Benchmark
+    public Object publishAll() {
+        return Flux.range(0, concurrency)
+                .flatMap(i -> publisher.publish(event), concurrency)
+                .blockLast(Duration.ofMinutes(1));
+    }
+}
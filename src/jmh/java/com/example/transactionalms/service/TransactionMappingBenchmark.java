@@ -0,0 +1,50 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.dto.TransactionResponseDTO;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ns per call for the request to document and document to response mappings of {@link TransactionService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionMappingBenchmark {
+
+    private TransactionRequestDTO request;
+    private Money initialBalance;
+    private Money finalBalance;
+    private Transaction transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        request = new TransactionRequestDTO("6790a7c1d2e3f4a5b6c7d8e9", "WITHDRAWAL", new BigDecimal("1500.00"), "user-000123");
+        initialBalance = Money.of("49750.75");
+        finalBalance = initialBalance.subtract(Money.of(request.getAmount()));
+        transaction = TransactionService.mapDataToTransaction(request, initialBalance, finalBalance);
+        transaction.setId("65a1f0c2e4b0a1b2c3d4e5f6");
+    }
+
+    @Benchmark
+    public Transaction mapDataToTransaction() {
+        return TransactionService.mapDataToTransaction(request, initialBalance, finalBalance);
+    }
+
+    @Benchmark
+    public TransactionResponseDTO mapToResponse() {
+        return TransactionService.mapToResponse(transaction);
+    }
+}
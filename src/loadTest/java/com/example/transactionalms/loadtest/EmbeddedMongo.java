@@ -0,0 +1,75 @@
+package com.example.transactionalms.loadtest;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.bson.Document;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A throwaway mongod started as a single-node replica set, which the transaction stream needs for change
+ * streams. The binary is downloaded by flapdoodle on first use and cached under {@code ~/.embedmongo}.
+ */
+final class EmbeddedMongo implements AutoCloseable {
+
+    private static final String REPLICA_SET = "rs0";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private final TransitionWalker.ReachedState<RunningMongodProcess> process;
+    private final ServerAddress address;
+
+    private EmbeddedMongo(TransitionWalker.ReachedState<RunningMongodProcess> process) {
+        this.process = process;
+        this.address = process.current().getServerAddress();
+    }
+
+    /** @param version a MongoDB release line such as {@code 7.0} */
+    static EmbeddedMongo start(String version) {
+        TransitionWalker.ReachedState<RunningMongodProcess> process = Mongod.instance()
+                .withMongodArguments(Start.to(MongodArguments.class)
+                        .initializedWith(MongodArguments.defaults().withReplication(Storage.of(REPLICA_SET, 0))))
+                .start(Version.Main.valueOf("V" + version.replace('.', '_')));
+        EmbeddedMongo mongo = new EmbeddedMongo(process);
+        try {
+            mongo.initiateReplicaSet();
+        } catch (RuntimeException e) {
+            process.close();
+            throw e;
+        }
+        return mongo;
+    }
+
+    String connectionString(String database) {
+        return "mongodb://" + address.getHost() + ":" + address.getPort() + "/" + database + "?replicaSet=" + REPLICA_SET;
+    }
+
+    private void initiateReplicaSet() {
+        String member = address.getHost() + ":" + address.getPort();
+        try (MongoClient client = MongoClients.create("mongodb://" + member + "/?directConnection=true")) {
+            Document config = new Document("_id", REPLICA_SET)
+                    .append("members", List.of(new Document("_id", 0).append("host", member)));
+            Mono.from(client.getDatabase("admin").runCommand(new Document("replSetInitiate", config)))
+                    .block(STARTUP_TIMEOUT);
+            // the node needs a moment to elect itself before it accepts writes
+            Mono.defer(() -> Mono.from(client.getDatabase("admin").runCommand(new Document("hello", 1))))
+                    .filter(hello -> Boolean.TRUE.equals(hello.getBoolean("isWritablePrimary")))
+                    .repeatWhenEmpty(300, ticks -> ticks.delayElements(Duration.ofMillis(200)))
+                    .block(STARTUP_TIMEOUT);
+        }
+    }
+
+    @Override
+    public void close() {
+        process.close();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.transactionalms.loadtest;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.service.TransactionEventPublisher;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Confirms every event at once and only counts it, standing in for RabbitMQ during the load test. */
+public class InMemoryTransactionEventPublisher implements TransactionEventPublisher {
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Override
+    public Mono<Void> publish(TransactionEvent event) {
+        return Mono.fromRunnable(() -> (event.isSuccess() ? published : failures).increment());
+    }
+
+    long published() {
+        return published.sum();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.transactionalms.loadtest;
+
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/**
+ * Open-loop load: requests are issued on a fixed schedule of {@code rps} per second whether or not earlier
+ * ones have answered, and each latency is measured from the moment its request was due rather than from
+ * when it was actually sent, so a stalled service is not hidden by the generator slowing down with it
+ * (coordinated omission). Latencies are recorded in microseconds.
+ */
+final class LoadGenerator {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private final WebClient client;
+    private final LoadTestOptions options;
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final LongAdder succeeded = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder sseEvents = new LongAdder();
+    private final LongAdder sseErrors = new LongAdder();
+
+    LoadGenerator(WebClient client, LoadTestOptions options) {
+        this.client = client;
+        this.options = options;
+    }
+
+    /** Gives every account a first transaction, which the SSE endpoint requires before it accepts a subscriber. */
+    Mono<Void> seed() {
+        return Flux.range(0, options.accounts())
+                .flatMap(i -> post(request(accountId(i), "DEPOSIT", BigDecimal.ONE)).then(), 16)
+                .then();
+    }
+
+    LoadRun run() {
+        Disposable.Composite subscribers = Disposables.composite();
+        for (int i = 0; i < options.sseSubscribers(); i++) {
+            subscribers.add(subscribe(accountId(i % options.accounts())));
+        }
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rps();
+        long start = System.nanoTime();
+        long[] issued = {0};
+        Disposable progress = Flux.interval(Duration.ofSeconds(5))
+                .subscribe(tick -> progress(recorder.getIntervalHistogram()));
+        try {
+            Flux.interval(TICK)
+                    .onBackpressureDrop()
+                    .take(options.duration())
+                    .concatMapIterable(tick -> {
+                        long due = (System.nanoTime() - start) / intervalNanos + 1;
+                        long from = issued[0];
+                        issued[0] = Math.max(from, due);
+                        return LongStream.range(from, issued[0]).boxed().toList();
+                    })
+                    .flatMap(index -> send(start + index * intervalNanos), options.maxInFlight())
+                    .blockLast(options.duration().plus(options.requestTimeout()).multipliedBy(2));
+        } finally {
+            progress.dispose();
+            subscribers.dispose();
+        }
+        synchronized (total) {
+            total.add(recorder.getIntervalHistogram());
+        }
+        long elapsed = System.nanoTime() - start;
+        return new LoadRun(total, elapsed, issued[0], succeeded.sum(), snapshot(errors), sseEvents.sum(), sseErrors.sum());
+    }
+
+    private Mono<Void> send(long dueNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String type = random.nextInt(5) == 0 ? "WITHDRAWAL" : "DEPOSIT";
+        BigDecimal amount = BigDecimal.valueOf(random.nextLong(100, 10_000), 2);
+        return post(request(accountId(random.nextInt(options.accounts())), type, amount))
+                .doOnNext(status -> {
+                    if (status / 100 == 2) {
+                        succeeded.increment();
+                    } else {
+                        count("HTTP " + status);
+                    }
+                })
+                .doOnError(e -> count(e.getClass().getSimpleName()))
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> recorder.recordValue(Math.max(0, (System.nanoTime() - dueNanos) / 1000)))
+                .then();
+    }
+
+    private Mono<Integer> post(TransactionRequestDTO request) {
+        return client.post()
+                .uri("/api/transactions")
+                .bodyValue(request)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .timeout(options.requestTimeout());
+    }
+
+    private Disposable subscribe(String accountId) {
+        return client.get()
+                .uri(builder -> builder.path("/api/transactions/stream").queryParam("accountId", accountId).build())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(SSE_TYPE)
+                .filter(event -> "transaction".equals(event.event()))
+                .subscribe(event -> sseEvents.increment(), e -> sseErrors.increment());
+    }
+
+    private void progress(Histogram interval) {
+        synchronized (total) {
+            total.add(interval);
+        }
+        System.out.printf("  %6d req  p50 %8.2f ms  p99 %8.2f ms  errors %d%n",
+                interval.getTotalCount(),
+                interval.getValueAtPercentile(50) / 1000.0,
+                interval.getValueAtPercentile(99) / 1000.0,
+                errors.values().stream().mapToLong(LongAdder::sum).sum());
+    }
+
+    private void count(String kind) {
+        errors.computeIfAbsent(kind, k -> new LongAdder()).increment();
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> copy = new TreeMap<>();
+        counters.forEach((kind, count) -> copy.put(kind, count.sum()));
+        return copy;
+    }
+
+    private static TransactionRequestDTO request(String accountId, String type, BigDecimal amount) {
+        return new TransactionRequestDTO(accountId, type, amount, "load-user");
+    }
+
+    static String accountId(int index) {
+        return "load-" + index;
+    }
+
+    record LoadRun(Histogram latencies, long elapsedNanos, long issued, long succeeded, Map<String, Long> errors,
+                   long sseEvents, long sseErrors) {
+
+        long failed() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
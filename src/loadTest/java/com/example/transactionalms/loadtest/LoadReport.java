@@ -0,0 +1,52 @@
+package com.example.transactionalms.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Prints the summary of a run and writes its full latency distribution as an HdrHistogram percentile file. */
+final class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private LoadReport() {
+    }
+
+    static void print(PrintStream out, LoadTestOptions options, LoadGenerator.LoadRun run, long publishedEvents) {
+        Histogram latencies = run.latencies();
+        double seconds = run.elapsedNanos() / 1e9;
+        long completed = run.succeeded() + run.failed();
+        out.println();
+        out.printf("Target            %d req/s for %s, %d accounts, %d SSE subscribers%n",
+                options.rps(), options.duration(), options.accounts(), options.sseSubscribers());
+        out.printf("Issued            %d requests (%.1f req/s)%n", run.issued(), run.issued() / seconds);
+        out.printf("Throughput        %.1f ok/s%n", run.succeeded() / seconds);
+        out.printf("Succeeded         %d%n", run.succeeded());
+        out.printf("Failed            %d (%.3f%%)%n", run.failed(), completed == 0 ? 0.0 : 100.0 * run.failed() / completed);
+        run.errors().forEach((kind, count) -> out.printf("  %-16s%d%n", kind, count));
+        out.println("Latency (ms, from intended send time)");
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            out.printf("  p%-15s%.2f%n", format(percentile), latencies.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+        }
+        out.printf("  %-16s%.2f%n", "max", latencies.getMaxValue() / MICROS_PER_MILLI);
+        out.printf("  %-16s%.2f%n", "mean", latencies.getMean() / MICROS_PER_MILLI);
+        out.printf("SSE events        %d (%d subscriber errors)%n", run.sseEvents(), run.sseErrors());
+        out.printf("Published events  %d%n", publishedEvents);
+    }
+
+    static Path writeHistogram(Path directory, Histogram latencies) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("latency.hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            latencies.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+        return file;
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.transactionalms.loadtest;
+
+import com.example.transactionalms.TransactionalMsApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Runs the service against local stand-ins (an embedded single-node replica set, a stub accounts service
+ * with configurable latency and an in-memory event publisher) and drives it with {@link LoadGenerator}.
+ * Options are {@code --name=value}; see {@link LoadTestOptions} for names and defaults.
+ */
+public final class LoadTestApplication {
+
+    private LoadTestApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        try (EmbeddedMongo mongo = EmbeddedMongo.start(options.mongoVersion());
+             StubAccountsServer accounts = new StubAccountsServer(
+                     options.initialBalance(), options.accountsLatency(), options.accountsJitter());
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(TransactionalMsApplication.class)
+                     .profiles("loadtest")
+                     .run("--server.port=0",
+                             "--spring.data.mongodb.uri=" + mongo.connectionString("loadtest"),
+                             "--spring.data.mongodb.database=loadtest",
+                             "--accounts.client.base-url=" + accounts.baseUrl())) {
+            int port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+            WebClient client = WebClient.builder().baseUrl("http://127.0.0.1:" + port).build();
+            LoadGenerator generator = new LoadGenerator(client, options);
+
+            System.out.printf("Seeding %d accounts%n", options.accounts());
+            generator.seed().block();
+            System.out.printf("Running %d req/s for %s%n", options.rps(), options.duration());
+            LoadGenerator.LoadRun run = generator.run();
+
+            InMemoryTransactionEventPublisher publisher = context.getBean(InMemoryTransactionEventPublisher.class);
+            LoadReport.print(System.out, options, run, publisher.published());
+            System.out.println("Histogram         " + LoadReport.writeHistogram(options.outputDir(), run.latencies()));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.transactionalms.loadtest;
+
+import com.example.transactionalms.service.TransactionEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+
+    // Takes over from the RabbitMQ publisher in the outbox relay; the broker is never contacted
+    @Bean
+    @Primary
+    public InMemoryTransactionEventPublisher inMemoryTransactionEventPublisher() {
+        return new InMemoryTransactionEventPublisher();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.transactionalms.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@code --name=value} arguments of the load test, with their defaults. */
+record LoadTestOptions(
+        int rps,
+        Duration duration,
+        int accounts,
+        int sseSubscribers,
+        int maxInFlight,
+        Duration requestTimeout,
+        Duration accountsLatency,
+        Duration accountsJitter,
+        BigDecimal initialBalance,
+        String mongoVersion,
+        Path outputDir) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("rps", "200")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "30s")),
+                Integer.parseInt(values.getOrDefault("accounts", "100")),
+                Integer.parseInt(values.getOrDefault("sse-subscribers", "10")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "2000")),
+                DurationStyle.detectAndParse(values.getOrDefault("request-timeout", "10s")),
+                DurationStyle.detectAndParse(values.getOrDefault("accounts-latency", "5ms")),
+                DurationStyle.detectAndParse(values.getOrDefault("accounts-jitter", "0ms")),
+                new BigDecimal(values.getOrDefault("initial-balance", "1000000.00")),
+                values.getOrDefault("mongo-version", "7.0"),
+                Path.of(values.getOrDefault("output", "build/loadtest")));
+        if (options.rps() <= 0 || options.accounts() <= 0 || options.sseSubscribers() < 0) {
+            throw new IllegalArgumentException("rps and accounts must be positive, sse-subscribers not negative");
+        }
+        return options;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.transactionalms.loadtest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * In-process accounts service for the load test. It speaks the same protocol as the real one: GET with a
+ * version ETag, absolute balance POST and If-Match conditioned delta POST. Every answer is held back by
+ * {@code latency} plus a uniform random {@code jitter}. Unknown accounts are created on first access
+ * with {@code initialBalance}.
+ */
+final class StubAccountsServer implements AutoCloseable {
+
+    // Amounts are read as exact decimals and keep their scale (70.00 stays 70.00, not 7E+1)
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .disable(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES)
+            .build();
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final BigDecimal initialBalance;
+    private final Duration latency;
+    private final Duration jitter;
+    private final DisposableServer server;
+
+    StubAccountsServer(BigDecimal initialBalance, Duration latency, Duration jitter) {
+        this.initialBalance = initialBalance;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes
+                        .get("/{id}", (request, response) -> delayed(() -> get(request, response)))
+                        .post("/{id}/balance", (request, response) -> delayed(() -> setBalance(request, response)))
+                        .post("/{id}/balance/delta", (request, response) -> delayed(() -> applyDelta(request, response))))
+                .bindNow();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    private Publisher<Void> get(HttpServerRequest request, HttpServerResponse response) {
+        Account account = account(request.param("id"));
+        synchronized (account) {
+            return json(response, account);
+        }
+    }
+
+    private Publisher<Void> setBalance(HttpServerRequest request, HttpServerResponse response) {
+        return body(request).flatMap(body -> {
+            Account account = account(request.param("id"));
+            synchronized (account) {
+                account.balance = body.get("newBalance").decimalValue();
+                account.version++;
+            }
+            return Mono.from(response.status(HttpResponseStatus.OK).send());
+        });
+    }
+
+    private Publisher<Void> applyDelta(HttpServerRequest request, HttpServerResponse response) {
+        String ifMatch = request.requestHeaders().get("If-Match");
+        return body(request).flatMap(body -> {
+            Account account = account(request.param("id"));
+            synchronized (account) {
+                if (ifMatch != null && !ifMatch.equals("\"" + account.version + "\"")) {
+                    return Mono.from(response.status(HttpResponseStatus.PRECONDITION_FAILED).send());
+                }
+                BigDecimal next = account.balance.add(body.get("delta").decimalValue());
+                if (next.signum() < 0) {
+                    return Mono.from(response.status(HttpResponseStatus.UNPROCESSABLE_ENTITY).send());
+                }
+                account.balance = next;
+                account.version++;
+                return json(response, account);
+            }
+        });
+    }
+
+    private Mono<Void> json(HttpServerResponse response, Account account) {
+        ObjectNode body = mapper.createObjectNode()
+                .put("accountId", account.id)
+                .put("balance", account.balance);
+        return response.status(HttpResponseStatus.OK)
+                .header("Content-Type", "application/json")
+                .header("ETag", "\"" + account.version + "\"")
+                .sendString(Mono.just(body.toString()))
+                .then();
+    }
+
+    private Mono<JsonNode> body(HttpServerRequest request) {
+        return request.receive().aggregate().asString().map(text -> {
+            try {
+                return mapper.readTree(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Account account(String id) {
+        return accounts.computeIfAbsent(id, key -> new Account(key, initialBalance));
+    }
+
+    private Mono<Void> delayed(Supplier<Publisher<Void>> handler) {
+        long jitterMillis = jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        Duration delay = latency.plusMillis(jitterMillis);
+        Mono<Void> answer = Mono.defer(() -> Mono.from(handler.get()));
+        return delay.isZero() ? answer : Mono.delay(delay).then(answer);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private static final class Account {
+        private final String id;
+        private BigDecimal balance;
+        private long version;
+
+        private Account(String id, BigDecimal balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
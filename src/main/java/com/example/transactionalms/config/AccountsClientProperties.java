@@ -0,0 +1,68 @@
+package com.example.transactionalms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/** Settings of the accounts-service client, bound from {@code accounts.client.*}. */
+@Data
+@Component
+@ConfigurationProperties(prefix = "accounts.client")
+public class AccountsClientProperties {
+
+    private String baseUrl = "http://localhost:8082/api/accounts";
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(3);
+    /**
+     * ABSOLUTE posts the new balance computed here; DELTA posts a signed delta conditioned on the version
+     * that was read, and refetches and retries on a conflict at most {@code conflictRetries} times.
+     */
+    private BalanceUpdateMode balanceUpdateMode = BalanceUpdateMode.ABSOLUTE;
+    private int conflictRetries = 3;
+    private Pool pool = new Pool();
+    private Retry retry = new Retry();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Bulkhead bulkhead = new Bulkhead();
+
+    public enum BalanceUpdateMode {
+        ABSOLUTE, DELTA
+    }
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 200;
+        /** Requests allowed to wait for a connection; beyond this they fail fast. */
+        private int pendingAcquireMaxCount = 400;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Retry {
+        /** Retries after the first attempt; only the GET of an account is retried. */
+        private int maxAttempts = 2;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(1);
+        private double jitter = 0.5;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(2);
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedCallsInHalfOpenState = 5;
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 100;
+        private Duration maxWaitDuration = Duration.ZERO;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.transactionalms.config;
+
+import com.example.transactionalms.messaging.BinaryMessageCodec;
+import com.example.transactionalms.messaging.JacksonMessageCodec;
+import com.example.transactionalms.messaging.LegacyTextMessageEncoder;
+import com.example.transactionalms.messaging.MessageEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+@Configuration
+public class MessagingConfig {
+
+    @Bean
+    public MessageEncoder messageEncoder(
+            @Value("${messaging.codec:json}") String codec,
+            @Value("${messaging.legacy-format:false}") boolean legacyFormat) {
+        if (legacyFormat) {
+            return new LegacyTextMessageEncoder();
+        }
+        return switch (codec.toLowerCase(Locale.ROOT)) {
+            case "json" -> JacksonMessageCodec.json();
+            case "smile" -> JacksonMessageCodec.smile();
+            case "cbor" -> JacksonMessageCodec.cbor();
+            case "binary" -> new BinaryMessageCodec();
+            default -> throw new IllegalArgumentException("Unknown messaging.codec: " + codec);
+        };
+    }
+}
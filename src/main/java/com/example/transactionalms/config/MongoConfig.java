@@ -0,0 +1,87 @@
+package com.example.transactionalms.config;
+
+import com.example.transactionalms.model.Money;
+import org.bson.types.Decimal128;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+
+    private static final long SIGN_BIT = Long.MIN_VALUE;
+    private static final int EXPONENT_BIAS = 6176;
+    private static final long MONEY_EXPONENT_BITS = (long) (EXPONENT_BIAS - Money.SCALE) << 49;
+
+    /**
+     * {@link Money} and {@link BigDecimal} are written as Decimal128 rather than Spring Data's default string,
+     * so aggregations can {@code $sum}, {@code $inc} and range-query them server side. Documents written
+     * before stored amounts as strings; those are still read.
+     */
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                MoneyToDecimal128.INSTANCE,
+                Decimal128ToMoney.INSTANCE,
+                StringToMoney.INSTANCE,
+                BigDecimalToDecimal128.INSTANCE));
+    }
+
+    /**
+     * Builds the IEEE 754-2008 BID encoding directly: the minor units are the coefficient and the exponent is
+     * {@code -Money.SCALE}, so no BigDecimal is created on the way to the driver.
+     */
+    @WritingConverter
+    enum MoneyToDecimal128 implements Converter<Money, Decimal128> {
+        INSTANCE;
+
+        @Override
+        public Decimal128 convert(Money source) {
+            long units = source.minorUnits();
+            long high = MONEY_EXPONENT_BITS | (units < 0 ? SIGN_BIT : 0);
+            // Long.MIN_VALUE negates to itself, which read as unsigned is the right magnitude
+            return Decimal128.fromIEEE754BIDEncoding(high, units < 0 ? -units : units);
+        }
+    }
+
+    @ReadingConverter
+    enum Decimal128ToMoney implements Converter<Decimal128, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(Decimal128 source) {
+            long high = source.getHigh();
+            long low = source.getLow();
+            if ((high & ~SIGN_BIT) == MONEY_EXPONENT_BITS && low >= 0) {
+                return Money.ofMinor(high < 0 ? -low : low);
+            }
+            return Money.of(source.bigDecimalValue());
+        }
+    }
+
+    @ReadingConverter
+    enum StringToMoney implements Converter<String, Money> {
+        INSTANCE;
+
+        @Override
+        public Money convert(String source) {
+            return Money.of(new BigDecimal(source));
+        }
+    }
+
+    @WritingConverter
+    enum BigDecimalToDecimal128 implements Converter<BigDecimal, Decimal128> {
+        INSTANCE;
+
+        @Override
+        public Decimal128 convert(BigDecimal source) {
+            return new Decimal128(source);
+        }
+    }
+}
@@ -6,9 +6,11 @@ import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class RabbitMQConfig {
@@ -30,6 +32,7 @@ public class RabbitMQConfig {
     private String exchangeName;
 
     @Bean
+    @Primary
     public ConnectionFactory connectionFactory() {
         CachingConnectionFactory factory = new CachingConnectionFactory(host);
         factory.setUsername(username);
@@ -37,18 +40,39 @@ public class RabbitMQConfig {
         return factory;
     }
 
+    @Bean
+    public CachingConnectionFactory publisherConnectionFactory(
+            @Value("${messaging.publisher.channel-pool-size:4}") int channelPoolSize) {
+        CachingConnectionFactory factory = new CachingConnectionFactory(host);
+        factory.setUsername(username);
+        factory.setPassword(password);
+        factory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        factory.setChannelCacheSize(channelPoolSize);
+        factory.setChannelCheckoutTimeout(5000);
+        factory.setConnectionNameStrategy(cf -> "transactional-ms-publisher");
+        return factory;
+    }
+
     @Bean
     public RabbitAdmin rabbitAdmin(ConnectionFactory connectionFactory) {
         return new RabbitAdmin(connectionFactory);
     }
 
     @Bean
+    @Primary
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(new Jackson2JsonMessageConverter());
         return template;
     }
 
+    @Bean
+    public RabbitTemplate publisherRabbitTemplate(@Qualifier("publisherConnectionFactory") ConnectionFactory publisherConnectionFactory) {
+        RabbitTemplate template = new RabbitTemplate(publisherConnectionFactory);
+        template.setMessageConverter(new Jackson2JsonMessageConverter());
+        return template;
+    }
+
     @Bean
     public DirectExchange exchange() {
         return new DirectExchange(exchangeName, true, false);
@@ -1,9 +1,15 @@
 package com.example.transactionalms.config;
 
 import com.example.transactionalms.controller.TransactionHandler;
+import com.example.transactionalms.dto.BatchItemResultDTO;
+import com.example.transactionalms.dto.TransactionPageDTO;
 import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.model.AccountAggregate;
 import com.example.transactionalms.model.Transaction;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -34,6 +40,10 @@ public class RouterConfig {
                             operationId = "performTransaction",
                             summary = "Perform a transaction",
                             tags = {"Transaction"},
+                            parameters = {
+                                    @Parameter(name = "Idempotency-Key", in = ParameterIn.HEADER,
+                                            description = "Retries with the same key replay the first response")
+                            },
                             requestBody = @RequestBody(
                                     required = true,
                                     content = @Content(schema = @Schema(implementation = TransactionRequestDTO.class))
@@ -50,11 +60,149 @@ public class RouterConfig {
                                     )
                             }
                     )
+            ),
+            @RouterOperation(
+                    path = "/api/transactions/batch",
+                    method = RequestMethod.POST,
+                    beanClass = TransactionHandler.class,
+                    beanMethod = "performBatch",
+                    operation = @Operation(
+                            operationId = "performBatch",
+                            summary = "Perform a batch of transactions (JSON array or NDJSON)",
+                            tags = {"Transaction"},
+                            requestBody = @RequestBody(
+                                    required = true,
+                                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TransactionRequestDTO.class)))
+                            ),
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "One result per submitted item",
+                                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = BatchItemResultDTO.class)))
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/api/transactions/history",
+                    method = RequestMethod.GET,
+                    beanClass = TransactionHandler.class,
+                    beanMethod = "getHistory",
+                    operation = @Operation(
+                            operationId = "getHistory",
+                            summary = "Transaction history with keyset pagination",
+                            tags = {"Transaction"},
+                            parameters = {
+                                    @Parameter(name = "accountId", in = ParameterIn.QUERY, description = "Required unless userId is given"),
+                                    @Parameter(name = "userId", in = ParameterIn.QUERY),
+                                    @Parameter(name = "type", in = ParameterIn.QUERY, description = "DEPOSIT or WITHDRAWAL"),
+                                    @Parameter(name = "from", in = ParameterIn.QUERY, description = "Inclusive, ISO-8601 local date-time"),
+                                    @Parameter(name = "to", in = ParameterIn.QUERY, description = "Exclusive, ISO-8601 local date-time"),
+                                    @Parameter(name = "cursor", in = ParameterIn.QUERY, description = "nextCursor of the previous page"),
+                                    @Parameter(name = "limit", in = ParameterIn.QUERY, description = "Page size, 50 by default and at most 500"),
+                                    @Parameter(name = "fields", in = ParameterIn.QUERY, description = "Comma separated projection")
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(schema = @Schema(implementation = TransactionPageDTO.class))
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Bad request"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/api/transactions/export",
+                    method = RequestMethod.GET,
+                    beanClass = TransactionHandler.class,
+                    beanMethod = "exportStatement",
+                    operation = @Operation(
+                            operationId = "exportStatement",
+                            summary = "Stream the account statement as CSV or NDJSON",
+                            tags = {"Transaction"},
+                            parameters = {
+                                    @Parameter(name = "accountId", in = ParameterIn.QUERY, required = true),
+                                    @Parameter(name = "from", in = ParameterIn.QUERY, description = "Inclusive, ISO-8601 local date-time"),
+                                    @Parameter(name = "to", in = ParameterIn.QUERY, description = "Exclusive, ISO-8601 local date-time"),
+                                    @Parameter(name = "format", in = ParameterIn.QUERY, description = "csv (default) or ndjson"),
+                                    @Parameter(name = "gzip", in = ParameterIn.QUERY, description = "Compress the body with gzip")
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Applied transactions in timestamp order"
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Bad request"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/api/transactions/aggregates",
+                    method = RequestMethod.GET,
+                    beanClass = TransactionHandler.class,
+                    beanMethod = "getAggregates",
+                    operation = @Operation(
+                            operationId = "getAggregates",
+                            summary = "Daily totals, counts and last balance of an account",
+                            tags = {"Transaction"},
+                            parameters = {
+                                    @Parameter(name = "accountId", in = ParameterIn.QUERY, required = true),
+                                    @Parameter(name = "date", in = ParameterIn.QUERY, description = "ISO-8601 date, today by default")
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(schema = @Schema(implementation = AccountAggregate.class))
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Bad request"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/api/transactions/aggregates/rebuild",
+                    method = RequestMethod.POST,
+                    beanClass = TransactionHandler.class,
+                    beanMethod = "rebuildAggregates",
+                    operation = @Operation(
+                            operationId = "rebuildAggregates",
+                            summary = "Recompute the daily aggregates from the transaction history",
+                            tags = {"Transaction"},
+                            parameters = {
+                                    @Parameter(name = "from", in = ParameterIn.QUERY, required = true, description = "First day, ISO-8601 date"),
+                                    @Parameter(name = "to", in = ParameterIn.QUERY, description = "Last day, yesterday by default; today and later days are rejected")
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Number of aggregate documents written"
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Bad request"
+                                    )
+                            }
+                    )
             )
     })
     public RouterFunction<ServerResponse> routes(TransactionHandler handler) {
         return RouterFunctions
                 .route(POST("/api/transactions"), handler::performTransaction)
-                .andRoute(GET("/api/transactions/stream"), handler::streamTransactions);
+                .andRoute(POST("/api/transactions/batch"), handler::performBatch)
+                .andRoute(GET("/api/transactions/stream"), handler::streamTransactions)
+                .andRoute(GET("/api/transactions/history"), handler::getHistory)
+                .andRoute(GET("/api/transactions/export"), handler::exportStatement)
+                .andRoute(GET("/api/transactions/aggregates"), handler::getAggregates)
+                .andRoute(POST("/api/transactions/aggregates/rebuild"), handler::rebuildAggregates);
     }
 }
\ No newline at end of file
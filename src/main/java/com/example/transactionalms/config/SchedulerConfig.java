@@ -0,0 +1,33 @@
+package com.example.transactionalms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Schedulers for the integrations that can only block. Each one gets its own bounded pool, so a slow
+ * dependency exhausts its own threads and queue rather than the Netty event loops or another
+ * integration's pool. Nothing on the request path may block; the BlockHound tests
+ * ({@code ./gradlew blockHoundTest}) fail the build if a handler does.
+ */
+@Configuration
+public class SchedulerConfig {
+
+    /**
+     * RabbitTemplate sends and their publisher-confirm bookkeeping. With {@code schedulers.amqp.virtual-threads}
+     * (Java 21 only) every task gets its own virtual thread; concurrency is then bounded by the publisher's
+     * channel pool instead of by {@code threads}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler amqpScheduler(
+            @Value("${schedulers.amqp.threads:4}") int threads,
+            @Value("${schedulers.amqp.queue-capacity:10000}") int queueCapacity,
+            @Value("${schedulers.amqp.virtual-threads:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Schedulers.fromExecutorService(VirtualThreads.newExecutor("amqp-vt-"), "amqp-publisher");
+        }
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "amqp-publisher");
+    }
+}
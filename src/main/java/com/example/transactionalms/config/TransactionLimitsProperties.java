@@ -0,0 +1,42 @@
+package com.example.transactionalms.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits per transaction type, e.g. {@code transactions.limits.rules.WITHDRAWAL.max-amount-per-day=5000}.
+ * A type without a rule, or a rule field left empty, is not limited.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "transactions.limits")
+public class TransactionLimitsProperties {
+
+    private boolean enabled = true;
+    /** Accounts whose windows are kept in memory; the least recently used ones are evicted first. */
+    private long maxAccounts = 100_000;
+    private Map<String, Rule> rules = new HashMap<>();
+
+    public Rule ruleFor(String transactionType) {
+        if (!enabled || transactionType == null) {
+            return null;
+        }
+        for (Map.Entry<String, Rule> entry : rules.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(transactionType)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Data
+    public static class Rule {
+        private BigDecimal maxAmountPerDay;
+        private Integer maxOperationsPerMinute;
+    }
+}
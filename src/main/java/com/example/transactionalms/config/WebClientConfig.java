@@ -1,10 +1,14 @@
 package com.example.transactionalms.config;
 
+import io.netty.channel.ChannelOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class WebClientConfig {
@@ -14,9 +18,36 @@ public class WebClientConfig {
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder()
                 .filter((request, next) -> {
-                    log.info("Sending request to: {}", request.url());
-                    log.info("With headers: {}", request.headers());
+                    // Per-request detail only at DEBUG; latency and outcomes are in the metrics
+                    if (log.isDebugEnabled()) {
+                        log.debug("Sending {} {}", request.method(), request.url());
+                    }
                     return next.exchange(request);
                 });
     }
+
+    /**
+     * Connector dedicated to the accounts service: a bounded pool with a bounded acquire queue, and
+     * connect/response timeouts. Pool metrics are published under {@code reactor.netty.connection.provider}.
+     */
+    @Bean
+    public WebClient accountsWebClient(WebClient.Builder webClientBuilder, AccountsClientProperties properties) {
+        AccountsClientProperties.Pool pool = properties.getPool();
+        ConnectionProvider provider = ConnectionProvider.builder("accounts")
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getMaxIdleTime())
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout());
+        return webClientBuilder.clone()
+                .baseUrl(properties.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
 }
@@ -0,0 +1,18 @@
+package com.example.transactionalms.controller;
+
+import com.example.transactionalms.dto.FieldViolationDTO;
+import lombok.Getter;
+
+import java.util.List;
+
+/** A request body that broke one or more field constraints; the message lists them as {@code field: message}. */
+@Getter
+public class RequestValidationException extends IllegalArgumentException {
+
+    private final transient List<FieldViolationDTO> violations;
+
+    public RequestValidationException(List<FieldViolationDTO> violations) {
+        super(TransactionRequestValidator.describe(violations));
+        this.violations = violations;
+    }
+}
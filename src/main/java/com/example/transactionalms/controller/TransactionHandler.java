@@ -1,30 +1,81 @@
 package com.example.transactionalms.controller;
 
+import com.example.transactionalms.dto.BatchItemResultDTO;
+import com.example.transactionalms.dto.ErrorResponseDTO;
+import com.example.transactionalms.dto.FieldViolationDTO;
+import com.example.transactionalms.dto.TransactionHistoryQuery;
 import com.example.transactionalms.dto.TransactionRequestDTO;
 import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.service.AccountAggregateService;
+import com.example.transactionalms.service.IdempotencyKeyConflictException;
+import com.example.transactionalms.service.IdempotencyService;
+import com.example.transactionalms.service.StatementExporter;
+import com.example.transactionalms.service.TransactionLimitExceededException;
+import com.example.transactionalms.service.TransactionQueryService;
 import com.example.transactionalms.service.TransactionService;
-import jakarta.validation.Validation;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 @Component
 @AllArgsConstructor
 public class TransactionHandler {
 
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final TransactionService transactionService;
+    private final TransactionQueryService transactionQueryService;
+    private final StatementExporter statementExporter;
+    private final AccountAggregateService accountAggregateService;
+    private final IdempotencyService idempotencyService;
+    private final TransactionRequestValidator requestValidator;
 
 
     public Mono<ServerResponse> performTransaction(ServerRequest request) {
+        String idempotencyKey = request.headers().firstHeader(IDEMPOTENCY_KEY);
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            return toErrorResponse(new IllegalArgumentException(
+                    "El encabezado 'Idempotency-Key' debe tener entre 1 y " + MAX_IDEMPOTENCY_KEY_LENGTH + " caracteres."));
+        }
         return request.bodyToMono(TransactionRequestDTO.class)
                 .doOnNext(this::validateTransaction) // Validar DTO
-                .flatMap(transactionService::performTransaction)
+                .flatMap(dto -> idempotencyKey == null
+                        ? transactionService.performTransaction(dto)
+                        : idempotencyService.execute(idempotencyKey, dto,
+                                transactionId -> transactionService.performTransaction(dto, transactionId)))
                 .flatMap(response -> ServerResponse.ok().bodyValue(response))
-                .onErrorResume(e -> ServerResponse.badRequest().bodyValue(e.getMessage()));
+                .onErrorResume(TransactionHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> performBatch(ServerRequest request) {
+        MediaType contentType = request.headers().contentType()
+                .filter(MediaType.APPLICATION_NDJSON::isCompatibleWith)
+                .orElse(MediaType.APPLICATION_JSON);
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(transactionService.performBatch(
+                        request.bodyToFlux(TransactionRequestDTO.class), this::findViolations), BatchItemResultDTO.class);
     }
 
     public Mono<ServerResponse> streamTransactions(ServerRequest request) {
@@ -35,11 +86,20 @@ public class TransactionHandler {
                     .bodyValue("El parámetro 'accountId' es requerido y no puede estar vacío.");
         }
 
+        LocalDateTime since;
+        try {
+            since = request.queryParam("since").map(LocalDateTime::parse).orElse(null);
+        } catch (DateTimeParseException e) {
+            return ServerResponse.badRequest()
+                    .bodyValue("El parámetro 'since' debe tener formato ISO-8601 (yyyy-MM-ddTHH:mm:ss).");
+        }
+
         return transactionService.existsByAccountId(accountId)
                 .flatMap(exists -> exists
                         ? ServerResponse.ok()
                         .contentType(MediaType.TEXT_EVENT_STREAM)
-                        .body(transactionService.streamTransactions(accountId), Transaction.class)
+                        .body(BodyInserters.fromServerSentEvents(toServerSentEvents(transactionService.streamTransactions(
+                                accountId, request.headers().firstHeader(LAST_EVENT_ID), since))))
                         : ServerResponse.badRequest()
                         .bodyValue("No se encontraron transacciones para accountId: " + accountId)
                 )
@@ -48,18 +108,138 @@ public class TransactionHandler {
                 );
     }
 
+    public Mono<ServerResponse> getHistory(ServerRequest request) {
+        return Mono.fromCallable(() -> TransactionHistoryQuery.builder()
+                        .accountId(request.queryParam("accountId").orElse(null))
+                        .userId(request.queryParam("userId").orElse(null))
+                        .transactionType(request.queryParam("type").orElse(null))
+                        .from(request.queryParam("from").map(LocalDateTime::parse).orElse(null))
+                        .to(request.queryParam("to").map(LocalDateTime::parse).orElse(null))
+                        .cursor(request.queryParam("cursor").orElse(null))
+                        .limit(request.queryParam("limit").map(Integer::parseInt).orElse(0))
+                        .fields(request.queryParam("fields")
+                                .map(fields -> Arrays.stream(fields.split(",")).map(String::trim).filter(f -> !f.isEmpty()).toList())
+                                .orElse(null))
+                        .build())
+                .flatMap(transactionQueryService::findHistory)
+                .flatMap(page -> ServerResponse.ok().bodyValue(page))
+                .onErrorResume(e -> ServerResponse.badRequest().bodyValue(e.getMessage()));
+    }
+
+    public Mono<ServerResponse> exportStatement(ServerRequest request) {
+        String accountId = request.queryParam("accountId").orElse(null);
+        if (accountId == null || accountId.isEmpty()) {
+            return ServerResponse.badRequest()
+                    .bodyValue("El parámetro 'accountId' es requerido y no puede estar vacío.");
+        }
+
+        StatementExporter.Format format;
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            format = StatementExporter.Format.of(request.queryParam("format").orElse("csv"));
+            from = request.queryParam("from").map(LocalDateTime::parse).orElse(null);
+            to = request.queryParam("to").map(LocalDateTime::parse).orElse(null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ServerResponse.badRequest().bodyValue(e.getMessage());
+        }
+        boolean gzip = request.queryParam("gzip").map(Boolean::parseBoolean).orElse(false);
+
+        ServerResponse.BodyBuilder response = ServerResponse.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"statement-" + accountId + "." + format.extension() + (gzip ? ".gz" : "") + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(BodyInserters.fromDataBuffers(statementExporter.export(
+                transactionQueryService.streamStatement(accountId, from, to), format, gzip)));
+    }
+
+    public Mono<ServerResponse> getAggregates(ServerRequest request) {
+        String accountId = request.queryParam("accountId").orElse(null);
+        if (accountId == null || accountId.isEmpty()) {
+            return ServerResponse.badRequest()
+                    .bodyValue("El parámetro 'accountId' es requerido y no puede estar vacío.");
+        }
 
+        LocalDate day;
+        try {
+            day = request.queryParam("date").map(LocalDate::parse).orElse(LocalDate.now());
+        } catch (DateTimeParseException e) {
+            return ServerResponse.badRequest()
+                    .bodyValue("El parámetro 'date' debe tener formato ISO-8601 (yyyy-MM-dd).");
+        }
+        return accountAggregateService.find(accountId, day)
+                .flatMap(aggregate -> ServerResponse.ok().bodyValue(aggregate));
+    }
+
+    public Mono<ServerResponse> rebuildAggregates(ServerRequest request) {
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(request.queryParam("from").orElseThrow(
+                    () -> new IllegalArgumentException("El parámetro 'from' es requerido.")));
+            to = request.queryParam("to").map(LocalDate::parse).orElse(LocalDate.now().minusDays(1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ServerResponse.badRequest().bodyValue(e.getMessage());
+        }
+        if (to.isBefore(from)) {
+            return ServerResponse.badRequest().bodyValue("El parámetro 'to' no puede ser anterior a 'from'.");
+        }
+        if (!to.isBefore(LocalDate.now())) {
+            return ServerResponse.badRequest().bodyValue("Solo se pueden reconstruir días cerrados (anteriores a hoy).");
+        }
+        return accountAggregateService.rebuild(from, to)
+                .flatMap(count -> ServerResponse.ok().bodyValue(Map.of("aggregates", count)));
+    }
+
+    private static Mono<ServerResponse> toErrorResponse(Throwable e) {
+        if (e instanceof TransactionLimitExceededException limit) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("transactionType", limit.getTransactionType());
+            details.put("limit", limit.getLimit());
+            details.put("current", limit.getCurrent());
+            return ServerResponse.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .bodyValue(new ErrorResponseDTO(limit.getCode(), limit.getMessage(), details, LocalDateTime.now()));
+        }
+        if (e instanceof RequestValidationException invalid) {
+            return ServerResponse.badRequest()
+                    .bodyValue(new ErrorResponseDTO("INVALID_TRANSACTION", invalid.getMessage(),
+                            Map.of("violations", invalid.getViolations()), LocalDateTime.now()));
+        }
+        if (e instanceof IdempotencyKeyConflictException conflict) {
+            return ServerResponse.status(HttpStatus.CONFLICT)
+                    .bodyValue(new ErrorResponseDTO(conflict.getCode(), conflict.getMessage(), null, LocalDateTime.now()));
+        }
+        String code = e instanceof IllegalArgumentException ? "INVALID_TRANSACTION" : "TRANSACTION_FAILED";
+        return ServerResponse.badRequest()
+                .bodyValue(new ErrorResponseDTO(code, e.getMessage(), null, LocalDateTime.now()));
+    }
+
+    static Flux<ServerSentEvent<Transaction>> toServerSentEvents(Flux<Transaction> transactions) {
+        return transactions
+                .map(transaction -> ServerSentEvent.builder(transaction)
+                        .id(TransactionQueryService.eventId(transaction))
+                        .event("transaction")
+                        .build())
+                .publish(events -> Flux.merge(events,
+                        // Comment-only frames keep idle proxies from closing the connection, until the events end
+                        Flux.interval(HEARTBEAT_INTERVAL)
+                                .map(tick -> ServerSentEvent.<Transaction>builder().comment("heartbeat").build())
+                                .takeUntilOther(events.then())));
+    }
 
     void validateTransaction(TransactionRequestDTO transactionRequest) {
-        var validator = Validation.buildDefaultValidatorFactory().getValidator();
-        var violations = validator.validate(transactionRequest);
+        List<FieldViolationDTO> violations = requestValidator.validate(transactionRequest);
         if (!violations.isEmpty()) {
-            String errors = violations.stream()
-                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
-                    .reduce((msg1, msg2) -> msg1 + ", " + msg2)
-                    .orElse("Error en los datos de entrada.");
-            throw new IllegalArgumentException(errors);
+            throw new RequestValidationException(violations);
         }
     }
 
+    Optional<String> findViolations(TransactionRequestDTO transactionRequest) {
+        List<FieldViolationDTO> violations = requestValidator.validate(transactionRequest);
+        return violations.isEmpty() ? Optional.empty() : Optional.of(TransactionRequestValidator.describe(violations));
+    }
+
 }
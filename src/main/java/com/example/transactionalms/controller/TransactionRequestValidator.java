@@ -0,0 +1,123 @@
+package com.example.transactionalms.controller;
+
+import com.example.transactionalms.dto.FieldViolationDTO;
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+import org.springframework.stereotype.Component;
+
+import java.lang.annotation.Annotation;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates {@link TransactionRequestDTO} on the request path without going through the Bean Validation
+ * engine: the four fields are checked by hand, in declaration order. Messages and the minimum amount are
+ * read once from the constraints declared on the DTO, so the annotations remain the only place they are
+ * defined; their messages are expected to be literal text, not templates. {@link #validateWithBeanValidation}
+ * runs the shared {@link Validator} and is the reference the fast path is tested against.
+ */
+@Component
+public class TransactionRequestValidator {
+
+    private final Validator validator;
+    private final String accountIdMessage;
+    private final String transactionTypeMessage;
+    private final String amountRequiredMessage;
+    private final String amountMinMessage;
+    private final String userIdMessage;
+    private final BigDecimal minAmount;
+    private final boolean minAmountInclusive;
+
+    public TransactionRequestValidator(Validator validator) {
+        this.validator = validator;
+        BeanDescriptor bean = validator.getConstraintsForClass(TransactionRequestDTO.class);
+        this.accountIdMessage = constraint(bean, "accountId", NotBlank.class).getMessageTemplate();
+        this.transactionTypeMessage = constraint(bean, "transactionType", NotBlank.class).getMessageTemplate();
+        this.amountRequiredMessage = constraint(bean, "amount", NotNull.class).getMessageTemplate();
+        ConstraintDescriptor<?> min = constraint(bean, "amount", DecimalMin.class);
+        this.amountMinMessage = min.getMessageTemplate();
+        this.minAmount = new BigDecimal((String) min.getAttributes().get("value"));
+        this.minAmountInclusive = (Boolean) min.getAttributes().get("inclusive");
+        this.userIdMessage = constraint(bean, "userId", NotBlank.class).getMessageTemplate();
+    }
+
+    /** Violations in field order; the shared empty list when the request is valid. */
+    public List<FieldViolationDTO> validate(TransactionRequestDTO request) {
+        List<FieldViolationDTO> violations = null;
+        if (isBlank(request.getAccountId())) {
+            violations = add(violations, "accountId", accountIdMessage);
+        }
+        if (isBlank(request.getTransactionType())) {
+            violations = add(violations, "transactionType", transactionTypeMessage);
+        }
+        BigDecimal amount = request.getAmount();
+        if (amount == null) {
+            violations = add(violations, "amount", amountRequiredMessage);
+        } else {
+            int comparison = amount.compareTo(minAmount);
+            if (minAmountInclusive ? comparison < 0 : comparison <= 0) {
+                violations = add(violations, "amount", amountMinMessage);
+            }
+        }
+        if (isBlank(request.getUserId())) {
+            violations = add(violations, "userId", userIdMessage);
+        }
+        return violations == null ? List.of() : violations;
+    }
+
+    /** Same result as {@link #validate} through the full Bean Validation engine, in the engine's order. */
+    public List<FieldViolationDTO> validateWithBeanValidation(TransactionRequestDTO request) {
+        return validator.validate(request).stream()
+                .map(violation -> new FieldViolationDTO(violation.getPropertyPath().toString(), violation.getMessage()))
+                .toList();
+    }
+
+    static String describe(List<FieldViolationDTO> violations) {
+        StringBuilder description = new StringBuilder();
+        for (FieldViolationDTO violation : violations) {
+            if (!description.isEmpty()) {
+                description.append(", ");
+            }
+            description.append(violation.getField()).append(": ").append(violation.getMessage());
+        }
+        return description.toString();
+    }
+
+    // Same rule as @NotBlank: null, or nothing left once trimmed
+    private static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<FieldViolationDTO> add(List<FieldViolationDTO> violations, String field, String message) {
+        List<FieldViolationDTO> list = violations == null ? new ArrayList<>(4) : violations;
+        list.add(new FieldViolationDTO(field, message));
+        return list;
+    }
+
+    private static ConstraintDescriptor<?> constraint(BeanDescriptor bean, String property, Class<? extends Annotation> type) {
+        PropertyDescriptor descriptor = bean.getConstraintsForProperty(property);
+        if (descriptor != null) {
+            for (ConstraintDescriptor<?> constraint : descriptor.getConstraintDescriptors()) {
+                if (type.isInstance(constraint.getAnnotation())) {
+                    return constraint;
+                }
+            }
+        }
+        throw new IllegalStateException("TransactionRequestDTO." + property + " is missing @" + type.getSimpleName());
+    }
+}
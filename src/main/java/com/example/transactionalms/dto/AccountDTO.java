@@ -14,4 +14,10 @@ import java.math.BigDecimal;
 public class AccountDTO {
     private String accountId;
     private BigDecimal balance;
+    /** Version of the account for conditional updates; taken from the ETag when the service sends one. */
+    private Long version;
+
+    public AccountDTO(String accountId, BigDecimal balance) {
+        this(accountId, balance, null);
+    }
 }
@@ -0,0 +1,15 @@
+package com.example.transactionalms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BalanceDeltaRequest {
+    /** Signed change: positive for deposits, negative for withdrawals. */
+    private BigDecimal delta;
+}
@@ -0,0 +1,18 @@
+package com.example.transactionalms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResultDTO {
+    private long index;
+    private String accountId;
+    private String status; // SUCCESS, REJECTED or FAILED
+    private String message;
+    private TransactionResponseDTO transaction;
+}
@@ -0,0 +1,13 @@
+package com.example.transactionalms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class FieldViolationDTO {
+    private String field;
+    private String message;
+}
@@ -0,0 +1,21 @@
+package com.example.transactionalms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionEvent {
+    private String transactionId;
+    private String accountId;
+    private String userId;
+    private String transactionType; // DEPOSIT or WITHDRAWAL
+    private BigDecimal amount;
+    private BigDecimal finalBalance;
+    private boolean success;
+    private long timestamp; // epoch millis
+}
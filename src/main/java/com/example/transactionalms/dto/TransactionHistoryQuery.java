@@ -0,0 +1,26 @@
+package com.example.transactionalms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionHistoryQuery {
+    private String accountId;
+    private String userId;
+    private String transactionType;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String cursor;
+    private int limit;
+    private List<String> fields;
+}
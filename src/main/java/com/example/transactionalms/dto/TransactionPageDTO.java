@@ -0,0 +1,18 @@
+package com.example.transactionalms.dto;
+
+import com.example.transactionalms.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionPageDTO {
+    private List<Transaction> items;
+    private String nextCursor; // null on the last page
+}
@@ -1,12 +1,11 @@
 package com.example.transactionalms.dto;
 
+import com.example.transactionalms.model.Money;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.math.BigDecimal;
-
 @Setter
 @Getter
 @AllArgsConstructor
@@ -15,8 +14,8 @@ public class TransactionResponseDTO {
     private String transactionId;
     private String accountId;
     private String transactionType;
-    private BigDecimal initialBalance;
-    private BigDecimal amount;
-    private BigDecimal finalBalance;
+    private Money initialBalance;
+    private Money amount;
+    private Money finalBalance;
     private String status;
 }
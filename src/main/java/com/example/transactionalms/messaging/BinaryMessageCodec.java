@@ -0,0 +1,202 @@
+package com.example.transactionalms.messaging;
+
+import com.example.transactionalms.dto.TransactionEvent;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hand-written binary encoding of {@link TransactionEvent}.
+ * <pre>
+ * version:u8 flags:u8 timestamp:i64 amount:decimal finalBalance:decimal
+ * transactionId:string accountId:string userId:string [transactionType:string]
+ * </pre>
+ * Strings and decimal magnitudes are length-prefixed with an unsigned varint; the well-known
+ * transaction types are folded into the flags byte.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    static final byte VERSION = 1;
+    private static final int SUCCESS = 0x01;
+    private static final int DEPOSIT = 0x02;
+    private static final int WITHDRAWAL = 0x04;
+    private static final int NULL_MARKER = 0;
+
+    @Override
+    public String contentType() {
+        return "application/vnd.transaction-event.v1+binary";
+    }
+
+    @Override
+    public byte[] encode(TransactionEvent event) {
+        Writer out = new Writer(96);
+        int flags = event.isSuccess() ? SUCCESS : 0;
+        if ("DEPOSIT".equals(event.getTransactionType())) {
+            flags |= DEPOSIT;
+        } else if ("WITHDRAWAL".equals(event.getTransactionType())) {
+            flags |= WITHDRAWAL;
+        }
+        out.writeByte(VERSION);
+        out.writeByte(flags);
+        out.writeLong(event.getTimestamp());
+        out.writeDecimal(event.getAmount());
+        out.writeDecimal(event.getFinalBalance());
+        out.writeString(event.getTransactionId());
+        out.writeString(event.getAccountId());
+        out.writeString(event.getUserId());
+        if ((flags & (DEPOSIT | WITHDRAWAL)) == 0) {
+            out.writeString(event.getTransactionType());
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public TransactionEvent decode(byte[] body) {
+        Reader in = new Reader(body);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported transaction event version: " + version);
+        }
+        int flags = in.readByte();
+        TransactionEvent event = new TransactionEvent();
+        event.setSuccess((flags & SUCCESS) != 0);
+        event.setTimestamp(in.readLong());
+        event.setAmount(in.readDecimal());
+        event.setFinalBalance(in.readDecimal());
+        event.setTransactionId(in.readString());
+        event.setAccountId(in.readString());
+        event.setUserId(in.readString());
+        if ((flags & DEPOSIT) != 0) {
+            event.setTransactionType("DEPOSIT");
+        } else if ((flags & WITHDRAWAL) != 0) {
+            event.setTransactionType("WITHDRAWAL");
+        } else {
+            event.setTransactionType(in.readString());
+        }
+        return event;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        // Length 0 means null, otherwise length - 1 bytes follow.
+        void writeBytes(byte[] bytes) {
+            if (bytes == null) {
+                writeVarint(NULL_MARKER);
+                return;
+            }
+            writeVarint(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeDecimal(BigDecimal value) {
+            if (value == null) {
+                writeBytes(null);
+                return;
+            }
+            writeBytes(value.unscaledValue().toByteArray());
+            writeVarint(value.scale() < 0 ? -value.scale() * 2 - 1 : value.scale() * 2);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            return buffer[position++] & 0xFF;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        int readVarint() {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readVarint();
+            if (length == NULL_MARKER) {
+                return null;
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length - 1);
+            position += length - 1;
+            return bytes;
+        }
+
+        String readString() {
+            byte[] bytes = readBytes();
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        BigDecimal readDecimal() {
+            byte[] unscaled = readBytes();
+            if (unscaled == null) {
+                return null;
+            }
+            int zigzag = readVarint();
+            int scale = (zigzag & 1) == 0 ? zigzag / 2 : -(zigzag + 1) / 2;
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.transactionalms.messaging;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Jackson based codec; the same {@link TransactionEvent} schema written as JSON, Smile or CBOR.
+ */
+public class JacksonMessageCodec implements MessageCodec {
+
+    private final String contentType;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    private JacksonMessageCodec(ObjectMapper mapper, String contentType) {
+        this.contentType = contentType;
+        this.writer = mapper.writerFor(TransactionEvent.class);
+        this.reader = mapper.readerFor(TransactionEvent.class);
+    }
+
+    public static JacksonMessageCodec json() {
+        return new JacksonMessageCodec(new ObjectMapper(), "application/json");
+    }
+
+    public static JacksonMessageCodec smile() {
+        return new JacksonMessageCodec(new ObjectMapper(new SmileFactory()), "application/x-jackson-smile");
+    }
+
+    public static JacksonMessageCodec cbor() {
+        return new JacksonMessageCodec(new ObjectMapper(new CBORFactory()), "application/cbor");
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public byte[] encode(TransactionEvent event) {
+        try {
+            return writer.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode transaction event", e);
+        }
+    }
+
+    @Override
+    public TransactionEvent decode(byte[] body) {
+        try {
+            return reader.readValue(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode transaction event", e);
+        }
+    }
+}
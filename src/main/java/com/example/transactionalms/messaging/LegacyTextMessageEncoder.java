@@ -0,0 +1,57 @@
+package com.example.transactionalms.messaging;
+
+import com.example.transactionalms.dto.MessageDto;
+import com.example.transactionalms.dto.TransactionEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Compatibility format that keeps sending the original {@link MessageDto} with the free-text {@code mensaje}.
+ * Encode-only: the message carries no transaction id, so it cannot be read back into an event. Body and
+ * properties are the ones {@code Jackson2JsonMessageConverter} produced, including the {@code __TypeId__}
+ * header consumers using that converter resolve the class from.
+ */
+public class LegacyTextMessageEncoder implements MessageEncoder {
+
+    private final ObjectWriter writer = new ObjectMapper().writerFor(MessageDto.class);
+
+    @Override
+    public String contentType() {
+        return "application/json";
+    }
+
+    @Override
+    public void describe(MessageProperties properties) {
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, MessageDto.class.getName());
+    }
+
+    @Override
+    public byte[] encode(TransactionEvent event) {
+        try {
+            return writer.writeValueAsBytes(toLegacyMessage(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode legacy message", e);
+        }
+    }
+
+    public static MessageDto toLegacyMessage(TransactionEvent event) {
+        MessageDto message = new MessageDto();
+        message.setIdEntidad(event.getAccountId());
+        message.setFecha(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimestamp()), ZoneId.systemDefault()).toString());
+        message.setMensaje("Se realizó una " + event.getTransactionType() + " en la cuenta " + event.getAccountId()
+                + " por el usuario " + event.getUserId() + " Monto de la transacción: " + event.getAmount()
+                + " monto final: " + event.getFinalBalance());
+        message.setRecurso("transacción");
+        message.setEstado(event.isSuccess());
+        return message;
+    }
+}
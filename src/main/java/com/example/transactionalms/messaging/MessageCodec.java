@@ -0,0 +1,8 @@
+package com.example.transactionalms.messaging;
+
+import com.example.transactionalms.dto.TransactionEvent;
+
+public interface MessageCodec extends MessageEncoder {
+
+    TransactionEvent decode(byte[] body);
+}
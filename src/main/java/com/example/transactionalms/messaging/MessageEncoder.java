@@ -0,0 +1,18 @@
+package com.example.transactionalms.messaging;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Wire format of the published {@link TransactionEvent}. Formats that can be read back implement {@link MessageCodec}.
+ */
+public interface MessageEncoder {
+
+    String contentType();
+
+    byte[] encode(TransactionEvent event);
+
+    /** Further properties the format's consumers rely on, beyond the content type. */
+    default void describe(MessageProperties properties) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.transactionalms.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running totals of one account for one day. Amounts are stored as Decimal128 so they can be
+ * maintained with {@code $inc}; {@code hourlyCounts} is keyed by the two-digit hour of the day.
+ */
+@Document(collection = "account_aggregates")
+@Data
+@NoArgsConstructor
+public class AccountAggregate {
+    @Id
+    private String id;
+    private String accountId;
+    @Indexed
+    private LocalDate day;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal depositTotal = BigDecimal.ZERO;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal withdrawalTotal = BigDecimal.ZERO;
+    private long depositCount;
+    private long withdrawalCount;
+    private Map<String, Long> hourlyCounts = new HashMap<>();
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal lastBalance;
+    private LocalDateTime lastTransactionAt;
+    // the rebuild that wrote the document; the day's documents it did not write are removed by it
+    private String rebuildId;
+
+    public AccountAggregate(String accountId, LocalDate day) {
+        this.id = idOf(accountId, day);
+        this.accountId = accountId;
+        this.day = day;
+    }
+
+    public static String idOf(String accountId, LocalDate day) {
+        return accountId + "|" + day;
+    }
+}
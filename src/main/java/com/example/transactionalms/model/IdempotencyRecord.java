@@ -0,0 +1,31 @@
+package com.example.transactionalms.model;
+
+import com.example.transactionalms.dto.TransactionResponseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response stored for an {@code Idempotency-Key}; Mongo removes the document once {@code expiresAt} has passed.
+ * Until there is a response, {@code transactionId} is the id reserved for the transaction of the request,
+ * whose status then tells where the request stands.
+ */
+@Document(collection = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    @Id
+    private String key;
+    private String fingerprint;
+    private String transactionId;
+    private TransactionResponseDTO response;
+    private LocalDateTime createdAt;
+    @Indexed(expireAfter = "0s")
+    private LocalDateTime expiresAt;
+}
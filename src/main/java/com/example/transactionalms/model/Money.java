@@ -0,0 +1,99 @@
+package com.example.transactionalms.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+
+/**
+ * An amount of money held as a {@code long} count of minor units (cents) at the fixed currency scale
+ * {@link #SCALE}. Arithmetic is exact and fails with an {@link ArithmeticException} on overflow instead of
+ * wrapping. Serialized to JSON as a plain number and stored in Mongo as Decimal128 (see
+ * {@code MongoConfig}), so documents and API responses look the same as with {@link BigDecimal}.
+ */
+public final class Money implements Comparable<Money> {
+
+    /** Decimal places of the account currency. */
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long FACTOR = 100;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Exact conversion; amounts with more than {@link #SCALE} decimals or outside the {@code long} range are
+     * rejected with an {@link IllegalArgumentException} rather than rounded.
+     */
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        try {
+            return ofMinor(amount.scaleByPowerOfTen(SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid amount " + amount.toPlainString() + ": at most "
+                    + SCALE + " decimals and " + Long.MAX_VALUE / FACTOR + " units are supported");
+        }
+    }
+
+    public static Money of(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public Money add(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money subtract(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /** Plain decimal notation, e.g. {@code -12.05}. */
+    @Override
+    public String toString() {
+        long units = minorUnits / FACTOR;
+        long cents = Math.abs(minorUnits % FACTOR);
+        String sign = minorUnits < 0 && units == 0 ? "-" : "";
+        return sign + units + (cents < 10 ? ".0" : ".") + cents;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.transactionalms.model;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "outbox")
+@Data
+@NoArgsConstructor
+public class OutboxEvent {
+    @Id
+    private String id;
+    private TransactionEvent payload;
+    private int attempts;
+    @Indexed
+    private LocalDateTime createdAt;
+    @Indexed
+    private LocalDateTime nextAttemptAt;
+    // relay pass that holds the event until nextAttemptAt
+    private String lease;
+    private String lastError;
+
+    // keyed by the transaction: one event per transaction, and the reconciler can tell whether it is queued
+    public OutboxEvent(TransactionEvent payload) {
+        this.id = payload.getTransactionId();
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+}
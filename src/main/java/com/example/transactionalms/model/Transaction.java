@@ -1,23 +1,56 @@
 package com.example.transactionalms.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Document(collection = "transactions")
+// the accountId prefix also serves existsByAccountId
+@CompoundIndex(name = "account_timestamp_id", def = "{'accountId': 1, 'timestamp': 1, '_id': 1}")
+@CompoundIndex(name = "user_timestamp_id", def = "{'userId': 1, 'timestamp': 1, '_id': 1}")
+// oldest-first scans of the archiver and the limits warm-up
+@CompoundIndex(name = "timestamp_id", def = "{'timestamp': 1, '_id': 1}")
+@CompoundIndex(name = "pending_status_updated", def = "{'status': 1, 'statusUpdatedAt': 1}",
+        partialFilter = "{'status': 'PENDING'}")
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Data
 public class Transaction {
     @Id
     private String id;
     private String accountId;
     private String transactionType; // DEPOSIT or WITHDRAWAL
-    private BigDecimal initialBalance;
-    private BigDecimal amount;
-    private BigDecimal finalBalance;
+    private Money initialBalance;
+    private Money amount;
+    private Money finalBalance;
     private String userId;
     private LocalDateTime timestamp;
+    private TransactionStatus status;
+    private LocalDateTime statusUpdatedAt;
+    private String statusReason;
+    @JsonIgnore
+    private Integer reconcileAttempts;
+    // false on insert and set once the balance change is about to be sent; absent on older records
+    @JsonIgnore
+    private Boolean balanceRequested;
+    // account version the balance change was computed against, when the accounts service reports one
+    @JsonIgnore
+    private Long accountVersion;
+    // set on a PENDING transaction whose balance change went through but whose APPLIED write failed
+    @JsonIgnore
+    private Boolean balanceApplied;
+    // written with a final status that owes an event; cleared once the outbox relay has published it
+    @JsonIgnore
+    @Indexed(sparse = true)
+    private LocalDateTime eventCheckAt;
+    @Version
+    @JsonIgnore
+    private Long version;
 
 }
@@ -0,0 +1,41 @@
+package com.example.transactionalms.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Archived transactions of one account for one day in {@code (timestamp, _id)} order, split over buckets
+ * numbered by {@code seq}. The collection is created compressed and indexed by the
+ * {@code TransactionArchiver}, not by index auto-creation, so its storage options can be set first.
+ */
+@Document(collection = "transactions_archive")
+@Data
+@NoArgsConstructor
+public class TransactionBucket {
+    @Id
+    private String id;
+    private String accountId;
+    private LocalDate day;
+    private int seq;
+    private int count;
+    private LocalDateTime firstAt;
+    private LocalDateTime lastAt;
+    private List<Transaction> transactions;
+
+    public TransactionBucket(String accountId, LocalDate day, int seq, List<Transaction> transactions) {
+        this.id = accountId + '|' + day + '|' + seq;
+        this.accountId = accountId;
+        this.day = day;
+        this.seq = seq;
+        this.count = transactions.size();
+        this.firstAt = transactions.get(0).getTimestamp();
+        this.lastAt = transactions.get(transactions.size() - 1).getTimestamp();
+        this.transactions = transactions;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.transactionalms.model;
+
+/**
+ * Where a transaction stands with respect to the account balance. A transaction is saved PENDING and
+ * moves to APPLIED once the accounts service took the balance change, or to FAILED when it was
+ * rejected. COMPENSATED is set by the reconciler when it gives up on a PENDING transaction whose balance
+ * change it found had not gone through, and MANUAL_REVIEW when it cannot tell whether it did.
+ * Documents written before the lifecycle existed have no status and count as applied.
+ */
+public enum TransactionStatus {
+    PENDING,
+    APPLIED,
+    FAILED,
+    COMPENSATED,
+    MANUAL_REVIEW
+}
@@ -0,0 +1,9 @@
+package com.example.transactionalms.repository;
+
+import com.example.transactionalms.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface IdempotencyRepository extends ReactiveMongoRepository<IdempotencyRecord, String> {
+    Mono<Long> deleteByKeyAndTransactionId(String key, String transactionId);
+}
@@ -0,0 +1,9 @@
+package com.example.transactionalms.repository;
+
+import com.example.transactionalms.model.OutboxEvent;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface OutboxRepository extends ReactiveMongoRepository<OutboxEvent, String> {
+    Mono<OutboxEvent> findFirstByOrderByCreatedAtAsc();
+}
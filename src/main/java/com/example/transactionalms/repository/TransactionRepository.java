@@ -1,15 +1,46 @@
 package com.example.transactionalms.repository;
 
 import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
-import org.springframework.data.mongodb.repository.Tailable;
+import org.springframework.data.mongodb.repository.Update;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+
 public interface TransactionRepository extends ReactiveMongoRepository<Transaction, String> {
-    @Tailable
-    @Query("{ 'accountId': ?0 }")
-    Flux<Transaction> findWithTailableCursorByAccountId(String accountId);
     Mono<Boolean> existsByAccountId(String accountId);
-}
\ No newline at end of file
+
+    Flux<Transaction> findByStatusAndStatusUpdatedAtLessThanOrderByStatusUpdatedAtAsc(
+            TransactionStatus status, LocalDateTime cutoff, Pageable pageable);
+
+    Mono<Long> countByStatusAndStatusUpdatedAtLessThan(TransactionStatus status, LocalDateTime cutoff);
+
+    Mono<Transaction> findFirstByStatusOrderByTimestampAsc(TransactionStatus status);
+
+    @Query("{'_id': {'$in': ?0}, 'status': 'PENDING'}")
+    @Update("{'$set': {'balanceApplied': true}}")
+    Mono<Long> markBalanceApplied(Collection<String> ids);
+
+    @Query("{'_id': {'$in': ?0}, 'status': 'PENDING'}")
+    @Update("{'$set': {'balanceRequested': true}}")
+    Mono<Long> markBalanceRequested(Collection<String> ids);
+
+    @Query("{'_id': {'$in': ?0}, 'status': 'PENDING'}")
+    @Update("{'$set': {'status': 'FAILED', 'statusReason': ?1, 'statusUpdatedAt': ?2, 'eventCheckAt': ?2}}")
+    Mono<Long> markFailed(Collection<String> ids, String reason, LocalDateTime updatedAt);
+
+    Flux<Transaction> findByEventCheckAtLessThanOrderByEventCheckAtAsc(LocalDateTime cutoff, Pageable pageable);
+
+    @Query("{'_id': ?0}")
+    @Update("{'$set': {'eventCheckAt': ?1}}")
+    Mono<Long> deferEventCheck(String id, LocalDateTime next);
+
+    @Query("{'_id': {'$in': ?0}}")
+    @Update("{'$unset': {'eventCheckAt': ''}}")
+    Mono<Long> clearEventCheck(Collection<String> ids);
+}
@@ -0,0 +1,222 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.AccountAggregate;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains {@link AccountAggregate} documents incrementally from the transaction flow, so that
+ * "withdrawn today" or "transactions in the last hour" are a single lookup by id instead of a scan
+ * of {@code transactions}. {@link #rebuild} recomputes them from history one day per chunk.
+ */
+@Slf4j
+@Service
+public class AccountAggregateService {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int rebuildParallelism;
+
+    public AccountAggregateService(
+            ReactiveMongoTemplate mongoTemplate,
+            @Value("${aggregates.rebuild.parallelism:4}") int rebuildParallelism) {
+        this.mongoTemplate = mongoTemplate;
+        this.rebuildParallelism = rebuildParallelism;
+    }
+
+    /**
+     * Adds the transactions to their day buckets with one atomic upsert per account and day. Failures
+     * are only logged: the transaction itself has already been applied and {@link #rebuild} repairs the totals.
+     * The upsert is a pipeline update so {@code lastBalance} only moves when the transaction is not older than
+     * {@code lastTransactionAt}: records of one account and day can land out of order (the reconciler
+     * settles transactions minutes later), and the newest balance must win.
+     */
+    public Mono<Void> record(List<Transaction> transactions) {
+        Map<String, List<Transaction>> buckets = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            LocalDate day = transaction.getTimestamp().toLocalDate();
+            buckets.computeIfAbsent(AccountAggregate.idOf(transaction.getAccountId(), day), k -> new ArrayList<>())
+                    .add(transaction);
+        }
+        return Flux.fromIterable(buckets.entrySet())
+                .concatMap(bucket -> mongoTemplate.upsert(
+                        Query.query(Criteria.where("_id").is(bucket.getKey())),
+                        incrementFor(bucket.getValue()),
+                        AccountAggregate.class))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Could not update account aggregates: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<Void> record(Transaction transaction) {
+        return record(List.of(transaction));
+    }
+
+    /** Totals of the account for the day; an account without activity that day gets an empty aggregate. */
+    public Mono<AccountAggregate> find(String accountId, LocalDate day) {
+        return mongoTemplate.findById(AccountAggregate.idOf(accountId, day), AccountAggregate.class)
+                .defaultIfEmpty(new AccountAggregate(accountId, day));
+    }
+
+    /**
+     * Recomputes the aggregates of every day in {@code [from, to]} from {@code transactions}, replacing
+     * the stored documents and removing those of accounts without activity left that day. Days are
+     * independent chunks processed {@code rebuildParallelism} at a time. Only closed days can be rebuilt:
+     * a {@link #record} landing between the aggregation and the replace of an open day would be lost.
+     * Emits the number of aggregate documents written.
+     */
+    public Mono<Long> rebuild(LocalDate from, LocalDate to) {
+        if (!to.isBefore(LocalDate.now(ZONE))) {
+            return Mono.error(new IllegalArgumentException("Solo se pueden reconstruir días cerrados (anteriores a hoy)."));
+        }
+        return Flux.fromStream(from.datesUntil(to.plusDays(1)))
+                .flatMap(this::rebuildDay, rebuildParallelism)
+                .reduce(0L, Long::sum);
+    }
+
+    Mono<Long> rebuildDay(LocalDate day) {
+        String rebuildId = new ObjectId().toHexString();
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("timestamp")
+                        .gte(day.atStartOfDay()).lt(day.plusDays(1).atStartOfDay())
+                        .and("status").nin(TransactionStatus.PENDING.name(), TransactionStatus.FAILED.name(),
+                                TransactionStatus.COMPENSATED.name(), TransactionStatus.MANUAL_REVIEW.name())),
+                Aggregation.sort(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("_id"))),
+                Aggregation.project("accountId", "transactionType", "timestamp")
+                        .and(ConvertOperators.valueOf("amount").convertToDecimal()).as("amount")
+                        .and(ConvertOperators.valueOf("finalBalance").convertToDecimal()).as("finalBalance")
+                        .and(DateOperators.Hour.hourOf("timestamp").withTimezone(DateOperators.Timezone.fromZone(ZONE))).as("hour"),
+                Aggregation.group("accountId", "transactionType", "hour")
+                        .sum("amount").as("total")
+                        .count().as("count")
+                        .last("finalBalance").as("lastBalance")
+                        .last("timestamp").as("lastAt"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        return mongoTemplate.aggregate(aggregation, "transactions", Document.class)
+                .collect(LinkedHashMap<String, AccountAggregate>::new, (aggregates, row) -> {
+                    Document key = row.get("_id", Document.class);
+                    String accountId = key.getString("accountId");
+                    accumulate(aggregates.computeIfAbsent(accountId, id -> {
+                        AccountAggregate aggregate = new AccountAggregate(id, day);
+                        aggregate.setRebuildId(rebuildId);
+                        return aggregate;
+                    }), key, row);
+                })
+                .flatMap(aggregates -> Flux.fromIterable(aggregates.values())
+                        .concatMap(mongoTemplate::save)
+                        .count()
+                        .flatMap(count -> mongoTemplate.remove(Query.query(Criteria.where("day").is(day)
+                                        .and("rebuildId").ne(rebuildId)), AccountAggregate.class)
+                                .thenReturn(count)))
+                .doOnNext(count -> log.info("Rebuilt {} account aggregates for {}", count, day));
+    }
+
+    private static void accumulate(AccountAggregate aggregate, Document key, Document row) {
+        BigDecimal total = decimal(row.get("total"));
+        long count = ((Number) row.get("count")).longValue();
+        if ("DEPOSIT".equalsIgnoreCase(key.getString("transactionType"))) {
+            aggregate.setDepositTotal(aggregate.getDepositTotal().add(total));
+            aggregate.setDepositCount(aggregate.getDepositCount() + count);
+        } else {
+            aggregate.setWithdrawalTotal(aggregate.getWithdrawalTotal().add(total));
+            aggregate.setWithdrawalCount(aggregate.getWithdrawalCount() + count);
+        }
+        aggregate.getHourlyCounts().merge(hourKey(((Number) key.get("hour")).intValue()), count, Long::sum);
+
+        LocalDateTime lastAt = LocalDateTime.ofInstant(row.getDate("lastAt").toInstant(), ZONE);
+        if (aggregate.getLastTransactionAt() == null || lastAt.isAfter(aggregate.getLastTransactionAt())) {
+            aggregate.setLastTransactionAt(lastAt);
+            aggregate.setLastBalance(decimal(row.get("lastBalance")));
+        }
+    }
+
+    private static AggregationUpdate incrementFor(List<Transaction> transactions) {
+        Transaction first = transactions.get(0);
+        Money deposits = Money.ZERO;
+        Money withdrawals = Money.ZERO;
+        long depositCount = 0;
+        long withdrawalCount = 0;
+        Map<String, Long> hourly = new LinkedHashMap<>();
+        Transaction last = first;
+        for (Transaction transaction : transactions) {
+            if ("DEPOSIT".equalsIgnoreCase(transaction.getTransactionType())) {
+                deposits = deposits.add(transaction.getAmount());
+                depositCount++;
+            } else {
+                withdrawals = withdrawals.add(transaction.getAmount());
+                withdrawalCount++;
+            }
+            hourly.merge(hourKey(transaction.getTimestamp().getHour()), 1L, Long::sum);
+            if (!transaction.getTimestamp().isBefore(last.getTimestamp())) {
+                last = transaction;
+            }
+        }
+
+        // the values bypass the entity mapping, so dates are converted as Spring Data stores them
+        Date lastAt = Date.from(last.getTimestamp().atZone(ZONE).toInstant());
+        Decimal128 zero = new Decimal128(BigDecimal.ZERO);
+        Document set = new Document()
+                .append("accountId", new Document("$ifNull", List.of("$accountId", first.getAccountId())))
+                .append("day", new Document("$ifNull", List.of("$day",
+                        Date.from(first.getTimestamp().toLocalDate().atStartOfDay(ZONE).toInstant()))))
+                .append("depositTotal", plus("depositTotal", zero, new Decimal128(deposits.toBigDecimal())))
+                .append("withdrawalTotal", plus("withdrawalTotal", zero, new Decimal128(withdrawals.toBigDecimal())))
+                .append("depositCount", plus("depositCount", 0L, depositCount))
+                .append("withdrawalCount", plus("withdrawalCount", 0L, withdrawalCount))
+                // a missing lastTransactionAt sorts below any date
+                .append("lastBalance", new Document("$cond", List.of(
+                        new Document("$gte", List.of(lastAt, "$lastTransactionAt")),
+                        new Decimal128(last.getFinalBalance().toBigDecimal()),
+                        "$lastBalance")))
+                .append("lastTransactionAt", new Document("$max", List.of("$lastTransactionAt", lastAt)));
+        hourly.forEach((hour, count) -> set.append("hourlyCounts." + hour, plus("hourlyCounts." + hour, 0L, count)));
+        return AggregationUpdate.from(List.of(context -> new Document("$set", set)));
+    }
+
+    private static Document plus(String field, Object zero, Object increment) {
+        return new Document("$add", List.of(new Document("$ifNull", List.of("$" + field, zero)), increment));
+    }
+
+    private static String hourKey(int hour) {
+        return hour < 10 ? "0" + hour : String.valueOf(hour);
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+}
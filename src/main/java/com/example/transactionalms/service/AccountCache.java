@@ -0,0 +1,69 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.AccountDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * In-process cache of the accounts-service lookups, bounded by size and TTL (W-TinyLFU eviction).
+ * Entries are written through with the balance we computed after a successful balance update and
+ * invalidated whenever an operation on the account fails.
+ */
+@Component
+public class AccountCache {
+
+    private final boolean enabled;
+    private final Cache<String, AccountDTO> cache;
+
+    public AccountCache(
+            @Value("${accounts.cache.enabled:true}") boolean enabled,
+            @Value("${accounts.cache.max-size:10000}") long maxSize,
+            @Value("${accounts.cache.ttl:30s}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "accounts");
+        }
+    }
+
+    public Mono<AccountDTO> get(String accountId, Function<String, Mono<AccountDTO>> loader) {
+        if (!enabled) {
+            return loader.apply(accountId);
+        }
+        AccountDTO cached = cache.getIfPresent(accountId);
+        if (cached != null) {
+            return Mono.just(copy(cached));
+        }
+        return loader.apply(accountId)
+                .doOnNext(account -> cache.put(accountId, copy(account)));
+    }
+
+    public void update(AccountDTO account) {
+        if (enabled) {
+            cache.put(account.getAccountId(), copy(account));
+        }
+    }
+
+    public void invalidate(String accountId) {
+        if (enabled) {
+            cache.invalidate(accountId);
+        }
+    }
+
+    private static AccountDTO copy(AccountDTO account) {
+        return new AccountDTO(account.getAccountId(), account.getBalance(), account.getVersion());
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.transactionalms.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the operations of a single account one after another without blocking any thread.
+ * Accounts are hashed onto a fixed number of stripes; each stripe is a queue of pending
+ * {@link Mono} suppliers that is drained one at a time, so different stripes progress in parallel.
+ */
+@Component
+public class AccountSequencer {
+
+    private final Stripe[] stripes;
+
+    public AccountSequencer(
+            @Value("${transactions.sequencer.stripes:64}") int stripeCount,
+            MeterRegistry meterRegistry) {
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            String stripe = String.valueOf(i);
+            Timer waitTimer = Timer.builder("transaction.sequencer.wait")
+                    .description("Time an operation waits for its account stripe")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+            stripes[i] = new Stripe(waitTimer);
+            Gauge.builder("transaction.sequencer.queue.depth", stripes[i], s -> s.depth.get())
+                    .description("Operations queued on the account stripe")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> Mono<T> submit(String accountId, Supplier<Mono<T>> work) {
+        return Mono.create(sink -> {
+            Task<T> task = new Task<>(work, sink);
+            sink.onCancel(task::cancel);
+            stripeFor(accountId).enqueue(task);
+        });
+    }
+
+    private Stripe stripeFor(String accountId) {
+        int hash = accountId == null ? 0 : accountId.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private static final class Stripe {
+        private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Timer waitTimer;
+        private volatile boolean busy;
+
+        private Stripe(Timer waitTimer) {
+            this.waitTimer = waitTimer;
+        }
+
+        void enqueue(Task<?> task) {
+            depth.incrementAndGet();
+            queue.offer(task);
+            drain();
+        }
+
+        void release() {
+            busy = false;
+            drain();
+        }
+
+        // Trampolined drain loop: tasks that complete synchronously re-enter here
+        // without growing the stack.
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                if (!busy) {
+                    Task<?> task = queue.poll();
+                    if (task != null) {
+                        depth.decrementAndGet();
+                        busy = true;
+                        waitTimer.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+                        task.start(this::release);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Task<T> {
+        private final Supplier<Mono<T>> work;
+        private final MonoSink<T> sink;
+        private final long enqueuedAt = System.nanoTime();
+        private volatile boolean cancelled;
+        private volatile Disposable running;
+
+        private Task(Supplier<Mono<T>> work, MonoSink<T> sink) {
+            this.work = work;
+            this.sink = sink;
+        }
+
+        void start(Runnable release) {
+            if (cancelled) {
+                release.run();
+                return;
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable releaseOnce = () -> {
+                if (released.compareAndSet(false, true)) {
+                    release.run();
+                }
+            };
+            try {
+                running = work.get()
+                        .doFinally(signal -> releaseOnce.run())
+                        .subscribe(sink::success, sink::error, sink::success);
+            } catch (RuntimeException e) {
+                sink.error(e);
+                releaseOnce.run();
+                return;
+            }
+            if (cancelled) {
+                running.dispose();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Disposable current = running;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.AccountsClientProperties;
+import com.example.transactionalms.dto.AccountDTO;
+import com.example.transactionalms.dto.BalanceDeltaRequest;
+import com.example.transactionalms.dto.UpdateBalanceRequest;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Client of the accounts service. Every call goes through a concurrency bulkhead and a circuit breaker,
+ * so a slow accounts service sheds load here instead of piling up pending requests; the account GET,
+ * being idempotent, is also retried with jittered backoff. Balance changes are sent either as the absolute
+ * new balance or as a version-conditioned delta, see {@link #applyBalanceChange}. Pool sizing and timeouts live on the
+ * {@code accountsWebClient} connector.
+ */
+@Slf4j
+@Component
+public class AccountsClient {
+
+    static final String NAME = "accounts";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final RetryBackoffSpec retry;
+    private final MeterRegistry meterRegistry;
+    private final Counter retries;
+    private final Counter timeouts;
+    private final Counter conflicts;
+    private final AccountsClientProperties.BalanceUpdateMode balanceUpdateMode;
+    private final int conflictRetries;
+    private final AccountsClientProperties.Retry retryProperties;
+
+    public AccountsClient(
+            @Qualifier("accountsWebClient") WebClient webClient,
+            AccountsClientProperties properties,
+            MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.retries = Counter.builder("accounts.client.retries")
+                .description("Retried account lookups")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("accounts.client.timeouts")
+                .description("Calls that hit the connect, response or pool-acquire timeout")
+                .register(meterRegistry);
+        this.conflicts = Counter.builder("accounts.client.balance.conflicts")
+                .description("Delta updates rejected because the account version changed")
+                .register(meterRegistry);
+        this.balanceUpdateMode = properties.getBalanceUpdateMode();
+        this.conflictRetries = properties.getConflictRetries();
+
+        AccountsClientProperties.CircuitBreaker breaker = properties.getCircuitBreaker();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(breaker.getFailureRateThreshold())
+                .slowCallRateThreshold(breaker.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(breaker.getSlowCallDurationThreshold())
+                .slidingWindowSize(breaker.getSlidingWindowSize())
+                .minimumNumberOfCalls(breaker.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(breaker.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(breaker.getPermittedCallsInHalfOpenState())
+                .recordException(AccountsClient::isRemoteFailure)
+                .build());
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(NAME);
+
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getBulkhead().getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getBulkhead().getMaxWaitDuration())
+                .build());
+        this.bulkhead = bulkheadRegistry.bulkhead(NAME);
+
+        this.retryProperties = properties.getRetry();
+        this.retry = Retry.backoff(retryProperties.getMaxAttempts(), retryProperties.getMinBackoff())
+                .maxBackoff(retryProperties.getMaxBackoff())
+                .jitter(retryProperties.getJitter())
+                .filter(AccountsClient::isRetryable)
+                .doBeforeRetry(signal -> {
+                    retries.increment();
+                    log.warn("Retrying account lookup after: {}", signal.failure().toString());
+                })
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    public Mono<AccountDTO> getAccount(String accountId) {
+        return guarded("get-account", webClient.get()
+                .uri("/{id}", accountId)
+                .retrieve()
+                .toEntity(AccountDTO.class)
+                .mapNotNull(AccountsClient::withVersion))
+                .retryWhen(retry);
+    }
+
+    /**
+     * Moves the balance of {@code account} by {@code delta} using the configured protocol and returns the
+     * account as it is afterwards. In DELTA mode a version conflict refetches the account and tries again;
+     * a withdrawal that no longer fits the fresh balance fails with "Insufficient balance".
+     * {@code operationId}, when given, goes out as the {@code Idempotency-Key} so a retried change
+     * (see {@link TransactionReconciler}) can be recognized by the accounts service.
+     */
+    public Mono<AccountDTO> applyBalanceChange(AccountDTO account, BigDecimal delta, String operationId) {
+        if (balanceUpdateMode == AccountsClientProperties.BalanceUpdateMode.ABSOLUTE) {
+            BigDecimal newBalance = account.getBalance().add(delta);
+            return updateBalance(account.getAccountId(), newBalance, operationId)
+                    .thenReturn(new AccountDTO(account.getAccountId(), newBalance));
+        }
+        return applyDelta(account, delta, operationId, 0);
+    }
+
+    /** Whether balance changes are conditioned on the account version, so a stale one cannot land. */
+    boolean conditionalUpdates() {
+        return balanceUpdateMode == AccountsClientProperties.BalanceUpdateMode.DELTA;
+    }
+
+    private Mono<AccountDTO> applyDelta(AccountDTO account, BigDecimal delta, String operationId, int attempt) {
+        if (account.getBalance().add(delta).signum() < 0) {
+            return Mono.error(new IllegalArgumentException("Insufficient balance"));
+        }
+        return guarded("apply-delta", webClient.post()
+                .uri("/{id}/balance/delta", account.getAccountId())
+                .headers(headers -> {
+                    if (account.getVersion() != null) {
+                        headers.setIfMatch("\"" + account.getVersion() + "\"");
+                    }
+                    if (operationId != null) {
+                        headers.set(IDEMPOTENCY_KEY, operationId);
+                    }
+                })
+                .bodyValue(new BalanceDeltaRequest(delta))
+                .retrieve()
+                .onStatus(status -> status.value() == 409 || status.value() == 412,
+                        response -> response.releaseBody().then(Mono.error(
+                                new BalanceConflictException("Account " + account.getAccountId() + " changed concurrently"))))
+                .toEntity(AccountDTO.class)
+                .mapNotNull(AccountsClient::withVersion))
+                .onErrorResume(BalanceConflictException.class, e -> {
+                    conflicts.increment();
+                    if (attempt >= conflictRetries) {
+                        return Mono.error(e);
+                    }
+                    // jittered pause so competing writers do not keep colliding in lockstep
+                    return Mono.delay(conflictBackoff(attempt))
+                            .then(getAccount(account.getAccountId()))
+                            .flatMap(fresh -> applyDelta(fresh, delta, operationId, attempt + 1));
+                });
+    }
+
+    public Mono<Void> updateBalance(String accountId, BigDecimal balance) {
+        return updateBalance(accountId, balance, null);
+    }
+
+    private Mono<Void> updateBalance(String accountId, BigDecimal balance, String operationId) {
+        return guarded("update-balance", webClient.post()
+                .uri("/{id}/balance", accountId)
+                .headers(headers -> {
+                    if (operationId != null) {
+                        headers.set(IDEMPOTENCY_KEY, operationId);
+                    }
+                })
+                .bodyValue(new UpdateBalanceRequest(balance))
+                .retrieve()
+                .bodyToMono(Void.class));
+    }
+
+    private Duration conflictBackoff(int attempt) {
+        long base = Math.min(retryProperties.getMaxBackoff().toMillis(), retryProperties.getMinBackoff().toMillis() << Math.min(attempt, 16));
+        double spread = base * retryProperties.getJitter();
+        return Duration.ofMillis(Math.max(0, (long) (base - spread + ThreadLocalRandom.current().nextDouble() * 2 * spread)));
+    }
+
+    private static AccountDTO withVersion(ResponseEntity<AccountDTO> entity) {
+        AccountDTO account = entity.getBody();
+        String etag = entity.getHeaders().getETag();
+        if (account != null && account.getVersion() == null && etag != null) {
+            String value = etag.startsWith("W/") ? etag.substring(2) : etag;
+            try {
+                account.setVersion(Long.parseLong(value.replace("\"", "")));
+            } catch (NumberFormatException ignored) {
+                // not a numeric version; the update is sent unconditioned
+            }
+        }
+        return account;
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private <T> Mono<T> guarded(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .transformDeferred(BulkheadOperator.of(bulkhead))
+                    .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                    .doOnSuccess(value -> stop(sample, operation, "success"))
+                    .doOnError(e -> {
+                        if (isTimeout(e)) {
+                            timeouts.increment();
+                        }
+                        stop(sample, operation, outcome(e));
+                    });
+        });
+    }
+
+    private void stop(Timer.Sample sample, String operation, String outcome) {
+        sample.stop(Timer.builder("accounts.client.requests")
+                .description("Calls to the accounts service by operation and outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private static String outcome(Throwable e) {
+        if (e instanceof CallNotPermittedException) {
+            return "circuit-open";
+        }
+        if (e instanceof BulkheadFullException) {
+            return "bulkhead-full";
+        }
+        if (isTimeout(e)) {
+            return "timeout";
+        }
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is4xxClientError() ? "client-error" : "server-error";
+        }
+        return "io-error";
+    }
+
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+            return false;
+        }
+        return isRemoteFailure(e);
+    }
+
+    /**
+     * Failures that say something about the accounts service; 4xx answers and local rejections do not.
+     * These are also the failures after which a balance change may or may not have been applied.
+     */
+    static boolean isRemoteFailure(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        return e instanceof WebClientRequestException || isTimeout(e);
+    }
+
+    static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ReadTimeoutException || cause instanceof ConnectTimeoutException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
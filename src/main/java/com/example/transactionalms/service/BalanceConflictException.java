@@ -0,0 +1,9 @@
+package com.example.transactionalms.service;
+
+/** The accounts service rejected a conditional balance update because the account changed in between. */
+public class BalanceConflictException extends RuntimeException {
+
+    public BalanceConflictException(String message) {
+        super(message);
+    }
+}
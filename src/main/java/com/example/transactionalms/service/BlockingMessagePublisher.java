@@ -0,0 +1,84 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.messaging.MessageEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thread-per-event publisher: each event is sent and its publisher confirm awaited on the calling thread,
+ * with that work moved to the {@code amqpScheduler}. Meant for the Java 21 mode, where the scheduler runs
+ * on virtual threads and a waiting send costs no platform thread; concurrency is then limited by the
+ * publisher channel pool. Selected with {@code messaging.publisher.mode=blocking}.
+ */
+@Service
+@ConditionalOnProperty(name = "messaging.publisher.mode", havingValue = "blocking")
+public class BlockingMessagePublisher implements TransactionEventPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageEncoder encoder;
+    private final Scheduler scheduler;
+    private final String queueName;
+    private final Duration confirmTimeout;
+    private final Counter acks;
+    private final Counter nacks;
+
+    public BlockingMessagePublisher(
+            @Qualifier("publisherRabbitTemplate") RabbitTemplate rabbitTemplate,
+            MessageEncoder encoder,
+            @Qualifier("amqpScheduler") Scheduler scheduler,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.queue.name}") String queueName,
+            @Value("${messaging.publisher.confirm-timeout:5s}") Duration confirmTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.encoder = encoder;
+        this.scheduler = scheduler;
+        this.queueName = queueName;
+        this.confirmTimeout = confirmTimeout;
+        this.acks = Counter.builder("amqp.publisher.confirms").tag("result", "ack").register(meterRegistry);
+        this.nacks = Counter.builder("amqp.publisher.confirms").tag("result", "nack").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> publish(TransactionEvent event) {
+        return Mono.<Void>fromRunnable(() -> send(event)).subscribeOn(scheduler);
+    }
+
+    private void send(TransactionEvent event) {
+        CorrelationData correlation = new CorrelationData(event.getTransactionId());
+        rabbitTemplate.send("", queueName, ReactiveMessagePublisher.toMessage(encoder, event), correlation);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while waiting for the publisher confirm", e);
+        } catch (ExecutionException e) {
+            nacks.increment();
+            throw new AmqpException("Publisher confirm failed", e.getCause());
+        } catch (TimeoutException e) {
+            // counted like the reactive publisher does, so both modes report the same failures
+            nacks.increment();
+            throw new AmqpException("No publisher confirm within " + confirmTimeout, e);
+        }
+        if (!confirm.isAck()) {
+            nacks.increment();
+            throw new AmqpException("Broker nack: " + confirm.getReason());
+        }
+        acks.increment();
+    }
+}
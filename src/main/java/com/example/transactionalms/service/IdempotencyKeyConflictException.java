@@ -0,0 +1,22 @@
+package com.example.transactionalms.service;
+
+import lombok.Getter;
+
+/**
+ * The {@code Idempotency-Key} was used for a different request, its first request has not finished yet,
+ * or that request failed without it being known whether the balance moved.
+ */
+@Getter
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public static final String REUSED = "IDEMPOTENCY_KEY_REUSED";
+    public static final String IN_PROGRESS = "IDEMPOTENCY_KEY_IN_PROGRESS";
+    public static final String OUTCOME_UNKNOWN = "IDEMPOTENCY_KEY_OUTCOME_UNKNOWN";
+
+    private final String code;
+
+    public IdempotencyKeyConflictException(String code, String message) {
+        super(message);
+        this.code = code;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.dto.TransactionResponseDTO;
+import com.example.transactionalms.model.IdempotencyRecord;
+import com.example.transactionalms.model.TransactionStatus;
+import com.example.transactionalms.repository.IdempotencyRepository;
+import com.example.transactionalms.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Replays the stored response for a repeated {@code Idempotency-Key} instead of moving the money again.
+ * Lookups go through a small in-process cache before the TTL-indexed {@code idempotency_keys} collection,
+ * and duplicates that arrive while the first request is still running share its {@link Mono}.
+ * A key is claimed together with the id its transaction will be saved under, and kept for {@code ttl}.
+ * A request that fails without a {@link RecordSettledException} saved nothing or had its transaction marked
+ * FAILED, so it releases the key and the client may retry with it. Otherwise the transaction's status
+ * decides for a duplicate that finds the claim without a response: APPLIED replays it, PENDING is still in
+ * progress, MANUAL_REVIEW has an unknown outcome, and FAILED or COMPENSATED releases the key. A claim whose
+ * transaction was never saved is in progress for {@code abandonedAfter} (the request may be queued behind
+ * others of the account); after that the duplicate saves a FAILED transaction under the reserved id, so
+ * the original request, crashed or late, can no longer save it, and takes the key over.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final TransactionRepository transactionRepository;
+    private final Duration ttl;
+    private final Duration abandonedAfter;
+    private final Cache<String, IdempotencyRecord> cache;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter storeHits;
+    private final Counter coalesced;
+    private final Counter executed;
+
+    public IdempotencyService(
+            IdempotencyRepository idempotencyRepository,
+            TransactionRepository transactionRepository,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.ttl:24h}") Duration ttl,
+            @Value("${idempotency.abandoned-after:2m}") Duration abandonedAfter,
+            @Value("${idempotency.cache.max-size:10000}") long cacheMaxSize,
+            @Value("${idempotency.cache.ttl:10m}") Duration cacheTtl) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.transactionRepository = transactionRepository;
+        this.ttl = ttl;
+        this.abandonedAfter = abandonedAfter;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl.compareTo(ttl) < 0 ? cacheTtl : ttl)
+                .build();
+        this.cacheHits = hits(meterRegistry, "cache");
+        this.storeHits = hits(meterRegistry, "store");
+        this.coalesced = Counter.builder("idempotency.coalesced")
+                .description("Duplicates that joined a request still in flight")
+                .register(meterRegistry);
+        this.executed = Counter.builder("idempotency.executed")
+                .description("Requests with a new idempotency key")
+                .register(meterRegistry);
+        Gauge.builder("idempotency.in-flight", inFlight, Map::size)
+                .description("Idempotency keys whose request is still running")
+                .register(meterRegistry);
+    }
+
+    private static Counter hits(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("idempotency.hits")
+                .description("Duplicates answered with a stored response")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /** Runs {@code action} with the id to save the transaction under, unless the key was already used. */
+    public Mono<TransactionResponseDTO> execute(
+            String key, TransactionRequestDTO request, Function<String, Mono<TransactionResponseDTO>> action) {
+        String fingerprint = fingerprint(request);
+        IdempotencyRecord cached = cache.getIfPresent(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return replay(cached, fingerprint);
+        }
+
+        InFlight created = new InFlight(fingerprint, Mono.defer(() -> claimAndExecute(key, request, fingerprint, action))
+                .doFinally(signal -> inFlight.remove(key))
+                .cache());
+        InFlight running = inFlight.putIfAbsent(key, created);
+        if (running == null) {
+            return created.response();
+        }
+        if (!running.fingerprint().equals(fingerprint)) {
+            return Mono.error(reused());
+        }
+        coalesced.increment();
+        return running.response();
+    }
+
+    /**
+     * Claims the key with an insert before running the action, so two instances can never both execute it:
+     * the loser of the insert goes by what the claim, or the transaction behind it, says.
+     */
+    private Mono<TransactionResponseDTO> claimAndExecute(
+            String key, TransactionRequestDTO request, String fingerprint, Function<String, Mono<TransactionResponseDTO>> action) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord claim = new IdempotencyRecord(key, fingerprint, new ObjectId().toHexString(), null, now, now.plus(ttl));
+        return idempotencyRepository.insert(claim)
+                .flatMap(claimed -> {
+                    executed.increment();
+                    return action.apply(claimed.getTransactionId())
+                            .flatMap(response -> complete(claimed, response))
+                            .onErrorResume(e -> (e instanceof RecordSettledException ? Mono.<Long>empty() : release(claimed))
+                                    .then(Mono.error(e)));
+                })
+                .onErrorResume(DuplicateKeyException.class, e -> idempotencyRepository.findById(key)
+                        .flatMap(record -> resolve(record, request, fingerprint, action))
+                        // the claim was released between the insert and the read: try again from the start
+                        .switchIfEmpty(Mono.defer(() -> claimAndExecute(key, request, fingerprint, action))));
+    }
+
+    private Mono<TransactionResponseDTO> resolve(
+            IdempotencyRecord record, TransactionRequestDTO request, String fingerprint,
+            Function<String, Mono<TransactionResponseDTO>> action) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            return Mono.error(reused());
+        }
+        if (record.getResponse() != null) {
+            storeHits.increment();
+            cache.put(record.getKey(), record);
+            return Mono.just(record.getResponse());
+        }
+        if (record.getTransactionId() == null) {
+            return Mono.error(inProgress());
+        }
+        return transactionRepository.findById(record.getTransactionId())
+                .flatMap(transaction -> {
+                    TransactionStatus status = transaction.getStatus();
+                    if (status == TransactionStatus.APPLIED) {
+                        storeHits.increment();
+                        return complete(record, TransactionService.mapToResponse(transaction));
+                    }
+                    if (status == TransactionStatus.FAILED || status == TransactionStatus.COMPENSATED) {
+                        return takeOver(record, request, fingerprint, action);
+                    }
+                    if (status == TransactionStatus.MANUAL_REVIEW) {
+                        return Mono.error(new IdempotencyKeyConflictException(IdempotencyKeyConflictException.OUTCOME_UNKNOWN,
+                                "La solicitud original quedó en revisión manual sin confirmar si el saldo cambió."
+                                        + " Consulte el historial de la cuenta antes de repetirla con otra clave."));
+                    }
+                    return Mono.error(inProgress());
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    if (record.getCreatedAt().isAfter(LocalDateTime.now().minus(abandonedAfter))) {
+                        return Mono.error(inProgress());
+                    }
+                    return transactionRepository.insert(TransactionService.abandoned(
+                                    request, record.getTransactionId(), "Solicitud abandonada antes de registrarse"))
+                            .map(fenced -> true)
+                            // saved by the original request in the meantime: look again
+                            .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false))
+                            .flatMap(fenced -> fenced
+                                    ? takeOver(record, request, fingerprint, action)
+                                    : resolve(record, request, fingerprint, action));
+                }));
+    }
+
+    /** Replaces a claim whose transaction is known not to have moved the balance, and runs the request. */
+    private Mono<TransactionResponseDTO> takeOver(
+            IdempotencyRecord record, TransactionRequestDTO request, String fingerprint,
+            Function<String, Mono<TransactionResponseDTO>> action) {
+        return idempotencyRepository.deleteByKeyAndTransactionId(record.getKey(), record.getTransactionId())
+                .then(Mono.defer(() -> claimAndExecute(record.getKey(), request, fingerprint, action)));
+    }
+
+    private Mono<TransactionResponseDTO> complete(IdempotencyRecord claim, TransactionResponseDTO response) {
+        claim.setResponse(response);
+        cache.put(claim.getKey(), claim);
+        return idempotencyRepository.save(claim)
+                .thenReturn(response)
+                .onErrorResume(e -> {
+                    // the money already moved: answer the client and let the cached copy cover local retries
+                    log.error("Could not store idempotency key {}: {}", claim.getKey(), e.getMessage());
+                    return Mono.just(response);
+                });
+    }
+
+    // Only while the claim is still this request's: another one may have taken it over.
+    private Mono<Long> release(IdempotencyRecord claim) {
+        return idempotencyRepository.deleteByKeyAndTransactionId(claim.getKey(), claim.getTransactionId())
+                .onErrorResume(e -> {
+                    log.error("Could not release idempotency key {}: {}", claim.getKey(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static Mono<TransactionResponseDTO> replay(IdempotencyRecord record, String fingerprint) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            return Mono.error(reused());
+        }
+        return Mono.just(record.getResponse());
+    }
+
+    private static IdempotencyKeyConflictException inProgress() {
+        return new IdempotencyKeyConflictException(IdempotencyKeyConflictException.IN_PROGRESS,
+                "Ya hay una solicitud en curso con esta clave de idempotencia.");
+    }
+
+    private static IdempotencyKeyConflictException reused() {
+        return new IdempotencyKeyConflictException(IdempotencyKeyConflictException.REUSED,
+                "La clave de idempotencia ya fue usada con una solicitud diferente.");
+    }
+
+    private record InFlight(String fingerprint, Mono<TransactionResponseDTO> response) {
+    }
+
+    static String fingerprint(TransactionRequestDTO request) {
+        return request.getAccountId() + '|'
+                + (request.getTransactionType() == null ? null : request.getTransactionType().toUpperCase(Locale.ROOT)) + '|'
+                + (request.getAmount() == null ? null : request.getAmount().stripTrailingZeros().toPlainString()) + '|'
+                + request.getUserId();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.model.OutboxEvent;
+import com.example.transactionalms.repository.OutboxRepository;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for the RabbitMQ events: the transaction flow only writes the event to the
+ * {@code outbox} collection and a background relay drains it in batches through the
+ * {@link TransactionEventPublisher}. Each relay pass claims its events one {@code findAndModify} at a time,
+ * pushing {@code nextAttemptAt} a lease ahead, so replicas never publish the same event concurrently and one
+ * that stops mid-batch only delays its events by the lease. An event is removed from the outbox only after
+ * the broker has confirmed it, at which point its transaction's {@code eventCheckAt} is cleared as well.
+ */
+@Slf4j
+@Service
+public class OutboxService {
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final OutboxRepository outboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TransactionEventPublisher eventPublisher;
+    private final TransactionMetrics metrics;
+    private final boolean relayEnabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration retryBackoff;
+    private final Duration lease;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter published;
+    private final Counter failures;
+    private Disposable relay;
+
+    public OutboxService(
+            OutboxRepository outboxRepository,
+            TransactionRepository transactionRepository,
+            ReactiveMongoTemplate mongoTemplate,
+            TransactionEventPublisher eventPublisher,
+            TransactionMetrics metrics,
+            MeterRegistry meterRegistry,
+            @Value("${outbox.relay.enabled:true}") boolean relayEnabled,
+            @Value("${outbox.relay.batch-size:100}") int batchSize,
+            @Value("${outbox.relay.flush-interval:1s}") Duration flushInterval,
+            @Value("${outbox.relay.retry-backoff:5s}") Duration retryBackoff,
+            @Value("${outbox.relay.lease:30s}") Duration lease) {
+        this.outboxRepository = outboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.relayEnabled = relayEnabled;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.retryBackoff = retryBackoff;
+        this.lease = lease;
+        this.published = Counter.builder("outbox.relay.published")
+                .description("Events confirmed by the broker")
+                .register(meterRegistry);
+        this.failures = Counter.builder("outbox.relay.failures")
+                .description("Events that could not be published and were rescheduled")
+                .register(meterRegistry);
+        Gauge.builder("outbox.relay.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age in seconds of the oldest event still waiting in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public Mono<Void> enqueue(TransactionEvent event) {
+        return outboxRepository.save(new OutboxEvent(event)).then();
+    }
+
+    public Mono<Void> enqueueAll(List<TransactionEvent> events) {
+        return outboxRepository.insert(events.stream().map(OutboxEvent::new).toList()).then();
+    }
+
+    /** Whether the event of the transaction is still waiting in the outbox. */
+    public Mono<Boolean> isQueued(String transactionId) {
+        return outboxRepository.existsById(transactionId);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!relayEnabled) {
+            return;
+        }
+        relay = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> drain()
+                        .onErrorResume(e -> {
+                            log.error("Outbox relay cycle failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (relay != null) {
+            relay.dispose();
+        }
+    }
+
+    // Publishes batches until the due part of the outbox is empty, then refreshes the lag gauge.
+    Mono<Void> drain() {
+        return relayBatch()
+                .expand(count -> count == batchSize ? relayBatch() : Mono.empty())
+                .then(outboxRepository.findFirstByOrderByCreatedAtAsc()
+                        .map(oldest -> Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis())
+                        .defaultIfEmpty(0L)
+                        .doOnNext(lagMillis::set))
+                .then();
+    }
+
+    Mono<Integer> relayBatch() {
+        String owner = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        AtomicInteger claimed = new AtomicInteger(1);
+        return claim(owner, now)
+                .expand(event -> claimed.getAndIncrement() < batchSize ? claim(owner, now) : Mono.empty())
+                .collectList()
+                .flatMap(events -> events.isEmpty() ? Mono.just(0) : publish(events));
+    }
+
+    // nextAttemptAt moves past now, so the same pass and other replicas skip the event until the lease runs out
+    private Mono<OutboxEvent> claim(String owner, LocalDateTime now) {
+        Query due = new Query(Criteria.where("nextAttemptAt").lte(now)).with(Sort.by("nextAttemptAt"));
+        Update take = new Update().set("nextAttemptAt", now.plus(lease)).set("lease", owner);
+        return mongoTemplate.findAndModify(due, take, FindAndModifyOptions.options().returnNew(true), OutboxEvent.class);
+    }
+
+    private Mono<Integer> publish(List<OutboxEvent> events) {
+        return Flux.fromIterable(events)
+                .flatMap(event -> metrics.stage(TransactionMetrics.Stage.PUBLISH, eventPublisher.publish(event.getPayload()))
+                        .thenReturn(event)
+                        .onErrorResume(e -> {
+                            scheduleRetry(event, e);
+                            return Mono.empty();
+                        }))
+                .collectList()
+                .flatMap(confirmed -> {
+                    List<OutboxEvent> rescheduled = events.stream().filter(e -> !confirmed.contains(e)).toList();
+                    published.increment(confirmed.size());
+                    if (!rescheduled.isEmpty()) {
+                        log.warn("Outbox relay could not publish {} events", rescheduled.size());
+                        failures.increment(rescheduled.size());
+                    }
+                    List<String> transactionIds = confirmed.stream().map(e -> e.getPayload().getTransactionId()).toList();
+                    return (confirmed.isEmpty() ? Mono.<Long>empty() : transactionRepository.clearEventCheck(transactionIds))
+                            .then(outboxRepository.deleteAll(confirmed))
+                            .then(Flux.fromIterable(rescheduled).concatMap(this::reschedule).then())
+                            .thenReturn(confirmed.size());
+                });
+    }
+
+    // only while this pass still holds the lease; otherwise another relay has already taken the event again
+    private Mono<Void> reschedule(OutboxEvent event) {
+        Query held = new Query(Criteria.where("_id").is(event.getId()).and("lease").is(event.getLease()));
+        Update retry = new Update()
+                .set("attempts", event.getAttempts())
+                .set("nextAttemptAt", event.getNextAttemptAt())
+                .set("lastError", event.getLastError());
+        return mongoTemplate.updateFirst(held, retry, OutboxEvent.class).then();
+    }
+
+    private void scheduleRetry(OutboxEvent event, Throwable error) {
+        event.setAttempts(event.getAttempts() + 1);
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(event.getAttempts() - 1, 16));
+        if (backoff.compareTo(MAX_BACKOFF) > 0) {
+            backoff = MAX_BACKOFF;
+        }
+        event.setNextAttemptAt(LocalDateTime.now().plus(backoff));
+        event.setLastError(error.getMessage());
+    }
+}
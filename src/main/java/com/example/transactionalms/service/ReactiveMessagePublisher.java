@@ -0,0 +1,233 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.messaging.MessageEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking publisher: events are buffered into a sink, flushed by count or time window on a
+ * dedicated channel pool, and each caller completes when its asynchronous publisher confirm arrives.
+ * Once {@code messaging.publisher.max-in-flight} events are unconfirmed, new callers wait for capacity.
+ * A sent event holds its permit until the broker confirms or nacks it, or {@code confirm-timeout} passes,
+ * even if its caller has cancelled meanwhile.
+ * The blocking RabbitTemplate calls run on the {@code amqpScheduler}, never on the caller's thread.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "messaging.publisher.mode", havingValue = "reactive", matchIfMissing = true)
+public class ReactiveMessagePublisher implements TransactionEventPublisher {
+
+    private static final int WAITING = 0;
+    private static final int ACQUIRED = 1;
+    private static final int DONE = 2;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageEncoder encoder;
+    private final String queueName;
+    private final int batchSize;
+    private final Duration flushWindow;
+    private final int maxInFlight;
+    private final int channelPoolSize;
+    private final Duration confirmTimeout;
+    private final Sinks.Many<Pending> sink = Sinks.many().unicast().onBackpressureBuffer();
+    private final Queue<Pending> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter acks;
+    private final Counter nacks;
+    private final Scheduler scheduler;
+    private Disposable pipeline;
+
+    public ReactiveMessagePublisher(
+            @Qualifier("publisherRabbitTemplate") RabbitTemplate rabbitTemplate,
+            MessageEncoder encoder,
+            @Qualifier("amqpScheduler") Scheduler scheduler,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.queue.name}") String queueName,
+            @Value("${messaging.publisher.batch-size:64}") int batchSize,
+            @Value("${messaging.publisher.flush-window:5ms}") Duration flushWindow,
+            @Value("${messaging.publisher.max-in-flight:1024}") int maxInFlight,
+            @Value("${messaging.publisher.channel-pool-size:4}") int channelPoolSize,
+            @Value("${messaging.publisher.confirm-timeout:5s}") Duration confirmTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.encoder = encoder;
+        this.scheduler = scheduler;
+        this.queueName = queueName;
+        this.batchSize = batchSize;
+        this.flushWindow = flushWindow;
+        this.maxInFlight = maxInFlight;
+        this.channelPoolSize = channelPoolSize;
+        this.confirmTimeout = confirmTimeout;
+        this.acks = Counter.builder("amqp.publisher.confirms").tag("result", "ack").register(meterRegistry);
+        this.nacks = Counter.builder("amqp.publisher.confirms").tag("result", "nack").register(meterRegistry);
+        Gauge.builder("amqp.publisher.in-flight", inFlight, AtomicInteger::get)
+                .description("Published events waiting for a broker confirm")
+                .register(meterRegistry);
+        Gauge.builder("amqp.publisher.waiting", waiting, Queue::size)
+                .description("Callers waiting for in-flight capacity")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        pipeline = sink.asFlux()
+                // fairBackpressure: the default variant can miss the timed flush of a partial batch
+                .bufferTimeout(batchSize, flushWindow, true)
+                .flatMap(batch -> Mono.fromRunnable(() -> send(batch)).subscribeOn(scheduler), channelPoolSize)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        sink.tryEmitComplete();
+        if (pipeline != null) {
+            pipeline.dispose();
+        }
+    }
+
+    @Override
+    public Mono<Void> publish(TransactionEvent event) {
+        return Mono.create(monoSink -> {
+            Pending pending = new Pending(toMessage(encoder, event), monoSink);
+            monoSink.onCancel(pending::cancel);
+            waiting.offer(pending);
+            drainWaiting();
+        });
+    }
+
+    private void drainWaiting() {
+        while (!waiting.isEmpty() && tryAcquire()) {
+            Pending pending = waiting.poll();
+            if (pending == null || !pending.state.compareAndSet(WAITING, ACQUIRED)) {
+                // Queue emptied concurrently or the caller already cancelled: give the permit back.
+                inFlight.decrementAndGet();
+                continue;
+            }
+            sink.emitNext(pending, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        }
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (Pending pending : batch) {
+                    CorrelationData correlation = new CorrelationData();
+                    correlation.getFuture().orTimeout(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((confirm, error) -> {
+                        if (error == null && confirm.isAck()) {
+                            acks.increment();
+                            pending.succeed();
+                        } else if (error instanceof TimeoutException) {
+                            nacks.increment();
+                            pending.fail(new TimeoutException("No publisher confirm within " + confirmTimeout));
+                        } else {
+                            nacks.increment();
+                            pending.fail(error != null ? error : new AmqpException("Broker nack: " + confirm.getReason()));
+                        }
+                    });
+                    operations.send("", queueName, pending.message, correlation);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not publish {} events: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> pending.fail(e));
+        }
+    }
+
+    static Message toMessage(MessageEncoder encoder, TransactionEvent event) {
+        byte[] body = encoder.encode(event);
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(encoder.contentType());
+        properties.setContentLength(body.length);
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setMessageId(event.getTransactionId());
+        properties.setTimestamp(new Date(event.getTimestamp()));
+        properties.setType("transaction-event");
+        encoder.describe(properties);
+        return new Message(body, properties);
+    }
+
+    private final class Pending {
+        private final Message message;
+        private final MonoSink<Void> monoSink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Pending(Message message, MonoSink<Void> monoSink) {
+            this.message = message;
+            this.monoSink = monoSink;
+        }
+
+        void succeed() {
+            if (release()) {
+                monoSink.success();
+            }
+        }
+
+        void fail(Throwable error) {
+            if (release()) {
+                monoSink.error(error);
+            }
+        }
+
+        /** A caller that gives up before its event is handed to the pipeline frees its slot; a sent event keeps its permit. */
+        void cancel() {
+            state.compareAndSet(WAITING, DONE);
+        }
+
+        boolean release() {
+            for (;;) {
+                int current = state.get();
+                if (current == DONE) {
+                    return false;
+                }
+                if (state.compareAndSet(current, DONE)) {
+                    if (current == ACQUIRED) {
+                        inFlight.decrementAndGet();
+                        drainWaiting();
+                    }
+                    return true;
+                }
+            }
+        }
+    }
+}
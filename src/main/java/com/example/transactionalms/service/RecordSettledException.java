@@ -0,0 +1,13 @@
+package com.example.transactionalms.service;
+
+/**
+ * A transaction failed after which its saved record, not the error, says what happened: the balance
+ * has moved, or it may have and the {@link TransactionReconciler} will find out. Carries the message of
+ * the failure it wraps.
+ */
+public class RecordSettledException extends RuntimeException {
+
+    public RecordSettledException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.transactionalms.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Amount and count over a sliding window, kept in a ring of fixed-width buckets. Each bucket is an
+ * immutable value swapped in with CAS, so writers never block each other; a slot whose bucket belongs
+ * to an older lap of the ring is simply replaced.
+ */
+final class SlidingWindowCounter {
+
+    record Totals(BigDecimal amount, long count) {
+        static final Totals EMPTY = new Totals(BigDecimal.ZERO, 0);
+    }
+
+    private record Bucket(long epoch, BigDecimal amount, long count) {
+    }
+
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    SlidingWindowCounter(Duration window, int bucketCount) {
+        this.bucketMillis = window.toMillis() / bucketCount;
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    void add(long timeMillis, BigDecimal amount, long count) {
+        long epoch = timeMillis / bucketMillis;
+        int slot = (int) (epoch % buckets.length());
+        while (true) {
+            Bucket current = buckets.get(slot);
+            Bucket next;
+            if (current == null || current.epoch() < epoch) {
+                next = new Bucket(epoch, amount, count);
+            } else if (current.epoch() == epoch) {
+                next = new Bucket(epoch, current.amount().add(amount), current.count() + count);
+            } else {
+                // the slot already holds a newer lap: this time is outside the window
+                return;
+            }
+            if (buckets.compareAndSet(slot, current, next)) {
+                return;
+            }
+        }
+    }
+
+    Totals totals(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        long oldest = epoch - buckets.length();
+        BigDecimal amount = BigDecimal.ZERO;
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch() > oldest && bucket.epoch() <= epoch) {
+                amount = amount.add(bucket.amount());
+                count += bucket.count();
+            }
+        }
+        return count == 0 && amount.signum() == 0 ? Totals.EMPTY : new Totals(amount, count);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes a stream of transactions as CSV or NDJSON, optionally gzipped. Rows are encoded
+ * {@code rowsPerChunk} at a time into one buffer each, so memory use is bounded by a single chunk
+ * no matter how many rows the statement has, and upstream demand follows the HTTP writer.
+ */
+@Component
+public class StatementExporter {
+
+    static final String CSV_HEADER = "id,accountId,transactionType,initialBalance,amount,finalBalance,userId,timestamp\n";
+
+    private final ObjectWriter jsonWriter = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build()
+            .writerFor(Transaction.class);
+    private final int rowsPerChunk;
+
+    public StatementExporter(@Value("${transactions.export.rows-per-chunk:256}") int rowsPerChunk) {
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
+    public enum Format {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format of(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato no soportado: " + value);
+            }
+        }
+    }
+
+    public Flux<DataBuffer> export(Flux<Transaction> transactions, Format format, boolean gzip) {
+        Flux<byte[]> chunks = transactions
+                .buffer(rowsPerChunk)
+                .map(rows -> encode(rows, format));
+        Flux<byte[]> body = format == Format.CSV
+                ? chunks.startWith(CSV_HEADER.getBytes(StandardCharsets.UTF_8))
+                : chunks;
+        Flux<byte[]> encoded = gzip
+                ? Flux.using(GzipState::new,
+                        state -> body.map(state::compress).concatWith(Mono.fromCallable(state::finish)),
+                        GzipState::close)
+                : body;
+        return encoded
+                .filter(bytes -> bytes.length > 0)
+                .map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+
+    private byte[] encode(List<Transaction> rows, Format format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows.size() * 128);
+        try {
+            for (Transaction transaction : rows) {
+                if (format == Format.CSV) {
+                    out.write(toCsvRow(transaction).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    jsonWriter.writeValue(out, transaction);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static String toCsvRow(Transaction transaction) {
+        return csv(transaction.getId()) + ','
+                + csv(transaction.getAccountId()) + ','
+                + csv(transaction.getTransactionType()) + ','
+                + csv(transaction.getInitialBalance() == null ? null : transaction.getInitialBalance().toString()) + ','
+                + csv(transaction.getAmount() == null ? null : transaction.getAmount().toString()) + ','
+                + csv(transaction.getFinalBalance() == null ? null : transaction.getFinalBalance().toString()) + ','
+                + csv(transaction.getUserId()) + ','
+                + csv(transaction.getTimestamp() == null ? null : transaction.getTimestamp().toString()) + '\n';
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /** Deflater state for one response; whatever it has produced is handed downstream after each chunk. */
+    private static final class GzipState {
+
+        private final ByteArrayOutputStream sink = new ByteArrayOutputStream(8192);
+        private final GZIPOutputStream gzip;
+
+        GzipState() throws IOException {
+            this.gzip = new GZIPOutputStream(sink, 8192);
+        }
+
+        byte[] compress(byte[] chunk) {
+            try {
+                gzip.write(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return drain();
+        }
+
+        byte[] finish() throws IOException {
+            gzip.finish();
+            return drain();
+        }
+
+        void close() {
+            try {
+                gzip.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+
+        private byte[] drain() {
+            byte[] bytes = sink.toByteArray();
+            sink.reset();
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionBucket;
+import com.example.transactionalms.model.TransactionStatus;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Moves settled transactions older than {@code transactions.archive.horizon} out of the hot
+ * {@code transactions} collection into {@link TransactionBucket}s in the compressed
+ * {@code transactions_archive} collection, so the hot collection and its indexes stay the size of the
+ * horizon. The unit of work is one account-day; it is skipped while any of its transactions is PENDING or
+ * waiting for MANUAL_REVIEW. Documents without a status predate the lifecycle and count as settled.
+ * Each run rebuilds the account-day's buckets from what is already archived plus what is still hot and only
+ * then deletes the hot copies, so a run cut short is completed by the next one without losing or
+ * duplicating transactions. {@link TransactionQueryService} stitches both collections back together.
+ */
+@Slf4j
+@Service
+public class TransactionArchiver {
+
+    static final String ARCHIVE_COLLECTION = "transactions_archive";
+    private static final int NAMESPACE_EXISTS = 48;
+    private static final List<String> UNSETTLED = List.of(TransactionStatus.PENDING.name(),
+            TransactionStatus.MANUAL_REVIEW.name());
+    private static final Comparator<Transaction> ORDER =
+            Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Duration horizon;
+    private final Duration interval;
+    private final int scanSize;
+    private final int maxBucketSize;
+    private final String compressor;
+    private final Counter archived;
+    // last row of the previous cycle's scan when it was full; null starts again from the oldest
+    private volatile Transaction resumeAfter;
+    private Disposable job;
+
+    public TransactionArchiver(
+            ReactiveMongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${transactions.archive.enabled:false}") boolean enabled,
+            @Value("${transactions.archive.horizon:90d}") Duration horizon,
+            @Value("${transactions.archive.interval:1h}") Duration interval,
+            @Value("${transactions.archive.scan-size:10000}") int scanSize,
+            @Value("${transactions.archive.max-bucket-size:500}") int maxBucketSize,
+            @Value("${transactions.archive.compressor:zstd}") String compressor) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.horizon = horizon;
+        this.interval = interval;
+        this.scanSize = scanSize;
+        this.maxBucketSize = maxBucketSize;
+        this.compressor = compressor;
+        this.archived = Counter.builder("transactions.archived")
+                .description("Transactions moved to the archive collection")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        job = ensureArchiveCollection()
+                .onErrorResume(e -> {
+                    log.error("Could not prepare the {} collection: {}", ARCHIVE_COLLECTION, e.getMessage());
+                    return Mono.empty();
+                })
+                .thenMany(Flux.interval(interval))
+                .onBackpressureDrop()
+                .concatMap(tick -> archive()
+                        .onErrorResume(e -> {
+                            log.error("Transaction archiver cycle failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (job != null) {
+            job.dispose();
+        }
+    }
+
+    Mono<Void> ensureArchiveCollection() {
+        CreateCollectionOptions options = new CreateCollectionOptions().storageEngineOptions(
+                new Document("wiredTiger", new Document("configString", "block_compressor=" + compressor)));
+        return mongoTemplate.collectionExists(ARCHIVE_COLLECTION)
+                .filter(exists -> !exists)
+                .flatMap(missing -> mongoTemplate.getMongoDatabase()
+                        .flatMap(database -> Mono.from(database.createCollection(ARCHIVE_COLLECTION, options)))
+                        // another instance created it first
+                        .onErrorResume(MongoCommandException.class,
+                                e -> e.getErrorCode() == NAMESPACE_EXISTS ? Mono.empty() : Mono.error(e)))
+                .then(mongoTemplate.indexOps(ARCHIVE_COLLECTION).ensureIndex(new Index()
+                        .on("accountId", Sort.Direction.ASC).on("day", Sort.Direction.ASC).on("seq", Sort.Direction.ASC)
+                        .named("account_day_seq")))
+                .then(mongoTemplate.indexOps(ARCHIVE_COLLECTION).ensureIndex(new Index()
+                        .on("transactions.userId", Sort.Direction.ASC).on("day", Sort.Direction.ASC)
+                        .named("user_day")))
+                .then();
+    }
+
+    /**
+     * One cycle: the account-days among the next {@code scanSize} settled transactions past the horizon
+     * are archived one after another. The scan resumes after the last row of the previous cycle, so settled
+     * rows of account-days held back by a PENDING or MANUAL_REVIEW one cannot fill every scan and stall the
+     * archiver; once a scan comes back short the next cycle starts again from the oldest.
+     * Returns the number of transactions moved.
+     */
+    Mono<Long> archive() {
+        LocalDateTime cutoff = cutoff(horizon);
+        Transaction after = resumeAfter;
+        // $nin also matches documents without a status
+        Criteria settled = where("status").nin(UNSETTLED);
+        if (after == null) {
+            settled.and("timestamp").lt(cutoff);
+        } else {
+            settled.andOperator(where("timestamp").lt(cutoff), new Criteria().orOperator(
+                    where("timestamp").gt(after.getTimestamp()),
+                    where("timestamp").is(after.getTimestamp()).and("_id").gt(after.getId())));
+        }
+        Query oldest = new Query(settled)
+                .with(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("_id")))
+                .limit(scanSize);
+        oldest.fields().include("accountId", "timestamp");
+        return mongoTemplate.find(oldest, Transaction.class)
+                .collectList()
+                .doOnNext(page -> resumeAfter = page.size() < scanSize ? null : page.get(page.size() - 1))
+                .map(page -> {
+                    Set<Tuple2<String, LocalDate>> accountDays = new LinkedHashSet<>();
+                    page.forEach(transaction -> accountDays.add(
+                            Tuples.of(transaction.getAccountId(), transaction.getTimestamp().toLocalDate())));
+                    return accountDays;
+                })
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(accountDay -> archiveAccountDay(accountDay.getT1(), accountDay.getT2()))
+                .reduce(0L, Long::sum)
+                .doOnNext(moved -> {
+                    if (moved > 0) {
+                        log.info("Archived {} transactions older than {}", moved, cutoff);
+                    }
+                });
+    }
+
+    /** Days before this one are archived; it is a day boundary so an account-day is never split. */
+    static LocalDateTime cutoff(Duration horizon) {
+        return LocalDateTime.now().minus(horizon).toLocalDate().atStartOfDay();
+    }
+
+    Mono<Long> archiveAccountDay(String accountId, LocalDate day) {
+        Query pending = new Query(inDay(accountId, day).and("status").in(UNSETTLED));
+        return mongoTemplate.exists(pending, Transaction.class)
+                .flatMap(hasPending -> hasPending
+                        ? Mono.just(0L)
+                        : mongoTemplate.find(new Query(inDay(accountId, day)), Transaction.class).collectList()
+                                .zipWith(mongoTemplate.find(new Query(where("accountId").is(accountId).and("day").is(day))
+                                        .with(Sort.by("seq")), TransactionBucket.class).collectList())
+                                .flatMap(hotAndArchived -> move(accountId, day, hotAndArchived.getT1(), hotAndArchived.getT2())));
+    }
+
+    private static Criteria inDay(String accountId, LocalDate day) {
+        return where("accountId").is(accountId)
+                .and("timestamp").gte(day.atStartOfDay()).lt(day.plusDays(1).atStartOfDay());
+    }
+
+    private Mono<Long> move(String accountId, LocalDate day, List<Transaction> hot, List<TransactionBucket> archivedBuckets) {
+        if (hot.isEmpty()) {
+            return Mono.just(0L);
+        }
+        Map<String, Transaction> byId = new LinkedHashMap<>();
+        for (TransactionBucket bucket : archivedBuckets) {
+            bucket.getTransactions().forEach(transaction -> byId.put(transaction.getId(), transaction));
+        }
+        hot.forEach(transaction -> byId.put(transaction.getId(), transaction));
+        List<TransactionBucket> buckets = buckets(accountId, day, new ArrayList<>(byId.values()), maxBucketSize);
+        Set<String> hotIds = new LinkedHashSet<>();
+        hot.forEach(transaction -> hotIds.add(transaction.getId()));
+
+        return Flux.fromIterable(buckets)
+                .concatMap(mongoTemplate::save)
+                .then(mongoTemplate.remove(new Query(where("_id").in(hotIds)), Transaction.class))
+                .map(DeleteResult::getDeletedCount)
+                .doOnNext(archived::increment);
+    }
+
+    static List<TransactionBucket> buckets(String accountId, LocalDate day, List<Transaction> transactions, int maxBucketSize) {
+        transactions.sort(ORDER);
+        List<TransactionBucket> buckets = new ArrayList<>();
+        for (int from = 0, seq = 0; from < transactions.size(); from += maxBucketSize, seq++) {
+            List<Transaction> chunk = new ArrayList<>(transactions.subList(from, Math.min(from + maxBucketSize, transactions.size())));
+            buckets.add(new TransactionBucket(accountId, day, seq, chunk));
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import reactor.core.publisher.Mono;
+
+public interface TransactionEventPublisher {
+
+    /**
+     * Publishes the event and completes once the broker has confirmed it.
+     */
+    Mono<Void> publish(TransactionEvent event);
+}
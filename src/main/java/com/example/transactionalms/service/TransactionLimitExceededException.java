@@ -0,0 +1,26 @@
+package com.example.transactionalms.service;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/** A transaction rejected by a limit rule; {@code code} identifies which one. */
+@Getter
+public class TransactionLimitExceededException extends RuntimeException {
+
+    public static final String DAILY_AMOUNT = "DAILY_AMOUNT_LIMIT";
+    public static final String VELOCITY = "VELOCITY_LIMIT";
+
+    private final String code;
+    private final String transactionType;
+    private final BigDecimal limit;
+    private final BigDecimal current;
+
+    public TransactionLimitExceededException(String code, String transactionType, BigDecimal limit, BigDecimal current, String message) {
+        super(message);
+        this.code = code;
+        this.transactionType = transactionType;
+        this.limit = limit;
+        this.current = current;
+    }
+}
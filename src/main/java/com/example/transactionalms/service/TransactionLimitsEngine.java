@@ -0,0 +1,203 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.TransactionLimitsProperties;
+import com.example.transactionalms.model.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-account limits evaluated against in-memory sliding windows. Windows live in a size-bounded cache and
+ * are warmed from the last day of transactions at startup, up to the moment live counting begins; until the
+ * warm-up finishes, {@link #limitsOf} holds requests back. An account missing from the cache afterwards (new,
+ * evicted, or the warm-up failed) has its last day reloaded from Mongo before it is checked, so eviction
+ * never empties a window. Check and record are not one atomic step; the {@link AccountSequencer} already
+ * serializes the operations of an account, which is what makes the pair safe.
+ */
+@Slf4j
+@Component
+public class TransactionLimitsEngine {
+
+    private static final Duration DAY = Duration.ofDays(1);
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    /** What a successful check recorded, so it can be given back if the transaction fails afterwards. */
+    public record Reservation(String accountId, String transactionType, BigDecimal amount, long timeMillis) {
+    }
+
+    private final TransactionLimitsProperties properties;
+    private final TransactionQueryService transactionQueryService;
+    private final Clock clock;
+    private final Cache<String, Map<String, TypeWindows>> windows;
+    private final AccountLimits unlimited = new AccountLimits(null, Map.of());
+    private volatile Mono<Void> warmedUp = Mono.empty();
+    private Disposable warmUp;
+
+    @Autowired
+    public TransactionLimitsEngine(TransactionLimitsProperties properties, TransactionQueryService transactionQueryService) {
+        this(properties, transactionQueryService, Clock.systemDefaultZone());
+    }
+
+    TransactionLimitsEngine(TransactionLimitsProperties properties, TransactionQueryService transactionQueryService, Clock clock) {
+        this.properties = properties;
+        this.transactionQueryService = transactionQueryService;
+        this.clock = clock;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxAccounts())
+                .expireAfterAccess(DAY)
+                .build();
+    }
+
+    /** The windows of the account, once the warm-up is over, reloaded from Mongo if they are not cached. */
+    public Mono<AccountLimits> limitsOf(String accountId) {
+        if (!properties.isEnabled() || properties.getRules().isEmpty()) {
+            return Mono.just(unlimited);
+        }
+        return warmedUp.then(Mono.defer(() -> {
+            Map<String, TypeWindows> cached = windows.getIfPresent(accountId);
+            if (cached != null) {
+                return Mono.just(new AccountLimits(accountId, cached));
+            }
+            LocalDateTime until = LocalDateTime.now(clock);
+            Map<String, TypeWindows> loaded = new ConcurrentHashMap<>();
+            return transactionQueryService.recentTransactions(accountId, until.minus(DAY), until, properties.getRules().keySet())
+                    .doOnNext(transaction -> replay(loaded, transaction))
+                    .then(Mono.fromSupplier(() -> {
+                        Map<String, TypeWindows> raced = windows.asMap().putIfAbsent(accountId, loaded);
+                        return new AccountLimits(accountId, raced != null ? raced : loaded);
+                    }));
+        }));
+    }
+
+    /**
+     * The windows of one account, held for the length of a request so a cache eviction meanwhile does not
+     * lose what it counts.
+     */
+    public final class AccountLimits {
+
+        private final String accountId;
+        private final Map<String, TypeWindows> windows;
+
+        private AccountLimits(String accountId, Map<String, TypeWindows> windows) {
+            this.accountId = accountId;
+            this.windows = windows;
+        }
+
+        /**
+         * Checks the rules of the transaction type and, if they pass, counts the transaction in the windows.
+         * Returns {@code null} when the type has no rule.
+         */
+        public Reservation tryAcquire(String transactionType, BigDecimal amount) {
+            return TransactionLimitsEngine.this.tryAcquire(accountId, windows, transactionType, amount);
+        }
+    }
+
+    private Reservation tryAcquire(String accountId, Map<String, TypeWindows> accountWindows, String transactionType, BigDecimal amount) {
+        TransactionLimitsProperties.Rule rule = properties.ruleFor(transactionType);
+        if (rule == null) {
+            return null;
+        }
+        long now = clock.millis();
+        TypeWindows window = windowsOf(accountWindows, transactionType);
+
+        if (rule.getMaxOperationsPerMinute() != null) {
+            long operations = window.perMinute.totals(now).count();
+            if (operations + 1 > rule.getMaxOperationsPerMinute()) {
+                throw new TransactionLimitExceededException(TransactionLimitExceededException.VELOCITY, transactionType,
+                        BigDecimal.valueOf(rule.getMaxOperationsPerMinute()), BigDecimal.valueOf(operations),
+                        "Se superó el número máximo de operaciones por minuto.");
+            }
+        }
+        if (rule.getMaxAmountPerDay() != null) {
+            BigDecimal total = window.daily.totals(now).amount();
+            if (total.add(amount).compareTo(rule.getMaxAmountPerDay()) > 0) {
+                throw new TransactionLimitExceededException(TransactionLimitExceededException.DAILY_AMOUNT, transactionType,
+                        rule.getMaxAmountPerDay(), total, "Se superó el monto máximo diario.");
+            }
+        }
+
+        window.add(now, amount, 1);
+        return new Reservation(accountId, transactionType, amount, now);
+    }
+
+    public void release(Reservation reservation) {
+        if (reservation == null) {
+            return;
+        }
+        Map<String, TypeWindows> accountWindows = windows.getIfPresent(reservation.accountId());
+        TypeWindows window = accountWindows == null ? null : accountWindows.get(reservation.transactionType().toUpperCase(Locale.ROOT));
+        if (window != null) {
+            window.add(reservation.timeMillis(), reservation.amount().negate(), -1);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled() || properties.getRules().isEmpty()) {
+            return;
+        }
+        // tryAcquire counts everything from now on; replaying those too would count them twice
+        LocalDateTime until = LocalDateTime.now(clock);
+        Sinks.Empty<Void> done = Sinks.empty();
+        warmedUp = done.asMono();
+        warmUp = transactionQueryService.recentTransactions(until.minus(DAY), until, properties.getRules().keySet())
+                .doOnNext(this::replay)
+                .count()
+                .doFinally(signal -> done.tryEmitEmpty())
+                .subscribe(
+                        count -> log.info("Transaction limits warmed up with {} transactions", count),
+                        e -> {
+                            // partly warmed windows would undercount: drop them so each account reloads on use
+                            windows.invalidateAll();
+                            log.error("Could not warm up transaction limits: {}", e.getMessage());
+                        });
+    }
+
+    @PreDestroy
+    void stop() {
+        if (warmUp != null) {
+            warmUp.dispose();
+        }
+    }
+
+    void replay(Transaction transaction) {
+        replay(windows.get(transaction.getAccountId(), id -> new ConcurrentHashMap<>()), transaction);
+    }
+
+    private void replay(Map<String, TypeWindows> accountWindows, Transaction transaction) {
+        if (properties.ruleFor(transaction.getTransactionType()) == null || transaction.getAmount() == null) {
+            return;
+        }
+        long time = transaction.getTimestamp().atZone(clock.getZone()).toInstant().toEpochMilli();
+        windowsOf(accountWindows, transaction.getTransactionType()).add(time, transaction.getAmount().toBigDecimal(), 1);
+    }
+
+    private static TypeWindows windowsOf(Map<String, TypeWindows> accountWindows, String transactionType) {
+        return accountWindows.computeIfAbsent(transactionType.toUpperCase(Locale.ROOT), type -> new TypeWindows());
+    }
+
+    private static final class TypeWindows {
+        private final SlidingWindowCounter daily = new SlidingWindowCounter(DAY, 24 * 12);
+        private final SlidingWindowCounter perMinute = new SlidingWindowCounter(MINUTE, 60);
+
+        void add(long timeMillis, BigDecimal amount, long count) {
+            daily.add(timeMillis, amount, count);
+            perMinute.add(timeMillis, amount, count);
+        }
+    }
+}
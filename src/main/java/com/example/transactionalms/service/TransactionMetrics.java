@@ -0,0 +1,113 @@
+package com.example.transactionalms.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the transaction pipeline: {@code transaction.stage} per step (tags {@code stage}, {@code outcome})
+ * and {@code transaction.requests} per request (tags {@code type}, {@code outcome}, {@code exception}).
+ * Tags only take values from fixed sets, never account or user ids, so they stay low-cardinality; an
+ * unknown transaction type is reported as {@code OTHER}.
+ */
+@Component
+public class TransactionMetrics {
+
+    public enum Stage {
+        ACCOUNT_FETCH("account.fetch"),
+        MONGO_SAVE("mongo.save"),
+        BALANCE_UPDATE("balance.update"),
+        OUTBOX_ENQUEUE("outbox.enqueue"),
+        PUBLISH("publish");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final String SUCCESS = "success";
+    private static final String ERROR = "error";
+    private static final String CANCELLED = "cancelled";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer[]> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<String, Timer> requestTimers = new ConcurrentHashMap<>();
+
+    public TransactionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, new Timer[]{
+                    stageTimer(stage, SUCCESS), stageTimer(stage, ERROR), stageTimer(stage, CANCELLED)});
+        }
+    }
+
+    private Timer stageTimer(Stage stage, String outcome) {
+        return Timer.builder("transaction.stage")
+                .description("Time spent in each step of the transaction pipeline")
+                .tag("stage", stage.tag)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /** Times {@code source} from subscription to its terminal signal under the given stage. */
+    public <T> Mono<T> stage(Stage stage, Mono<T> source) {
+        Timer[] timers = stageTimers.get(stage);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return source.doFinally(signal -> timers[index(signal)].record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /** Times a whole transaction request and records how it ended. */
+    public <T> Mono<T> request(String transactionType, Mono<T> source) {
+        String type = typeTag(transactionType);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return source
+                    .doOnError(e -> requestTimer(type, ERROR, e.getClass().getSimpleName())
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doFinally(signal -> {
+                        if (signal != SignalType.ON_ERROR) {
+                            requestTimer(type, signal == SignalType.CANCEL ? CANCELLED : SUCCESS, "none")
+                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    });
+        });
+    }
+
+    private Timer requestTimer(String type, String outcome, String exception) {
+        return requestTimers.computeIfAbsent(type + '|' + outcome + '|' + exception, key -> Timer.builder("transaction.requests")
+                .description("Transaction requests by type and outcome")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry));
+    }
+
+    private static int index(SignalType signal) {
+        return switch (signal) {
+            case ON_ERROR -> 1;
+            case CANCEL -> 2;
+            default -> 0;
+        };
+    }
+
+    static String typeTag(String transactionType) {
+        if ("DEPOSIT".equalsIgnoreCase(transactionType)) {
+            return "DEPOSIT";
+        }
+        if ("WITHDRAWAL".equalsIgnoreCase(transactionType)) {
+            return "WITHDRAWAL";
+        }
+        return "OTHER";
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionHistoryQuery;
+import com.example.transactionalms.dto.TransactionPageDTO;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionBucket;
+import com.example.transactionalms.model.TransactionStatus;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+@Service
+public class TransactionQueryService {
+
+    static final int MAX_PAGE_SIZE = 500;
+    static final Set<String> PROJECTABLE_FIELDS = Set.of(
+            "accountId", "transactionType", "initialBalance", "amount", "finalBalance", "userId", "timestamp", "status");
+    private static final Comparator<Transaction> ORDER =
+            Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int backfillPageSize;
+    private final int exportBatchSize;
+    private final boolean archiveEnabled;
+    private final Duration archiveHorizon;
+
+    public TransactionQueryService(
+            ReactiveMongoTemplate mongoTemplate,
+            @Value("${transactions.stream.backfill-page-size:500}") int backfillPageSize,
+            @Value("${transactions.export.cursor-batch-size:1000}") int exportBatchSize,
+            @Value("${transactions.archive.enabled:false}") boolean archiveEnabled,
+            @Value("${transactions.archive.horizon:90d}") Duration archiveHorizon) {
+        this.mongoTemplate = mongoTemplate;
+        this.backfillPageSize = backfillPageSize;
+        this.exportBatchSize = exportBatchSize;
+        this.archiveEnabled = archiveEnabled;
+        this.archiveHorizon = archiveHorizon;
+    }
+
+    /**
+     * Historical transactions of the account in {@code (timestamp, _id)} order, strictly after {@code after}
+     * and/or from {@code since} on. Pages of {@code backfillPageSize} documents are fetched one at a time as
+     * the subscriber requests them, each seeking past the last row like {@link #findHistory} does.
+     * Only the hot collection is read: a stream resumes within the archive horizon.
+     */
+    Flux<Transaction> backfill(String accountId, HistoryCursor after, LocalDateTime since) {
+        return backfillPage(accountId, after, since)
+                .expand(page -> page.size() < backfillPageSize
+                        ? Mono.empty()
+                        : backfillPage(accountId, HistoryCursor.of(page.get(page.size() - 1)), since))
+                .concatMapIterable(Function.identity());
+    }
+
+    /**
+     * Where a stream resumes from its {@code Last-Event-ID}: an {@link #eventId}, or the bare transaction id sent
+     * before event ids carried the timestamp, which is then read back (the id's creation time if the row is gone).
+     * Empty when the value is neither.
+     */
+    Mono<HistoryCursor> resumePoint(String lastEventId) {
+        if (isBlank(lastEventId)) {
+            return Mono.empty();
+        }
+        if (ObjectId.isValid(lastEventId)) {
+            ObjectId id = new ObjectId(lastEventId);
+            Query query = new Query(Criteria.where("_id").is(id));
+            query.fields().include("timestamp");
+            return mongoTemplate.findOne(query, Transaction.class)
+                    .mapNotNull(Transaction::getTimestamp)
+                    .defaultIfEmpty(LocalDateTime.ofInstant(id.getDate().toInstant(), ZoneId.systemDefault()))
+                    .map(timestamp -> new HistoryCursor(timestamp, id));
+        }
+        try {
+            return Mono.just(HistoryCursor.decode(lastEventId));
+        } catch (IllegalArgumentException e) {
+            return Mono.empty();
+        }
+    }
+
+    /** The stream event id of a transaction: its {@code (timestamp, _id)} position, as {@link #resumePoint} reads it. */
+    public static String eventId(Transaction transaction) {
+        return HistoryCursor.of(transaction).encode();
+    }
+
+    /**
+     * Keyset (seek) pagination over {@code (timestamp, _id)}, served by the compound indexes declared on
+     * {@link Transaction}. The cursor is the position of the last returned row, so every page costs the
+     * same regardless of how deep the caller has paged. Ranges reaching past the archive horizon are
+     * merged in order with the archived buckets.
+     */
+    public Mono<TransactionPageDTO> findHistory(TransactionHistoryQuery request) {
+        return Mono.defer(() -> runHistoryQuery(request));
+    }
+
+    private Mono<TransactionPageDTO> runHistoryQuery(TransactionHistoryQuery request) {
+        if (isBlank(request.getAccountId()) && isBlank(request.getUserId())) {
+            return Mono.error(new IllegalArgumentException("Se requiere accountId o userId."));
+        }
+        int limit = request.getLimit() <= 0 ? 50 : Math.min(request.getLimit(), MAX_PAGE_SIZE);
+
+        List<Criteria> filters = new ArrayList<>();
+        if (!isBlank(request.getAccountId())) {
+            filters.add(Criteria.where("accountId").is(request.getAccountId()));
+        }
+        if (!isBlank(request.getUserId())) {
+            filters.add(Criteria.where("userId").is(request.getUserId()));
+        }
+        if (!isBlank(request.getTransactionType())) {
+            filters.add(Criteria.where("transactionType").is(request.getTransactionType().toUpperCase(Locale.ROOT)));
+        }
+        if (request.getFrom() != null) {
+            filters.add(Criteria.where("timestamp").gte(request.getFrom()));
+        }
+        if (request.getTo() != null) {
+            filters.add(Criteria.where("timestamp").lt(request.getTo()));
+        }
+        HistoryCursor cursor = isBlank(request.getCursor()) ? null : HistoryCursor.decode(request.getCursor());
+        if (cursor != null) {
+            filters.add(cursor.seekPast());
+        }
+
+        Query query = new Query(new Criteria().andOperator(filters))
+                .with(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("_id")))
+                .limit(limit + 1);
+        List<String> fields = request.getFields() == null || request.getFields().isEmpty() ? null : request.getFields();
+        if (fields != null) {
+            for (String field : fields) {
+                if (!PROJECTABLE_FIELDS.contains(field)) {
+                    return Mono.error(new IllegalArgumentException("Campo no permitido en la proyección: " + field));
+                }
+                query.fields().include(field);
+            }
+            // needed to build the next cursor
+            query.fields().include("timestamp");
+        }
+
+        Flux<Transaction> rows = mongoTemplate.find(query, Transaction.class);
+        LocalDateTime archivedFrom = cursor != null && (request.getFrom() == null || cursor.timestamp().isAfter(request.getFrom()))
+                ? cursor.timestamp() : request.getFrom();
+        if (reachesArchive(archivedFrom)) {
+            List<Criteria> buckets = new ArrayList<>();
+            if (!isBlank(request.getAccountId())) {
+                buckets.add(Criteria.where("accountId").is(request.getAccountId()));
+            }
+            if (!isBlank(request.getUserId())) {
+                buckets.add(Criteria.where("transactions.userId").is(request.getUserId()));
+            }
+            Predicate<Transaction> matches = transaction ->
+                    (isBlank(request.getAccountId()) || request.getAccountId().equals(transaction.getAccountId()))
+                            && (isBlank(request.getUserId()) || request.getUserId().equals(transaction.getUserId()))
+                            && (isBlank(request.getTransactionType())
+                                || request.getTransactionType().toUpperCase(Locale.ROOT).equals(transaction.getTransactionType()))
+                            && (cursor == null || cursor.isBefore(transaction));
+            Flux<Transaction> archived = archived(buckets, archivedFrom, request.getTo(), matches)
+                    .take(limit + 1)
+                    .map(transaction -> fields == null ? transaction : project(transaction, fields));
+            rows = merge(archived, rows).take(limit + 1);
+        }
+
+        return rows
+                .collectList()
+                .map(found -> {
+                    if (found.size() <= limit) {
+                        return new TransactionPageDTO(found, null);
+                    }
+                    List<Transaction> page = new ArrayList<>(found.subList(0, limit));
+                    return new TransactionPageDTO(page, HistoryCursor.of(page.get(limit - 1)).encode());
+                });
+    }
+
+    /**
+     * Every transaction of the account in {@code [from, to)} that moved the balance (APPLIED, or without a
+     * status from before the lifecycle existed), read from a single cursor in index order.
+     * The driver fetches {@code exportBatchSize} documents per round trip and only as fast as the
+     * subscriber requests them, so nothing beyond the current batch is held in memory.
+     */
+    public Flux<Transaction> streamStatement(String accountId, LocalDateTime from, LocalDateTime to) {
+        // $in with null also matches a missing status
+        Criteria criteria = Criteria.where("accountId").is(accountId)
+                .and("status").in(TransactionStatus.APPLIED.name(), null);
+        if (from != null || to != null) {
+            criteria = criteria.and("timestamp");
+            if (from != null) {
+                criteria = criteria.gte(from);
+            }
+            if (to != null) {
+                criteria = criteria.lt(to);
+            }
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("_id")))
+                .cursorBatchSize(exportBatchSize);
+        Flux<Transaction> hot = mongoTemplate.find(query, Transaction.class);
+        if (!reachesArchive(from)) {
+            return hot;
+        }
+        return merge(archived(List.of(Criteria.where("accountId").is(accountId)), from, to,
+                transaction -> transaction.getStatus() == null || transaction.getStatus() == TransactionStatus.APPLIED), hot);
+    }
+
+    /** Whether the account has archived transactions; always false while the archive is disabled. */
+    public Mono<Boolean> existsInArchive(String accountId) {
+        if (!archiveEnabled) {
+            return Mono.just(false);
+        }
+        return mongoTemplate.exists(new Query(Criteria.where("accountId").is(accountId)), TransactionBucket.class);
+    }
+
+    /**
+     * Transactions of the given types in {@code [since, until)}, with only the fields needed to replay them into
+     * counters. Types are stored upper-cased; the lower-case spelling still matches rows written before that.
+     */
+    public Flux<Transaction> recentTransactions(LocalDateTime since, LocalDateTime until, Collection<String> transactionTypes) {
+        return recentTransactions(Criteria.where("timestamp"), since, until, transactionTypes);
+    }
+
+    /** Same, for one account. */
+    public Flux<Transaction> recentTransactions(
+            String accountId, LocalDateTime since, LocalDateTime until, Collection<String> transactionTypes) {
+        return recentTransactions(Criteria.where("accountId").is(accountId).and("timestamp"), since, until, transactionTypes);
+    }
+
+    private Flux<Transaction> recentTransactions(
+            Criteria timestamp, LocalDateTime since, LocalDateTime until, Collection<String> transactionTypes) {
+        List<String> types = transactionTypes.stream()
+                .flatMap(type -> Stream.of(type.toUpperCase(Locale.ROOT), type.toLowerCase(Locale.ROOT)))
+                .distinct()
+                .toList();
+        Query query = new Query(timestamp.gte(since).lt(until)
+                .and("transactionType").in(types)
+                .and("status").nin(TransactionStatus.FAILED, TransactionStatus.COMPENSATED))
+                .cursorBatchSize(exportBatchSize);
+        query.fields().include("accountId", "transactionType", "amount", "timestamp");
+        return mongoTemplate.find(query, Transaction.class);
+    }
+
+    private Mono<List<Transaction>> backfillPage(String accountId, HistoryCursor after, LocalDateTime since) {
+        List<Criteria> filters = new ArrayList<>();
+        filters.add(Criteria.where("accountId").is(accountId));
+        if (after != null) {
+            filters.add(after.seekPast());
+        }
+        if (since != null) {
+            filters.add(Criteria.where("timestamp").gte(since));
+        }
+        Query query = new Query(new Criteria().andOperator(filters))
+                .with(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("_id")))
+                .limit(backfillPageSize);
+        return mongoTemplate.find(query, Transaction.class).collectList();
+    }
+
+    private boolean reachesArchive(LocalDateTime from) {
+        return archiveEnabled && (from == null || from.isBefore(TransactionArchiver.cutoff(archiveHorizon)));
+    }
+
+    /**
+     * Archived transactions in {@code [from, to)} of the matching buckets, in {@code (timestamp, _id)} order.
+     * Buckets are read a day at a time; a user's accounts are interleaved within the day.
+     */
+    private Flux<Transaction> archived(List<Criteria> buckets, LocalDateTime from, LocalDateTime to,
+                                       Predicate<Transaction> matches) {
+        List<Criteria> filters = new ArrayList<>(buckets);
+        if (from != null) {
+            filters.add(Criteria.where("day").gte(from.toLocalDate()));
+        }
+        if (to != null) {
+            filters.add(Criteria.where("day").lte(to.toLocalDate()));
+        }
+        Query query = new Query(new Criteria().andOperator(filters))
+                .with(Sort.by(Sort.Order.asc("day"), Sort.Order.asc("accountId"), Sort.Order.asc("seq")));
+        return mongoTemplate.find(query, TransactionBucket.class)
+                .windowUntilChanged(TransactionBucket::getDay)
+                .concatMap(day -> day.concatMapIterable(TransactionBucket::getTransactions).sort(ORDER))
+                .filter(transaction -> (from == null || !transaction.getTimestamp().isBefore(from))
+                        && (to == null || transaction.getTimestamp().isBefore(to))
+                        && matches.test(transaction));
+    }
+
+    /** Both sides in {@code (timestamp, _id)} order; a transaction caught mid-move by the archiver appears once. */
+    private static Flux<Transaction> merge(Flux<Transaction> archived, Flux<Transaction> hot) {
+        return Flux.mergeComparing(ORDER, archived, hot).distinctUntilChanged(Transaction::getId);
+    }
+
+    /** The requested fields of an archived transaction, as a projected find would return it. */
+    private static Transaction project(Transaction transaction, List<String> fields) {
+        Transaction projected = new Transaction();
+        projected.setId(transaction.getId());
+        projected.setTimestamp(transaction.getTimestamp());
+        for (String field : fields) {
+            switch (field) {
+                case "accountId" -> projected.setAccountId(transaction.getAccountId());
+                case "transactionType" -> projected.setTransactionType(transaction.getTransactionType());
+                case "initialBalance" -> projected.setInitialBalance(transaction.getInitialBalance());
+                case "amount" -> projected.setAmount(transaction.getAmount());
+                case "finalBalance" -> projected.setFinalBalance(transaction.getFinalBalance());
+                case "userId" -> projected.setUserId(transaction.getUserId());
+                case "status" -> projected.setStatus(transaction.getStatus());
+                default -> {
+                }
+            }
+        }
+        return projected;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    record HistoryCursor(LocalDateTime timestamp, ObjectId id) {
+
+        static HistoryCursor of(Transaction transaction) {
+            return new HistoryCursor(transaction.getTimestamp(), new ObjectId(transaction.getId()));
+        }
+
+        /** Rows strictly after this position. */
+        Criteria seekPast() {
+            return new Criteria().orOperator(
+                    Criteria.where("timestamp").gt(timestamp),
+                    new Criteria().andOperator(
+                            Criteria.where("timestamp").is(timestamp),
+                            Criteria.where("_id").gt(id)));
+        }
+
+        boolean isBefore(Transaction transaction) {
+            int byTimestamp = transaction.getTimestamp().compareTo(timestamp);
+            return byTimestamp > 0 || byTimestamp == 0 && new ObjectId(transaction.getId()).compareTo(id) > 0;
+        }
+
+        String encode() {
+            String raw = timestamp + "|" + id.toHexString();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)), new ObjectId(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor inválido.", e);
+            }
+        }
+    }
+}
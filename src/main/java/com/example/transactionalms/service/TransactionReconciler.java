@@ -0,0 +1,328 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Settles transactions left PENDING because the balance change ended without a clear answer (timeout,
+ * 5xx, lost connection), because the APPLIED write did not go through, or because the instance stopped
+ * halfway. Stuck transactions are picked up in batches; each one is claimed through its {@code @Version},
+ * so with several instances only one handles it. One flagged {@code balanceApplied} only gets its status
+ * rewritten, and one whose balance change was never sent ({@code balanceRequested} still false) is marked
+ * FAILED. Otherwise the balance alone cannot tell whether the change landed, since other transactions move
+ * it too, and the accounts service does not honour {@code Idempotency-Key}. In DELTA mode the account is
+ * read under the {@link AccountSequencer}: if its version is still the one the change was computed against,
+ * nothing has written to it since, so the change did not land and is sent again, conditioned on that same
+ * version. Any other version, ABSOLUTE mode, or a record without a version parks it as MANUAL_REVIEW.
+ * Once {@code maxAttempts} are used up or the accounts service rejects it, it is marked COMPENSATED with a
+ * failure event; that only happens after the version showed the change never landed, so there is no
+ * balance change to reverse.
+ */
+@Slf4j
+@Service
+public class TransactionReconciler {
+
+    private final TransactionRepository transactionRepository;
+    private final AccountsClient accountsClient;
+    private final AccountSequencer accountSequencer;
+    private final AccountCache accountCache;
+    private final AccountAggregateService accountAggregateService;
+    private final OutboxService outboxService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration interval;
+    private final Duration stuckAfter;
+    private final int maxAttempts;
+    private final Counter applied;
+    private final Counter compensated;
+    private final Counter failed;
+    private final Counter deferred;
+    private final Counter review;
+    private final Counter requeued;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private Disposable job;
+
+    public TransactionReconciler(
+            TransactionRepository transactionRepository,
+            AccountsClient accountsClient,
+            AccountSequencer accountSequencer,
+            AccountCache accountCache,
+            AccountAggregateService accountAggregateService,
+            OutboxService outboxService,
+            MeterRegistry meterRegistry,
+            @Value("${transactions.reconciler.enabled:true}") boolean enabled,
+            @Value("${transactions.reconciler.batch-size:100}") int batchSize,
+            @Value("${transactions.reconciler.interval:30s}") Duration interval,
+            @Value("${transactions.reconciler.stuck-after:2m}") Duration stuckAfter,
+            @Value("${transactions.reconciler.max-attempts:5}") int maxAttempts) {
+        this.transactionRepository = transactionRepository;
+        this.accountsClient = accountsClient;
+        this.accountSequencer = accountSequencer;
+        this.accountCache = accountCache;
+        this.accountAggregateService = accountAggregateService;
+        this.outboxService = outboxService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.stuckAfter = stuckAfter;
+        this.maxAttempts = maxAttempts;
+        this.applied = processed(meterRegistry, "applied");
+        this.compensated = processed(meterRegistry, "compensated");
+        this.failed = processed(meterRegistry, "failed");
+        this.deferred = processed(meterRegistry, "deferred");
+        this.review = processed(meterRegistry, "manual-review");
+        this.requeued = Counter.builder("transactions.reconciler.events.requeued")
+                .description("Events of settled transactions written to the outbox again because they were missing")
+                .register(meterRegistry);
+        Gauge.builder("transactions.reconciler.backlog", backlog, AtomicLong::get)
+                .description("PENDING transactions old enough to be reconciled")
+                .register(meterRegistry);
+        Gauge.builder("transactions.reconciler.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age in seconds of the oldest PENDING transaction")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static Counter processed(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("transactions.reconciler.processed")
+                .description("Stuck transactions handled by the reconciler")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        job = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile()
+                        .onErrorResume(e -> {
+                            log.error("Transaction reconciler cycle failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (job != null) {
+            job.dispose();
+        }
+    }
+
+    // Works through batches until no stuck transaction or missing event is left, then refreshes the backlog and lag gauges.
+    Mono<Void> reconcile() {
+        return reconcileBatch()
+                .expand(count -> count == batchSize ? reconcileBatch() : Mono.empty())
+                .then(requeueBatch()
+                        .expand(count -> count == batchSize ? requeueBatch() : Mono.empty())
+                        .then())
+                .then(transactionRepository.countByStatusAndStatusUpdatedAtLessThan(TransactionStatus.PENDING, cutoff())
+                        .doOnNext(backlog::set))
+                .then(transactionRepository.findFirstByStatusOrderByTimestampAsc(TransactionStatus.PENDING)
+                        .map(oldest -> Duration.between(oldest.getTimestamp(), LocalDateTime.now()).toMillis())
+                        .defaultIfEmpty(0L)
+                        .doOnNext(lagMillis::set))
+                .then();
+    }
+
+    Mono<Integer> reconcileBatch() {
+        return transactionRepository.findByStatusAndStatusUpdatedAtLessThanOrderByStatusUpdatedAtAsc(
+                        TransactionStatus.PENDING, cutoff(), PageRequest.of(0, batchSize))
+                .concatMap(this::reconcileOne)
+                .count()
+                .map(Long::intValue);
+    }
+
+    /**
+     * The event is written to the outbox after the status, so an instance that stops in between leaves a
+     * settled transaction without one. Its {@code eventCheckAt} is still set once the relay should long have
+     * cleared it; if the outbox no longer holds the event it is written again (the relay may also have
+     * published it and stopped before clearing, so this can repeat an event, never lose one). The check is
+     * pushed forward either way, so events that are queued but not yet deliverable do not hold up the scan.
+     */
+    Mono<Integer> requeueBatch() {
+        return transactionRepository.findByEventCheckAtLessThanOrderByEventCheckAtAsc(cutoff(), PageRequest.of(0, batchSize))
+                .concatMap(transaction -> outboxService.isQueued(transaction.getId())
+                        .flatMap(queued -> queued ? Mono.<Void>empty() : outboxService.enqueue(
+                                        TransactionService.toEvent(transaction, transaction.getStatus() == TransactionStatus.APPLIED))
+                                .doOnSuccess(v -> {
+                                    requeued.increment();
+                                    log.warn("Event of transaction {} was missing from the outbox", transaction.getId());
+                                }))
+                        .then(transactionRepository.deferEventCheck(transaction.getId(), LocalDateTime.now()))
+                        .thenReturn(transaction)
+                        .onErrorResume(e -> {
+                            log.error("Could not check the event of transaction {}: {}", transaction.getId(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .count()
+                .map(Long::intValue);
+    }
+
+    private Mono<Transaction> reconcileOne(Transaction stuck) {
+        int attempts = stuck.getReconcileAttempts() == null ? 1 : stuck.getReconcileAttempts() + 1;
+        stuck.setReconcileAttempts(attempts);
+        stuck.setStatusUpdatedAt(LocalDateTime.now());
+        return transactionRepository.save(stuck)
+                .flatMap(claimed -> {
+                    if (Boolean.TRUE.equals(claimed.getBalanceApplied())) {
+                        return markApplied(claimed);
+                    }
+                    if (Boolean.FALSE.equals(claimed.getBalanceRequested())) {
+                        return fail(claimed, "El cambio de saldo no llegó a enviarse");
+                    }
+                    return settle(claimed, attempts > maxAttempts);
+                })
+                .onErrorResume(OptimisticLockingFailureException.class, e -> {
+                    log.debug("Transaction {} is being handled elsewhere", stuck.getId());
+                    return Mono.just(stuck);
+                })
+                .onErrorResume(e -> {
+                    log.error("Could not reconcile transaction {}: {}", stuck.getId(), e.getMessage());
+                    return Mono.just(stuck);
+                });
+    }
+
+    private Mono<Transaction> settle(Transaction transaction, boolean exhausted) {
+        if (transaction.getAccountVersion() == null || !accountsClient.conditionalUpdates()) {
+            return park(transaction, "Sin versión de la cuenta; no se sabe si se aplicó");
+        }
+        String accountId = transaction.getAccountId();
+        return accountSequencer.submit(accountId, () -> accountsClient.getAccount(accountId)
+                        .flatMap(account -> {
+                            if (!transaction.getAccountVersion().equals(account.getVersion())) {
+                                return Mono.error(new UnknownOutcomeException(
+                                        "La cuenta cambió desde el envío (versión " + account.getVersion() + "); no se sabe si se aplicó"));
+                            }
+                            Money initialBalance = Money.of(account.getBalance());
+                            if (exhausted) {
+                                // it never landed: give up without sending it again
+                                return Mono.error(new IllegalStateException("Reintentos agotados"));
+                            }
+                            Money delta = TransactionService.computeFinalBalance(
+                                    transaction.getTransactionType(), transaction.getAmount(), initialBalance)
+                                    .subtract(initialBalance);
+                            return accountsClient.applyBalanceChange(account, delta.toBigDecimal(), transaction.getId())
+                                    .doOnNext(accountCache::update)
+                                    .map(updated -> {
+                                        Money balance = Money.of(updated.getBalance());
+                                        transaction.setInitialBalance(balance.subtract(delta));
+                                        transaction.setFinalBalance(balance);
+                                        return transaction;
+                                    });
+                        }))
+                .onErrorResume(e -> {
+                    accountCache.invalidate(accountId);
+                    if (e instanceof UnknownOutcomeException) {
+                        return park(transaction, e.getMessage()).then(Mono.empty());
+                    }
+                    if (isTransient(e)) {
+                        log.warn("Transaction {} still pending after attempt {}: {}",
+                                transaction.getId(), transaction.getReconcileAttempts(), e.getMessage());
+                        deferred.increment();
+                        return Mono.empty();
+                    }
+                    return compensate(transaction, e.getMessage()).then(Mono.empty());
+                })
+                .flatMap(this::markApplied)
+                .defaultIfEmpty(transaction);
+    }
+
+    private Mono<Transaction> markApplied(Transaction transaction) {
+        transaction.setStatus(TransactionStatus.APPLIED);
+        transaction.setStatusUpdatedAt(LocalDateTime.now());
+        transaction.setEventCheckAt(transaction.getStatusUpdatedAt());
+        transaction.setStatusReason(null);
+        return transactionRepository.save(transaction)
+                .flatMap(saved -> accountAggregateService.record(saved)
+                        .then(outboxService.enqueue(TransactionService.toEvent(saved, true)))
+                        .thenReturn(saved))
+                .doOnNext(saved -> {
+                    applied.increment();
+                    log.info("Transaction {} applied by the reconciler", saved.getId());
+                });
+    }
+
+    private Mono<Transaction> compensate(Transaction transaction, String reason) {
+        transaction.setStatus(TransactionStatus.COMPENSATED);
+        transaction.setStatusUpdatedAt(LocalDateTime.now());
+        transaction.setEventCheckAt(transaction.getStatusUpdatedAt());
+        transaction.setStatusReason(reason);
+        return transactionRepository.save(transaction)
+                .flatMap(saved -> outboxService.enqueue(TransactionService.toEvent(saved, false))
+                        .thenReturn(saved))
+                .doOnNext(saved -> {
+                    compensated.increment();
+                    log.warn("Transaction {} compensated: {}", saved.getId(), reason);
+                });
+    }
+
+    private Mono<Transaction> fail(Transaction transaction, String reason) {
+        transaction.setStatus(TransactionStatus.FAILED);
+        transaction.setStatusUpdatedAt(LocalDateTime.now());
+        transaction.setEventCheckAt(transaction.getStatusUpdatedAt());
+        transaction.setStatusReason(reason);
+        return transactionRepository.save(transaction)
+                .flatMap(saved -> outboxService.enqueue(TransactionService.toEvent(saved, false))
+                        .thenReturn(saved))
+                .doOnNext(saved -> {
+                    failed.increment();
+                    log.warn("Transaction {} failed before its balance change was sent", saved.getId());
+                });
+    }
+
+    private Mono<Transaction> park(Transaction transaction, String reason) {
+        transaction.setStatus(TransactionStatus.MANUAL_REVIEW);
+        transaction.setStatusUpdatedAt(LocalDateTime.now());
+        transaction.setStatusReason(reason);
+        return transactionRepository.save(transaction)
+                .doOnNext(saved -> {
+                    review.increment();
+                    log.warn("Transaction {} needs manual review: {}", saved.getId(), reason);
+                });
+    }
+
+    /** Failures worth another attempt later: the balance change may still go through. */
+    private static boolean isTransient(Throwable e) {
+        return AccountsClient.isRemoteFailure(e)
+                || e instanceof CallNotPermittedException
+                || e instanceof BulkheadFullException
+                || e instanceof BalanceConflictException;
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minus(stuckAfter);
+    }
+
+    /** The account was written to since the change was computed, possibly by the change itself. */
+    private static final class UnknownOutcomeException extends RuntimeException {
+        UnknownOutcomeException(String message) {
+            super(message);
+        }
+    }
+}
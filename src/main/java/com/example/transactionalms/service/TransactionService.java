@@ -1,111 +1,389 @@
 package com.example.transactionalms.service;
 
 import com.example.transactionalms.dto.AccountDTO;
+import com.example.transactionalms.dto.BatchItemResultDTO;
 import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.dto.TransactionEvent;
 import com.example.transactionalms.dto.TransactionResponseDTO;
-import com.example.transactionalms.dto.UpdateBalanceRequest;
+import com.example.transactionalms.model.Money;
 import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
 import com.example.transactionalms.repository.TransactionRepository;
+import com.example.transactionalms.service.TransactionMetrics.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Service
 public class TransactionService {
 
     private static final Logger log = LoggerFactory.getLogger(TransactionService.class);
-    private final WebClient webClient;
+    private static final int BATCH_ACCOUNT_CONCURRENCY = 16;
+    private final AccountsClient accountsClient;
     private final TransactionRepository transactionRepository;
-    private final MessagePublisherService messagePublisherService;
+    private final OutboxService outboxService;
+    private final AccountSequencer accountSequencer;
+    private final AccountCache accountCache;
+    private final TransactionStreamHub transactionStreamHub;
+    private final TransactionQueryService transactionQueryService;
+    private final AccountAggregateService accountAggregateService;
+    private final TransactionLimitsEngine transactionLimitsEngine;
+    private final TransactionMetrics metrics;
+    private final TransactionWriter transactionWriter;
 
     public TransactionService(
             TransactionRepository transactionRepository,
-            WebClient.Builder webClientBuilder, MessagePublisherService messagePublisherService) {
+            AccountsClient accountsClient, OutboxService outboxService,
+            AccountSequencer accountSequencer, AccountCache accountCache,
+            TransactionStreamHub transactionStreamHub, TransactionQueryService transactionQueryService,
+            AccountAggregateService accountAggregateService, TransactionLimitsEngine transactionLimitsEngine,
+            TransactionMetrics metrics, TransactionWriter transactionWriter) {
         this.transactionRepository = transactionRepository;
-        this.webClient = webClientBuilder
-                .baseUrl("http://localhost:8082/api/accounts")
-                .build();
-        this.messagePublisherService = messagePublisherService;
+        this.accountsClient = accountsClient;
+        this.outboxService = outboxService;
+        this.accountSequencer = accountSequencer;
+        this.accountCache = accountCache;
+        this.transactionStreamHub = transactionStreamHub;
+        this.transactionQueryService = transactionQueryService;
+        this.accountAggregateService = accountAggregateService;
+        this.transactionLimitsEngine = transactionLimitsEngine;
+        this.metrics = metrics;
+        this.transactionWriter = transactionWriter;
     }
 
     public Mono<TransactionResponseDTO> performTransaction(TransactionRequestDTO request) {
-        return webClient.get()
-                .uri("/{id}", request.getAccountId())
-                .retrieve()
-                .bodyToMono(AccountDTO.class)
-                .flatMap(account -> processTransaction(request, account));
+        return performTransaction(request, null);
     }
 
+    /**
+     * Same, saving the transaction under {@code transactionId} when given. Fails with a
+     * {@link RecordSettledException} when the saved transaction, rather than the error, tells the outcome;
+     * any other error means it was not saved or was marked FAILED without the balance moving.
+     */
+    public Mono<TransactionResponseDTO> performTransaction(TransactionRequestDTO request, String transactionId) {
+        return metrics.request(request.getTransactionType(),
+                accountSequencer.submit(request.getAccountId(), () -> transactionLimitsEngine.limitsOf(request.getAccountId())
+                        .flatMap(limits -> fetchAccount(request.getAccountId())
+                                .flatMap(account -> processTransaction(request, account, transactionId, limits)))));
+    }
+
+    public Flux<BatchItemResultDTO> performBatch(
+            Flux<TransactionRequestDTO> requests,
+            Function<TransactionRequestDTO, Optional<String>> validator) {
+        return requests.index()
+                .collect(LinkedHashMap<String, List<Tuple2<Long, TransactionRequestDTO>>>::new, (groups, item) -> {
+                    String accountId = item.getT2().getAccountId();
+                    groups.computeIfAbsent(accountId == null ? "" : accountId, k -> new ArrayList<>()).add(item);
+                })
+                .flatMapMany(groups -> Flux.fromIterable(groups.entrySet()))
+                .flatMap(group -> processAccountBatch(group.getKey(), group.getValue(), validator),
+                        BATCH_ACCOUNT_CONCURRENCY);
+    }
+
+    private Flux<BatchItemResultDTO> processAccountBatch(
+            String accountId,
+            List<Tuple2<Long, TransactionRequestDTO>> items,
+            Function<TransactionRequestDTO, Optional<String>> validator) {
+        List<BatchItemResultDTO> rejected = new ArrayList<>();
+        List<Tuple2<Long, TransactionRequestDTO>> valid = new ArrayList<>();
+        for (Tuple2<Long, TransactionRequestDTO> item : items) {
+            Optional<String> violations = validator.apply(item.getT2());
+            if (violations.isPresent()) {
+                rejected.add(new BatchItemResultDTO(item.getT1(), accountId, "REJECTED", violations.get(), null));
+            } else {
+                valid.add(item);
+            }
+        }
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(rejected);
+        }
+
+        return accountSequencer.submit(accountId, () -> transactionLimitsEngine.limitsOf(accountId)
+                        .flatMap(limits -> fetchAccount(accountId)
+                                .flatMapMany(account -> applyAccountBatch(accountId, account, limits, valid, rejected))
+                                .collectList()))
+                .flatMapIterable(Function.identity())
+                .onErrorResume(e -> {
+                    log.error("Batch for account {} failed: {}", accountId, e.getMessage());
+                    accountCache.invalidate(accountId);
+                    return Flux.fromIterable(valid)
+                            .map(item -> new BatchItemResultDTO(item.getT1(), accountId, "FAILED", e.getMessage(), null))
+                            .concatWith(Flux.fromIterable(rejected));
+                });
+    }
+
+    private Flux<BatchItemResultDTO> applyAccountBatch(
+            String accountId,
+            AccountDTO account,
+            TransactionLimitsEngine.AccountLimits limits,
+            List<Tuple2<Long, TransactionRequestDTO>> items,
+            List<BatchItemResultDTO> rejected) {
+        Money startBalance = Money.of(account.getBalance());
+        Money balance = startBalance;
+        List<Long> indexes = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        List<TransactionLimitsEngine.Reservation> reservations = new ArrayList<>();
+        for (Tuple2<Long, TransactionRequestDTO> item : items) {
+            TransactionRequestDTO request = item.getT2();
+            try {
+                Money next = computeFinalBalance(request, balance);
+                reservations.add(limits.tryAcquire(request.getTransactionType(), request.getAmount()));
+                indexes.add(item.getT1());
+                Transaction transaction = mapDataToTransaction(request, balance, next);
+                transaction.setAccountVersion(account.getVersion());
+                transactions.add(transaction);
+                balance = next;
+            } catch (IllegalArgumentException | TransactionLimitExceededException e) {
+                rejected.add(new BatchItemResultDTO(item.getT1(), accountId, "REJECTED", e.getMessage(), null));
+            }
+        }
+        if (transactions.isEmpty()) {
+            return Flux.fromIterable(rejected);
+        }
+
+        Money finalBalance = balance;
+        return metrics.stage(Stage.MONGO_SAVE, transactionWriter.insertAll(transactions).collectList())
+                .onErrorResume(e -> discardUnsent(transactions, e))
+                .flatMap(saved -> sendBalanceChange(saved, account, finalBalance.subtract(startBalance), null)
+                        .onErrorResume(e -> markFailed(saved, e))
+                        .flatMap(updated -> markApplied(saved, Money.of(updated.getBalance()).subtract(finalBalance))))
+                .flatMap(saved -> accountAggregateService.record(saved)
+                        .then(metrics.stage(Stage.OUTBOX_ENQUEUE,
+                                        outboxService.enqueueAll(saved.stream().map(t -> toEvent(t, true)).toList()))
+                                .onErrorMap(RecordSettledException::new))
+                        .thenReturn(saved))
+                .flatMapMany(saved -> {
+                    List<BatchItemResultDTO> results = new ArrayList<>(saved.size());
+                    for (int i = 0; i < saved.size(); i++) {
+                        results.add(new BatchItemResultDTO(indexes.get(i), accountId, "SUCCESS", null, mapToResponse(saved.get(i))));
+                    }
+                    return Flux.fromIterable(results);
+                })
+                .onErrorResume(e -> {
+                    accountCache.invalidate(accountId);
+                    if (e instanceof RecordSettledException settled) {
+                        log.error("Batch for account {} left for reconciliation: {}", accountId, settled.getCause().getMessage());
+                        return Flux.fromIterable(indexes)
+                                .map(index -> new BatchItemResultDTO(index, accountId, "FAILED", settled.getCause().getMessage(), null));
+                    }
+                    log.error("Batch for account {} failed: {}", accountId, e.getMessage());
+                    reservations.forEach(transactionLimitsEngine::release);
+                    return enqueueQuietly(outboxService.enqueueAll(transactions.stream().map(t -> toEvent(t, false)).toList()))
+                            .thenMany(Flux.fromIterable(indexes))
+                            .map(index -> new BatchItemResultDTO(index, accountId, "FAILED", e.getMessage(), null));
+                })
+                .concatWith(Flux.fromIterable(rejected));
+    }
+
+    private Mono<AccountDTO> fetchAccount(String accountId) {
+        return metrics.stage(Stage.ACCOUNT_FETCH, accountCache.get(accountId, accountsClient::getAccount));
+    }
+
+    /**
+     * Flags the saved transactions as sent, then moves the balance. The flag is how the
+     * {@link TransactionReconciler} tells a PENDING transaction that may have reached the accounts service
+     * from one that never left; if it cannot be written, nothing is sent.
+     */
+    private Mono<AccountDTO> sendBalanceChange(List<Transaction> saved, AccountDTO account, Money delta, String operationId) {
+        return metrics.stage(Stage.MONGO_SAVE, transactionRepository.markBalanceRequested(saved.stream().map(Transaction::getId).toList()))
+                .doOnNext(marked -> saved.forEach(transaction -> transaction.setBalanceRequested(true)))
+                .then(Mono.defer(() -> metrics.stage(Stage.BALANCE_UPDATE,
+                        accountsClient.applyBalanceChange(account, delta.toBigDecimal(), operationId))))
+                .doOnNext(accountCache::update);
+    }
+
+    /**
+     * The insert failed, but a write that timed out or was not confirmed may have stored the transactions
+     * anyway. Nothing was sent to the accounts service, so they are marked FAILED in case they are there.
+     * Best effort: the insert error is what the caller gets either way.
+     */
+    private <T> Mono<T> discardUnsent(List<Transaction> transactions, Throwable error) {
+        return transactionRepository.markFailed(transactions.stream().map(Transaction::getId).toList(), error.getMessage(), LocalDateTime.now())
+                .onErrorResume(markError -> {
+                    log.error("Could not mark transactions failed after the insert error: {}", markError.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.error(error));
+    }
+
+    /**
+     * Marks the saved transactions APPLIED. After a delta update that had to be retried on a fresh read,
+     * the recorded balances are off by {@code offset}; they are shifted so they match what was applied.
+     * If this write fails the balance has moved anyway, so the transactions are flagged as such for the
+     * reconciler, which then only has to rewrite their status.
+     */
+    private Mono<List<Transaction>> markApplied(List<Transaction> saved, Money offset) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Transaction transaction : saved) {
+            transaction.setInitialBalance(transaction.getInitialBalance().add(offset));
+            transaction.setFinalBalance(transaction.getFinalBalance().add(offset));
+            transaction.setStatus(TransactionStatus.APPLIED);
+            transaction.setStatusUpdatedAt(now);
+            transaction.setEventCheckAt(now);
+        }
+        return metrics.stage(Stage.MONGO_SAVE, transactionRepository.saveAll(saved).collectList())
+                .onErrorResume(e -> transactionRepository.markBalanceApplied(saved.stream().map(Transaction::getId).toList())
+                        .onErrorResume(markError -> {
+                            log.error("Could not flag transactions as applied: {}", markError.getMessage());
+                            return Mono.empty();
+                        })
+                        .then(Mono.error(new RecordSettledException(e))));
+    }
+
+    /**
+     * The balance change failed or was never sent. When the accounts service may still have applied it
+     * (timeout, 5xx, broken connection) the transactions stay PENDING for the {@link TransactionReconciler};
+     * otherwise they are marked FAILED. Always ends with an error.
+     */
+    private <T> Mono<T> markFailed(List<Transaction> saved, Throwable error) {
+        if (AccountsClient.isRemoteFailure(error)) {
+            return Mono.error(new RecordSettledException(error));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Transaction transaction : saved) {
+            transaction.setStatus(TransactionStatus.FAILED);
+            transaction.setStatusUpdatedAt(now);
+            transaction.setEventCheckAt(now);
+            transaction.setStatusReason(error.getMessage());
+        }
+        return transactionRepository.saveAll(saved)
+                .then(Mono.<T>error(error))
+                .onErrorMap(e -> e != error, e -> {
+                    log.error("Could not mark transactions as failed: {}", e.getMessage());
+                    return error;
+                });
+    }
+
+    static TransactionEvent toEvent(Transaction transaction, boolean status) {
+        return new TransactionEvent(
+                transaction.getId(),
+                transaction.getAccountId(),
+                transaction.getUserId(),
+                transaction.getTransactionType(),
+                transaction.getAmount().toBigDecimal(),
+                transaction.getFinalBalance().toBigDecimal(),
+                status,
+                System.currentTimeMillis()
+        );
+    }
+
+    private static Mono<Void> enqueueQuietly(Mono<Void> enqueue) {
+        return enqueue.onErrorResume(e -> {
+            log.error("Could not write failure event to the outbox: {}", e.getMessage());
+            return Mono.empty();
+        });
+    }
+
+    static Money computeFinalBalance(TransactionRequestDTO request, Money initialBalance) {
+        return computeFinalBalance(request.getTransactionType(), Money.of(request.getAmount()), initialBalance);
+    }
+
+    static Money computeFinalBalance(String transactionType, Money amount, Money initialBalance) {
+        if ("DEPOSIT".equalsIgnoreCase(transactionType)) {
+            return initialBalance.add(amount);
+        } else if ("WITHDRAWAL".equalsIgnoreCase(transactionType)) {
+            if (amount.compareTo(initialBalance) > 0) {
+                throw new IllegalArgumentException("Insufficient balance");
+            }
+            return initialBalance.subtract(amount);
+        }
+        throw new IllegalArgumentException("Invalid transaction type");
+    }
 
     private Mono<TransactionResponseDTO> processTransaction(
             TransactionRequestDTO request,
-            AccountDTO account) {
-        BigDecimal initialBalance = account.getBalance();
-        BigDecimal finalBalance;
-
-        if ("DEPOSIT".equalsIgnoreCase(request.getTransactionType())) {
-            finalBalance = initialBalance.add(request.getAmount());
-        } else if ("WITHDRAWAL".equalsIgnoreCase(request.getTransactionType())) {
-            if (request.getAmount().compareTo(initialBalance) > 0) {
-                return Mono.error(new IllegalArgumentException("Insufficient balance"));
-            }
-            finalBalance = initialBalance.subtract(request.getAmount());
-        } else {
-            return Mono.error(new IllegalArgumentException("Invalid transaction type"));
+            AccountDTO account,
+            String transactionId,
+            TransactionLimitsEngine.AccountLimits limits) {
+        Money initialBalance;
+        Money finalBalance;
+        try {
+            initialBalance = Money.of(account.getBalance());
+            finalBalance = computeFinalBalance(request, initialBalance);
+        } catch (IllegalArgumentException e) {
+            accountCache.invalidate(request.getAccountId());
+            return Mono.error(e);
+        }
+        TransactionLimitsEngine.Reservation reservation;
+        try {
+            reservation = limits.tryAcquire(request.getTransactionType(), request.getAmount());
+        } catch (TransactionLimitExceededException e) {
+            return Mono.error(e);
         }
 
         Transaction transaction = mapDataToTransaction(request, initialBalance, finalBalance);
-        return transactionRepository.save(transaction)
-                .flatMap(savedTransaction -> webClient.post()
-                        .uri("/{id}/balance", request.getAccountId())
-                        .bodyValue(new UpdateBalanceRequest(finalBalance))
-                        .retrieve()
-                        .bodyToMono(Void.class)
-                        .then(Mono.fromRunnable(() ->
-                                messagePublisherService.publishTransactionMessage(
-                                        request.getTransactionType(),
-                                        request.getAccountId(),
-                                        request.getUserId(),
-                                        true,
-                                        String.valueOf(request.getAmount()),
-                                        String.valueOf(finalBalance)
-                                )
-                        ))
-                        .thenReturn(mapToResponse(savedTransaction))
+        transaction.setId(transactionId);
+        transaction.setAccountVersion(account.getVersion());
+        return metrics.stage(Stage.MONGO_SAVE, transactionWriter.insert(transaction))
+                .onErrorResume(e -> discardUnsent(List.of(transaction), e))
+                .flatMap(savedTransaction -> sendBalanceChange(List.of(savedTransaction), account,
+                                finalBalance.subtract(initialBalance), savedTransaction.getId())
+                        .onErrorResume(e -> markFailed(List.of(savedTransaction), e))
+                        .flatMap(updated -> markApplied(List.of(savedTransaction), Money.of(updated.getBalance()).subtract(finalBalance)))
+                        .map(applied -> applied.get(0)))
+                .flatMap(applied -> accountAggregateService.record(applied)
+                        .then(metrics.stage(Stage.OUTBOX_ENQUEUE, outboxService.enqueue(toEvent(applied, true)))
+                                .onErrorMap(RecordSettledException::new))
+                        .thenReturn(mapToResponse(applied))
                 )
                 .onErrorResume(e -> {
+                    accountCache.invalidate(request.getAccountId());
+                    if (e instanceof RecordSettledException settled) {
+                        // the saved record already says what happened (APPLIED, or PENDING for the reconciler)
+                        log.error("Transaction {} not completed: {}", transaction.getId(), settled.getCause().getMessage());
+                        return Mono.error(settled);
+                    }
                     log.error("Transaction failed: {}", e.getMessage());
-                    messagePublisherService.publishTransactionMessage(
-                            request.getTransactionType(),
-                            request.getAccountId(),
-                            request.getUserId(),
-                            false,
-                            String.valueOf(request.getAmount()),
-                            String.valueOf(finalBalance)
-                    );
-                    return Mono.error(e);
+                    transactionLimitsEngine.release(reservation);
+                    return enqueueQuietly(outboxService.enqueue(toEvent(transaction, false)))
+                            .then(Mono.error(e));
                 });
     }
 
-    static Transaction mapDataToTransaction(TransactionRequestDTO request, BigDecimal initialBalance, BigDecimal finalBalance) {
+    static Transaction mapDataToTransaction(TransactionRequestDTO request, Money initialBalance, Money finalBalance) {
         Transaction transaction = new Transaction();
         transaction.setAccountId(request.getAccountId());
-        transaction.setTransactionType(request.getTransactionType());
+        // stored upper-cased: history filters and the limits warm-up match the type exactly
+        transaction.setTransactionType(request.getTransactionType().toUpperCase(Locale.ROOT));
         transaction.setInitialBalance(initialBalance);
-        transaction.setAmount(request.getAmount());
+        transaction.setAmount(Money.of(request.getAmount()));
         transaction.setFinalBalance(finalBalance);
         transaction.setUserId(request.getUserId());
         transaction.setTimestamp(LocalDateTime.now());
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setStatusUpdatedAt(transaction.getTimestamp());
+        transaction.setBalanceRequested(false);
+        return transaction;
+    }
+
+    /**
+     * FAILED record for a request that was given up on before its transaction was saved. Inserted under the
+     * id reserved for it, it keeps a late insert of the same transaction from going through.
+     */
+    static Transaction abandoned(TransactionRequestDTO request, String transactionId, String reason) {
+        Transaction transaction = mapDataToTransaction(request, null, null);
+        transaction.setId(transactionId);
+        transaction.setStatus(TransactionStatus.FAILED);
+        transaction.setStatusReason(reason);
         return transaction;
     }
 
-    private TransactionResponseDTO mapToResponse(Transaction transaction) {
+    static TransactionResponseDTO mapToResponse(Transaction transaction) {
         TransactionResponseDTO response = new TransactionResponseDTO();
         response.setTransactionId(transaction.getId());
         response.setAccountId(transaction.getAccountId());
@@ -117,12 +395,67 @@ public class TransactionService {
         return response;
     }
 
-    public Flux<Transaction> streamTransactions(String accountId) {
-        return transactionRepository.findWithTailableCursorByAccountId(accountId);
+    public Flux<Transaction> streamTransactions(String accountId, String lastEventId, LocalDateTime since) {
+        return transactionQueryService.resumePoint(lastEventId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMapMany(after -> after.isEmpty() && since == null
+                        ? transactionStreamHub.subscribe(accountId)
+                        : resumeStream(accountId, after.orElse(null), since));
+    }
+
+    // The live subscription is opened before the backfill starts so nothing inserted meanwhile is lost.
+    // Live inserts at or before the resume point (the hub replays its last few to every subscriber) are
+    // dropped; settlements always pass, since they can concern a transaction the client saw while PENDING.
+    // The rest are checked against the state each backfilled transaction was sent in until an event arrives
+    // from past the end of the backfill: from then on the two sides have joined. A transaction only ever
+    // moves from PENDING to a settled status, so a live copy of the sent state, or a PENDING one after a
+    // settled state was sent, is dropped. Ids are not compared by order: ids from other instances, or
+    // assigned before the insert, can sort lower.
+    private Flux<Transaction> resumeStream(String accountId, TransactionQueryService.HistoryCursor after, LocalDateTime since) {
+        return transactionStreamHub.subscribe(accountId).publish(live -> {
+            Map<String, String> backfilled = new ConcurrentHashMap<>();
+            AtomicReference<TransactionQueryService.HistoryCursor> backfillEnd = new AtomicReference<>(after);
+            AtomicBoolean joined = new AtomicBoolean();
+            return Flux.concat(
+                    transactionQueryService.backfill(accountId, after, since)
+                            .doOnNext(transaction -> {
+                                backfilled.put(transaction.getId(), String.valueOf(transaction.getStatus()));
+                                backfillEnd.set(TransactionQueryService.HistoryCursor.of(transaction));
+                            }),
+                    // subscribed once the backfill has completed, so the map is no longer written
+                    live.filter(transaction -> (after == null || !isInsert(transaction) || after.isBefore(transaction))
+                                    && (since == null || !transaction.getTimestamp().isBefore(since)))
+                            .filter(transaction -> {
+                                if (joined.get()) {
+                                    return true;
+                                }
+                                String sent = backfilled.get(transaction.getId());
+                                if (sent != null) {
+                                    if (isInsert(transaction)) {
+                                        return false;
+                                    }
+                                    backfilled.remove(transaction.getId());
+                                    return !sent.equals(String.valueOf(transaction.getStatus()));
+                                }
+                                TransactionQueryService.HistoryCursor end = backfillEnd.get();
+                                if (end == null || end.isBefore(transaction)) {
+                                    joined.set(true);
+                                    backfilled.clear();
+                                }
+                                return true;
+                            }));
+        });
+    }
+
+    /** Transactions are inserted PENDING (or, before the lifecycle existed, without a status). */
+    private static boolean isInsert(Transaction transaction) {
+        return transaction.getStatus() == null || transaction.getStatus() == TransactionStatus.PENDING;
     }
 
     public Mono<Boolean> existsByAccountId(String accountId) {
-        return transactionRepository.existsByAccountId(accountId);
+        return transactionRepository.existsByAccountId(accountId)
+                .flatMap(exists -> exists ? Mono.just(true) : transactionQueryService.existsInArchive(accountId));
     }
 }
 
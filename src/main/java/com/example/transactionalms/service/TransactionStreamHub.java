@@ -0,0 +1,146 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * One change-stream subscription per instance on the {@code transactions} collection, fanned out to
+ * SSE subscribers through a per-account multicast registry. Subscribers get each transaction when it is
+ * inserted PENDING and again once it is settled; the settling write may be an update or a versioned
+ * replace, so both are passed with the full document when they leave a status other than PENDING. Each account keeps a small replay buffer
+ * and every subscriber gets its own bounded buffer that drops the oldest events when it falls behind.
+ */
+@Slf4j
+@Component
+public class TransactionStreamHub {
+
+    private final Supplier<Flux<Transaction>> source;
+    private final int replaySize;
+    private final int subscriberBuffer;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger activeSubscribers = new AtomicInteger();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Counter dropped;
+    private volatile Disposable upstream;
+
+    @Autowired
+    public TransactionStreamHub(
+            ReactiveMongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${transactions.stream.replay-size:16}") int replaySize,
+            @Value("${transactions.stream.subscriber-buffer:256}") int subscriberBuffer) {
+        this(() -> mongoTemplate.changeStream(Transaction.class)
+                        .withOptions(options -> options.returnFullDocumentOnUpdate())
+                        .watchCollection("transactions")
+                        .filter(new Criteria().orOperator(
+                                where("operationType").is("insert"),
+                                where("operationType").in("update", "replace")
+                                        .and("fullDocument.status").ne(TransactionStatus.PENDING.name())))
+                        .listen()
+                        .mapNotNull(ChangeStreamEvent::getBody),
+                meterRegistry, replaySize, subscriberBuffer);
+    }
+
+    TransactionStreamHub(Supplier<Flux<Transaction>> source, MeterRegistry meterRegistry, int replaySize, int subscriberBuffer) {
+        this.source = source;
+        this.replaySize = replaySize;
+        this.subscriberBuffer = subscriberBuffer;
+        this.dropped = Counter.builder("transaction.stream.dropped")
+                .description("Events dropped for slow stream subscribers")
+                .register(meterRegistry);
+        Gauge.builder("transaction.stream.subscribers", activeSubscribers, AtomicInteger::get)
+                .description("Active transaction stream subscribers")
+                .register(meterRegistry);
+        Gauge.builder("transaction.stream.accounts", channels, Map::size)
+                .description("Accounts with at least one stream subscriber")
+                .register(meterRegistry);
+    }
+
+    public Flux<Transaction> subscribe(String accountId) {
+        return Flux.defer(() -> {
+            ensureStarted();
+            Channel channel = acquire(accountId);
+            return channel.sink.asFlux()
+                    .onBackpressureBuffer(subscriberBuffer, event -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST)
+                    .doOnSubscribe(s -> activeSubscribers.incrementAndGet())
+                    .doFinally(signal -> {
+                        activeSubscribers.decrementAndGet();
+                        release(accountId);
+                    });
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        Disposable current = upstream;
+        if (current != null) {
+            current.dispose();
+        }
+        channels.values().forEach(channel -> channel.sink.tryEmitComplete());
+    }
+
+    private void ensureStarted() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        upstream = Flux.defer(source)
+                .doOnError(e -> log.warn("Transaction change stream failed, reconnecting: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(this::dispatch);
+    }
+
+    private void dispatch(Transaction transaction) {
+        Channel channel = channels.get(transaction.getAccountId());
+        if (channel != null) {
+            channel.sink.tryEmitNext(transaction);
+        }
+    }
+
+    private Channel acquire(String accountId) {
+        return channels.compute(accountId, (id, channel) -> {
+            Channel current = channel != null ? channel : new Channel(replaySize);
+            current.references++;
+            return current;
+        });
+    }
+
+    private void release(String accountId) {
+        channels.computeIfPresent(accountId, (id, channel) -> --channel.references == 0 ? null : channel);
+    }
+
+    private static final class Channel {
+        private final Sinks.Many<Transaction> sink;
+        private int references; // guarded by the map entry
+
+        private Channel(int replaySize) {
+            this.sink = replaySize > 0
+                    ? Sinks.many().replay().limit(replaySize)
+                    : Sinks.many().multicast().directBestEffort();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.repository.TransactionRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteConcernException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts new transactions. With {@code mongo.write-coalescing.enabled}, single inserts from concurrent
+ * requests are buffered for up to {@code max-wait} or {@code max-batch-size} documents and written with one
+ * unordered {@code insertMany}; each caller completes with the outcome of its own document. Inserts from
+ * {@code POST /transactions} and {@code POST /transactions/batch} use the write concern configured for that
+ * endpoint under {@code mongo.write-concern.*}; left blank, the connection string's default applies.
+ */
+@Service
+public class TransactionWriter {
+
+    private static final String COLLECTION = "transactions";
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+    private static final InsertManyOptions ORDERED = new InsertManyOptions().ordered(true);
+
+    private final TransactionRepository repository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MongoExceptionTranslator exceptionTranslator = new MongoExceptionTranslator();
+    private final boolean coalescing;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final int concurrency;
+    private final WriteConcern transactionsWriteConcern;
+    private final WriteConcern batchWriteConcern;
+    private final Sinks.Many<Pending> sink = Sinks.many().unicast().onBackpressureBuffer();
+    private final DistributionSummary batchSizes;
+    private Disposable pipeline;
+
+    public TransactionWriter(
+            TransactionRepository repository,
+            ReactiveMongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${mongo.write-coalescing.enabled:true}") boolean coalescing,
+            @Value("${mongo.write-coalescing.max-batch-size:64}") int maxBatchSize,
+            @Value("${mongo.write-coalescing.max-wait:2ms}") Duration maxWait,
+            @Value("${mongo.write-coalescing.concurrency:4}") int concurrency,
+            @Value("${mongo.write-concern.transactions:}") String transactionsWriteConcern,
+            @Value("${mongo.write-concern.batch:}") String batchWriteConcern) {
+        this.repository = repository;
+        this.mongoTemplate = mongoTemplate;
+        this.coalescing = coalescing;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.concurrency = concurrency;
+        this.transactionsWriteConcern = writeConcern(transactionsWriteConcern);
+        this.batchWriteConcern = writeConcern(batchWriteConcern);
+        this.batchSizes = DistributionSummary.builder("transaction.insert.batch.size")
+                .description("Transactions written per coalesced insertMany")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!coalescing) {
+            return;
+        }
+        pipeline = sink.asFlux()
+                // fairBackpressure: the default variant can miss the timed flush of a partial batch
+                .bufferTimeout(maxBatchSize, maxWait, true)
+                .flatMap(this::insertCoalesced, concurrency)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        sink.tryEmitComplete();
+        if (pipeline != null) {
+            pipeline.dispose();
+        }
+    }
+
+    /**
+     * Insert for {@code POST /transactions}. The id is assigned before the write, so a caller whose insert
+     * failed can still find the document if it was stored after all.
+     */
+    public Mono<Transaction> insert(Transaction transaction) {
+        if (coalescing) {
+            return Mono.create(monoSink -> sink.emitNext(new Pending(transaction, toDocument(transaction), monoSink),
+                    Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1))));
+        }
+        if (transactionsWriteConcern == null) {
+            assignId(transaction);
+            return repository.save(transaction);
+        }
+        return Mono.defer(() -> insertMany(List.of(toDocument(transaction)), transactionsWriteConcern, ORDERED))
+                .onErrorMap(RuntimeException.class, this::translate)
+                .thenReturn(transaction);
+    }
+
+    /** Insert for {@code POST /transactions/batch}: all documents of one account, in order. */
+    public Flux<Transaction> insertAll(List<Transaction> transactions) {
+        if (batchWriteConcern == null) {
+            transactions.forEach(TransactionWriter::assignId);
+            return repository.insert(transactions);
+        }
+        return Mono.defer(() -> insertMany(transactions.stream().map(this::toDocument).toList(), batchWriteConcern, ORDERED))
+                .onErrorMap(RuntimeException.class, this::translate)
+                .thenMany(Flux.fromIterable(transactions));
+    }
+
+    private Mono<Void> insertCoalesced(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        List<Document> documents = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            documents.add(pending.document);
+        }
+        return insertMany(documents, transactionsWriteConcern, UNORDERED)
+                .doOnSuccess(ignored -> batch.forEach(Pending::succeed))
+                .onErrorResume(e -> {
+                    completeFailed(batch, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * An unordered insert reports a write error per rejected document and still writes the others, so only
+     * their callers fail with their own error. After a write concern error the others are stored but not
+     * confirmed, and fail with that error. Anything else fails the whole batch; the callers mark their
+     * documents FAILED in case some were stored anyway.
+     */
+    private void completeFailed(List<Pending> batch, Throwable error) {
+        if (error instanceof MongoBulkWriteException bulk) {
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            for (BulkWriteError writeError : bulk.getWriteErrors()) {
+                errors.put(writeError.getIndex(), writeError);
+            }
+            RuntimeException unconfirmed = bulk.getWriteConcernError() == null ? null : translate(new MongoWriteConcernException(
+                    bulk.getWriteConcernError(), null, bulk.getServerAddress(), bulk.getErrorLabels()));
+            for (int i = 0; i < batch.size(); i++) {
+                BulkWriteError writeError = errors.get(i);
+                if (writeError == null && unconfirmed == null) {
+                    batch.get(i).succeed();
+                } else if (writeError == null) {
+                    batch.get(i).monoSink.error(unconfirmed);
+                } else {
+                    batch.get(i).monoSink.error(translate(
+                            new MongoWriteException(writeError, bulk.getServerAddress(), bulk.getErrorLabels())));
+                }
+            }
+            return;
+        }
+        Throwable translated = error instanceof RuntimeException runtime ? translate(runtime) : error;
+        batch.forEach(pending -> pending.monoSink.error(translated));
+    }
+
+    private Mono<Void> insertMany(List<Document> documents, WriteConcern writeConcern, InsertManyOptions options) {
+        return mongoTemplate.getCollection(COLLECTION)
+                .flatMap(collection -> Mono.from((writeConcern == null ? collection : collection.withWriteConcern(writeConcern))
+                        .insertMany(documents, options)))
+                .then();
+    }
+
+    private static void assignId(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(new ObjectId().toHexString());
+        }
+    }
+
+    /** Same id and version the repository's insert would assign. */
+    private Document toDocument(Transaction transaction) {
+        assignId(transaction);
+        if (transaction.getVersion() == null) {
+            transaction.setVersion(0L);
+        }
+        Document document = new Document();
+        mongoTemplate.getConverter().write(transaction, document);
+        return document;
+    }
+
+    private RuntimeException translate(RuntimeException error) {
+        DataAccessException translated = exceptionTranslator.translateExceptionIfPossible(error);
+        return translated != null ? translated : error;
+    }
+
+    static WriteConcern writeConcern(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        WriteConcern writeConcern = WriteConcern.valueOf(name.trim());
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown write concern: " + name);
+        }
+        return writeConcern;
+    }
+
+    private record Pending(Transaction transaction, Document document, MonoSink<Transaction> monoSink) {
+
+        void succeed() {
+            monoSink.success(transaction);
+        }
+    }
+}
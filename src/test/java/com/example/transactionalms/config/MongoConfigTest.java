@@ -0,0 +1,78 @@
+package com.example.transactionalms.config;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.OutboxEvent;
+import com.example.transactionalms.model.Transaction;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MongoConfigTest {
+
+    /** The converter Spring Boot builds around {@link MongoConfig#mongoCustomConversions()}. */
+    public static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoConfig().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    @Test
+    void testMoneyIsWrittenAsTheSameDecimal128AsItsBigDecimal() {
+        for (long units : new long[]{0, 1, -1, 1050, -99_999_99, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            Money money = Money.ofMinor(units);
+            Decimal128 written = MongoConfig.MoneyToDecimal128.INSTANCE.convert(money);
+
+            assertEquals(new Decimal128(money.toBigDecimal()), written, money.toString());
+            assertEquals(money.toBigDecimal(), written.bigDecimalValue());
+            assertEquals(money, MongoConfig.Decimal128ToMoney.INSTANCE.convert(written));
+        }
+    }
+
+    @Test
+    void testOtherEncodingsAreStillRead() {
+        assertEquals(Money.of("12.50"), MongoConfig.Decimal128ToMoney.INSTANCE.convert(new Decimal128(new BigDecimal("12.5"))));
+        assertEquals(Money.of("12.50"), MongoConfig.Decimal128ToMoney.INSTANCE.convert(Decimal128.parse("1.25E+1")));
+        assertEquals(Money.of("-3.00"), MongoConfig.StringToMoney.INSTANCE.convert("-3"));
+        assertThrows(IllegalArgumentException.class,
+                () -> MongoConfig.Decimal128ToMoney.INSTANCE.convert(new Decimal128(new BigDecimal("0.001"))));
+    }
+
+    @Test
+    void testAmountsAreStoredAsDecimal128() {
+        MappingMongoConverter converter = converter();
+        Transaction transaction = new Transaction();
+        transaction.setId(new ObjectId().toHexString());
+        transaction.setAmount(Money.of("10.50"));
+        OutboxEvent outboxEvent = new OutboxEvent(new TransactionEvent(transaction.getId(), "a1", "u1", "DEPOSIT",
+                new BigDecimal("10.50"), new BigDecimal("110.50"), true, 1L));
+
+        Document transactionDocument = new Document();
+        converter.write(transaction, transactionDocument);
+        Document outboxDocument = new Document();
+        converter.write(outboxEvent, outboxDocument);
+
+        assertInstanceOf(ObjectId.class, transactionDocument.get("_id"));
+        assertEquals(new Decimal128(new BigDecimal("10.50")), transactionDocument.get("amount"));
+        Document payload = outboxDocument.get("payload", Document.class);
+        assertEquals(new Decimal128(new BigDecimal("110.50")), payload.get("finalBalance"));
+        assertEquals(new BigDecimal("110.50"), converter.read(OutboxEvent.class, outboxDocument).getPayload().getFinalBalance());
+        // documents written before the converters kept BigDecimal as a string
+        payload.put("finalBalance", "110.50");
+        assertEquals(new BigDecimal("110.50"), converter.read(OutboxEvent.class, outboxDocument).getPayload().getFinalBalance());
+    }
+}
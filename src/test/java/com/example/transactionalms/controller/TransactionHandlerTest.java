@@ -3,11 +3,18 @@ package com.example.transactionalms.controller;
 import com.example.transactionalms.dto.TransactionRequestDTO;
 import com.example.transactionalms.dto.TransactionResponseDTO;
 import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.dto.TransactionHistoryQuery;
+import com.example.transactionalms.dto.TransactionPageDTO;
+import com.example.transactionalms.service.IdempotencyService;
+import com.example.transactionalms.service.TransactionLimitExceededException;
+import com.example.transactionalms.service.TransactionQueryService;
 import com.example.transactionalms.service.TransactionService;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
@@ -16,10 +23,16 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +41,16 @@ class TransactionHandlerTest {
     @Mock
     private TransactionService transactionService;
 
+    @Mock
+    private TransactionQueryService transactionQueryService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Spy
+    private TransactionRequestValidator requestValidator =
+            new TransactionRequestValidator(Validation.buildDefaultValidatorFactory().getValidator());
+
     @InjectMocks
     private TransactionHandler transactionHandler;
 
@@ -41,6 +64,7 @@ class TransactionHandlerTest {
                 .thenReturn(Mono.just(responseDTO));
 
         ServerRequest request = mock(ServerRequest.class);
+        stubIdempotencyKey(request, null);
         when(request.bodyToMono(TransactionRequestDTO.class)).thenReturn(Mono.just(requestDTO));
 
         // Act
@@ -61,6 +85,7 @@ class TransactionHandlerTest {
                 .thenReturn(Mono.error(new IllegalArgumentException("Insufficient balance for the withdrawal")));
 
         ServerRequest request = mock(ServerRequest.class);
+        stubIdempotencyKey(request, null);
         when(request.bodyToMono(TransactionRequestDTO.class)).thenReturn(Mono.just(requestDTO));
 
         // Act
@@ -72,6 +97,28 @@ class TransactionHandlerTest {
                 .verifyComplete();
     }
 
+    @Test
+    void testPerformTransaction_LimitExceeded() {
+        // Arrange
+        TransactionRequestDTO requestDTO = new TransactionRequestDTO("1", "WITHDRAWAL", new BigDecimal("200.00"), "user123");
+
+        when(transactionService.performTransaction(any(TransactionRequestDTO.class)))
+                .thenReturn(Mono.error(new TransactionLimitExceededException(TransactionLimitExceededException.DAILY_AMOUNT,
+                        "WITHDRAWAL", new BigDecimal("1000.00"), new BigDecimal("900.00"), "Se superó el monto máximo diario.")));
+
+        ServerRequest request = mock(ServerRequest.class);
+        stubIdempotencyKey(request, null);
+        when(request.bodyToMono(TransactionRequestDTO.class)).thenReturn(Mono.just(requestDTO));
+
+        // Act
+        Mono<ServerResponse> result = transactionHandler.performTransaction(request);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(serverResponse -> serverResponse.statusCode().value() == 422)
+                .verifyComplete();
+    }
+
     @Test
     void testStreamTransactions_MissingAccountId() {
         // Arrange
@@ -139,6 +186,7 @@ class TransactionHandlerTest {
         TransactionRequestDTO invalidDTO = new TransactionRequestDTO("", "", BigDecimal.ZERO, "");
 
         ServerRequest request = mock(ServerRequest.class);
+        stubIdempotencyKey(request, null);
         when(request.bodyToMono(TransactionRequestDTO.class)).thenReturn(Mono.just(invalidDTO));
 
         // Act
@@ -161,6 +209,7 @@ class TransactionHandlerTest {
                 .thenReturn(Mono.just(responseDTO));
 
         ServerRequest request = mock(ServerRequest.class);
+        stubIdempotencyKey(request, null);
         when(request.bodyToMono(TransactionRequestDTO.class)).thenReturn(Mono.just(requestDTO));
 
         // Act
@@ -203,6 +252,7 @@ class TransactionHandlerTest {
                 .thenReturn(Mono.error(new RuntimeException("Error interno del servidor")));
 
         ServerRequest request = mock(ServerRequest.class);
+        stubIdempotencyKey(request, null);
         when(request.bodyToMono(TransactionRequestDTO.class)).thenReturn(Mono.just(requestDTO));
 
         // Act
@@ -221,8 +271,12 @@ class TransactionHandlerTest {
         ServerRequest request = mock(ServerRequest.class);
         when(request.queryParam("accountId")).thenReturn(Optional.of("123"));
 
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(request.headers()).thenReturn(headers);
+        when(headers.firstHeader("Last-Event-ID")).thenReturn("65a1f0c2e4b0a1b2c3d4e5f6");
+
         when(transactionService.existsByAccountId("123")).thenReturn(Mono.just(true));
-        when(transactionService.streamTransactions("123"))
+        when(transactionService.streamTransactions("123", "65a1f0c2e4b0a1b2c3d4e5f6", null))
                 .thenReturn(Flux.just(new Transaction()));
 
         // Act
@@ -234,4 +288,105 @@ class TransactionHandlerTest {
                 .verifyComplete();
     }
 
+    @Test
+    void testStreamTransactions_InvalidSince() {
+        // Arrange
+        ServerRequest request = mock(ServerRequest.class);
+        when(request.queryParam("accountId")).thenReturn(Optional.of("123"));
+        when(request.queryParam("since")).thenReturn(Optional.of("ayer"));
+
+        // Act
+        Mono<ServerResponse> result = transactionHandler.streamTransactions(request);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(response -> response.statusCode().is4xxClientError())
+                .verifyComplete();
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void testGetHistory_Success() {
+        // Arrange
+        ServerRequest request = mock(ServerRequest.class);
+        when(request.queryParam(anyString())).thenReturn(Optional.empty());
+        when(request.queryParam("accountId")).thenReturn(Optional.of("123"));
+        when(request.queryParam("limit")).thenReturn(Optional.of("10"));
+        when(request.queryParam("fields")).thenReturn(Optional.of("amount, finalBalance"));
+        when(transactionQueryService.findHistory(any(TransactionHistoryQuery.class)))
+                .thenReturn(Mono.just(new TransactionPageDTO(List.of(new Transaction()), null)));
+
+        // Act
+        Mono<ServerResponse> result = transactionHandler.getHistory(request);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(response -> response.statusCode().is2xxSuccessful())
+                .verifyComplete();
+        verify(transactionQueryService).findHistory(argThat(query -> "123".equals(query.getAccountId())
+                && query.getLimit() == 10
+                && query.getFields().equals(List.of("amount", "finalBalance"))));
+    }
+
+    @Test
+    void testGetHistory_InvalidDate() {
+        // Arrange
+        ServerRequest request = mock(ServerRequest.class);
+        when(request.queryParam(anyString())).thenReturn(Optional.empty());
+        when(request.queryParam("from")).thenReturn(Optional.of("2024-13-45"));
+
+        // Act
+        Mono<ServerResponse> result = transactionHandler.getHistory(request);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(response -> response.statusCode().is4xxClientError())
+                .verifyComplete();
+        verifyNoInteractions(transactionQueryService);
+    }
+
+    @Test
+    void testPerformTransaction_WithIdempotencyKey() {
+        // Arrange
+        TransactionRequestDTO requestDTO = new TransactionRequestDTO("1", "DEPOSIT", new BigDecimal("100.00"), "1");
+
+        when(idempotencyService.execute(eq("key-1"), any(TransactionRequestDTO.class), any()))
+                .thenReturn(Mono.just(new TransactionResponseDTO()));
+
+        ServerRequest request = mock(ServerRequest.class);
+        stubIdempotencyKey(request, "key-1");
+        when(request.bodyToMono(TransactionRequestDTO.class)).thenReturn(Mono.just(requestDTO));
+
+        // Act
+        Mono<ServerResponse> result = transactionHandler.performTransaction(request);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(serverResponse -> serverResponse.statusCode().is2xxSuccessful())
+                .verifyComplete();
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void testServerSentEventsEndWithTheirSource() {
+        Transaction transaction = new Transaction();
+        transaction.setId("65a1f0c2e4b0a1b2c3d4e5f1");
+        transaction.setTimestamp(LocalDateTime.of(2024, 5, 1, 10, 0));
+
+        StepVerifier.create(TransactionHandler.toServerSentEvents(Flux.just(transaction)))
+                // the event id is the resume position, not just the transaction id
+                .expectNextMatches(event -> TransactionQueryService.eventId(transaction).equals(event.id()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(TransactionHandler.toServerSentEvents(Flux.error(new IllegalStateException("hub closed"))))
+                .expectErrorMessage("hub closed")
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private static void stubIdempotencyKey(ServerRequest request, String key) {
+        ServerRequest.Headers headers = mock(ServerRequest.Headers.class);
+        when(request.headers()).thenReturn(headers);
+        when(headers.firstHeader("Idempotency-Key")).thenReturn(key);
+    }
+
 }
@@ -0,0 +1,64 @@
+package com.example.transactionalms.controller;
+
+import com.example.transactionalms.dto.FieldViolationDTO;
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TransactionRequestValidatorTest {
+
+    private final TransactionRequestValidator validator =
+            new TransactionRequestValidator(Validation.buildDefaultValidatorFactory().getValidator());
+
+    @Test
+    void testValidRequestHasNoViolations() {
+        TransactionRequestDTO request = new TransactionRequestDTO("1", "DEPOSIT", new BigDecimal("0.01"), "user123");
+
+        assertSame(List.of(), validator.validate(request));
+    }
+
+    @Test
+    void testViolationsComeInFieldOrder() {
+        List<FieldViolationDTO> violations = validator.validate(new TransactionRequestDTO(" ", null, BigDecimal.ZERO, "\t"));
+
+        assertEquals(List.of("accountId", "transactionType", "amount", "userId"),
+                violations.stream().map(FieldViolationDTO::getField).toList());
+        assertEquals("El monto debe ser mayor a cero.", violations.get(2).getMessage());
+        assertEquals("accountId: El accountId no puede estar vacío., transactionType: El tipo de transacción no puede estar vacío.",
+                TransactionRequestValidator.describe(violations.subList(0, 2)));
+    }
+
+    @Test
+    void testFastPathMatchesBeanValidation() {
+        List<String> texts = new ArrayList<>();
+        texts.add(null);
+        texts.addAll(List.of("", " ", "\t\n", "\u00a0", "a", " a "));
+        List<BigDecimal> amounts = new ArrayList<>();
+        amounts.add(null);
+        amounts.addAll(List.of(new BigDecimal("-1"), BigDecimal.ZERO, new BigDecimal("0.009"),
+                new BigDecimal("0.01"), new BigDecimal("0.010"), new BigDecimal("1E+3")));
+
+        for (String text : texts) {
+            for (BigDecimal amount : amounts) {
+                TransactionRequestDTO request = new TransactionRequestDTO(text, "DEPOSIT", amount, text);
+                assertEquals(asSet(validator.validateWithBeanValidation(request)), asSet(validator.validate(request)),
+                        "accountId/userId=" + text + ", amount=" + amount);
+            }
+        }
+    }
+
+    private static Set<String> asSet(List<FieldViolationDTO> violations) {
+        return violations.stream()
+                .map(violation -> violation.getField() + ": " + violation.getMessage())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.transactionalms.messaging;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    private final TransactionEvent event = new TransactionEvent("65a1f0c2e4b0a1b2c3d4e5f6", "account123", "user123",
+            "WITHDRAWAL", new BigDecimal("100.00"), new BigDecimal("1250.75"), true, 1_700_000_000_000L);
+
+    @Test
+    void testStructuredCodecsRoundTrip() {
+        for (MessageCodec codec : List.of(JacksonMessageCodec.json(), JacksonMessageCodec.smile(),
+                JacksonMessageCodec.cbor(), new BinaryMessageCodec())) {
+            assertEquals(event, codec.decode(codec.encode(event)), codec.contentType());
+        }
+    }
+
+    @Test
+    void testBinaryCodecHandlesNullsAndUnknownType() {
+        TransactionEvent unusual = new TransactionEvent(null, "account123", null, "TRANSFER",
+                new BigDecimal("-1E+3"), null, false, -1L);
+        BinaryMessageCodec codec = new BinaryMessageCodec();
+
+        assertEquals(unusual, codec.decode(codec.encode(unusual)));
+    }
+
+    @Test
+    void testBinaryIsSmallerThanJsonAndLegacy() {
+        int binary = new BinaryMessageCodec().encode(event).length;
+        int json = JacksonMessageCodec.json().encode(event).length;
+        int legacy = new LegacyTextMessageEncoder().encode(event).length;
+
+        assertTrue(binary < json, "binary=" + binary + " json=" + json);
+        assertTrue(json < legacy, "json=" + json + " legacy=" + legacy);
+    }
+
+    @Test
+    void testLegacyCodecKeepsTextMessage() {
+        String body = new String(new LegacyTextMessageEncoder().encode(event), StandardCharsets.UTF_8);
+
+        assertTrue(body.contains("una WITHDRAWAL en la cuenta account123 por el usuario user123"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.transactionalms.model;
+
+import com.example.transactionalms.dto.TransactionResponseDTO;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testConversionIsExact() {
+        assertEquals(1050, Money.of("10.50").minorUnits());
+        assertEquals(1000, Money.of("10").minorUnits());
+        assertEquals(1000, Money.of("10.000").minorUnits());
+        assertEquals(Money.of("10.5"), Money.of(new BigDecimal("1.05E+1")));
+        assertEquals(new BigDecimal("-0.07"), Money.ofMinor(-7).toBigDecimal());
+        assertThrows(IllegalArgumentException.class, () -> Money.of("10.005"));
+        assertThrows(IllegalArgumentException.class, () -> Money.of("1E+17"));
+    }
+
+    @Test
+    void testArithmeticFailsOnOverflow() {
+        assertEquals(Money.of("0.30"), Money.of("0.10").add(Money.of("0.20")));
+        assertTrue(Money.of("5.00").subtract(Money.of("5.01")).isNegative());
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).add(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).subtract(Money.ofMinor(1)));
+    }
+
+    @Test
+    void testToStringIsPlainDecimal() {
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("1234.05", Money.ofMinor(123405).toString());
+        assertEquals("-0.50", Money.ofMinor(-50).toString());
+        assertEquals("-12.05", Money.ofMinor(-1205).toString());
+        assertEquals(Money.ofMinor(Long.MIN_VALUE).toBigDecimal().toPlainString(), Money.ofMinor(Long.MIN_VALUE).toString());
+    }
+
+    @Test
+    void testJsonIsAPlainNumber() throws Exception {
+        JsonMapper mapper = JsonMapper.builder().build();
+        TransactionResponseDTO response = new TransactionResponseDTO("t1", "a1", "DEPOSIT",
+                Money.of("100.00"), Money.of("15.5"), Money.of("115.50"), "SUCCESS");
+
+        String json = mapper.writeValueAsString(response);
+
+        assertTrue(json.contains("\"amount\":15.50"), json);
+        assertEquals(Money.of("115.50"), mapper.readValue(json, TransactionResponseDTO.class).getFinalBalance());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.AccountAggregate;
+import com.example.transactionalms.model.Transaction;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AccountAggregateServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final AccountAggregateService service = new AccountAggregateService(mongoTemplate, 2);
+
+    private static Transaction transaction(String type, String amount, String finalBalance, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId("account123");
+        transaction.setTransactionType(type);
+        transaction.setAmount(Money.of(amount));
+        transaction.setFinalBalance(Money.of(finalBalance));
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    @Test
+    void testRecordIncrementsOneBucketPerAccountAndDay() {
+        when(mongoTemplate.upsert(any(Query.class), any(AggregationUpdate.class), eq(AccountAggregate.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        service.record(List.of(
+                transaction("DEPOSIT", "100.00", "100.00", DAY.atTime(9, 15)),
+                transaction("WITHDRAWAL", "30.00", "70.00", DAY.atTime(9, 40)),
+                transaction("WITHDRAWAL", "20.00", "50.00", DAY.atTime(14, 5)))).block();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(AccountAggregate.class));
+        assertEquals("account123|2024-05-01", query.getValue().getQueryObject().get("_id"));
+
+        Document set = update.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$set", Document.class);
+        assertEquals(new Decimal128(new BigDecimal("100.00")), increment(set, "depositTotal"));
+        assertEquals(new Decimal128(new BigDecimal("50.00")), increment(set, "withdrawalTotal"));
+        assertEquals(1L, increment(set, "depositCount"));
+        assertEquals(2L, increment(set, "withdrawalCount"));
+        assertEquals(2L, increment(set, "hourlyCounts.09"));
+        assertEquals(1L, increment(set, "hourlyCounts.14"));
+        assertEquals(new Decimal128(new BigDecimal("50.00")), set.get("lastBalance", Document.class).getList("$cond", Object.class).get(1));
+    }
+
+    @Test
+    void testOlderRecordDoesNotOverwriteTheLastBalance() {
+        when(mongoTemplate.upsert(any(Query.class), any(AggregationUpdate.class), eq(AccountAggregate.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        service.record(transaction("DEPOSIT", "10.00", "60.00", DAY.atTime(9, 15))).block();
+
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(AccountAggregate.class));
+        Document set = update.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$set", Document.class);
+        // the balance is only taken when the record is at least as recent as the stored one
+        Date at = Date.from(DAY.atTime(9, 15).atZone(ZoneId.systemDefault()).toInstant());
+        List<Object> cond = set.get("lastBalance", Document.class).getList("$cond", Object.class);
+        assertEquals(new Document("$gte", List.of(at, "$lastTransactionAt")), cond.get(0));
+        assertEquals("$lastBalance", cond.get(2));
+        assertEquals(new Document("$max", List.of("$lastTransactionAt", at)), set.get("lastTransactionAt"));
+    }
+
+    private static Object increment(Document set, String field) {
+        return set.get(field, Document.class).getList("$add", Object.class).get(1);
+    }
+
+    @Test
+    void testRecordFailureDoesNotFailTheTransaction() {
+        when(mongoTemplate.upsert(any(Query.class), any(AggregationUpdate.class), eq(AccountAggregate.class)))
+                .thenReturn(Mono.error(new IllegalStateException("mongo down")));
+
+        assertDoesNotThrow(() -> service.record(transaction("DEPOSIT", "1.00", "1.00", DAY.atTime(10, 0))).block());
+    }
+
+    @Test
+    void testRebuildFoldsGroupedRowsIntoDailyAggregates() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("transactions"), eq(Document.class)))
+                .thenAnswer(invocation -> Flux.just(
+                        row("a1", "DEPOSIT", 9, "150.00", 2, "150.00", DAY.atTime(9, 30)),
+                        row("a1", "WITHDRAWAL", 11, "40.00", 1, "110.00", DAY.atTime(11, 0)),
+                        row("a1", "DEPOSIT", 11, "5.00", 1, "115.00", DAY.atTime(11, 45)),
+                        row("a2", "WITHDRAWAL", 8, "10.00", 1, "90.00", DAY.atTime(8, 0))));
+        when(mongoTemplate.save(any(AccountAggregate.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.remove(any(Query.class), eq(AccountAggregate.class))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        assertEquals(2L, service.rebuild(DAY, DAY).block());
+
+        ArgumentCaptor<AccountAggregate> saved = ArgumentCaptor.forClass(AccountAggregate.class);
+        verify(mongoTemplate, times(2)).save(saved.capture());
+        String rebuildId = saved.getAllValues().get(0).getRebuildId();
+        assertNotNull(rebuildId);
+        assertEquals(rebuildId, saved.getAllValues().get(1).getRebuildId());
+
+        // the aggregates of accounts whose transactions are no longer counted that day are dropped
+        ArgumentCaptor<Query> stale = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(stale.capture(), eq(AccountAggregate.class));
+        assertEquals(DAY, stale.getValue().getQueryObject().get("day"));
+        assertEquals(new Document("$ne", rebuildId), stale.getValue().getQueryObject().get("rebuildId"));
+
+        AccountAggregate a1 = saved.getAllValues().get(0);
+        assertEquals("a1|2024-05-01", a1.getId());
+        assertEquals(0, new BigDecimal("155.00").compareTo(a1.getDepositTotal()));
+        assertEquals(0, new BigDecimal("40.00").compareTo(a1.getWithdrawalTotal()));
+        assertEquals(3, a1.getDepositCount());
+        assertEquals(1, a1.getWithdrawalCount());
+        assertEquals(2L, a1.getHourlyCounts().get("11"));
+        assertEquals(0, new BigDecimal("115.00").compareTo(a1.getLastBalance()));
+        assertEquals(DAY.atTime(11, 45), a1.getLastTransactionAt());
+    }
+
+    @Test
+    void testRebuildRefusesDaysStillReceivingTransactions() {
+        LocalDate today = LocalDate.now();
+
+        assertThrows(IllegalArgumentException.class, () -> service.rebuild(today.minusDays(1), today).block());
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static Document row(String accountId, String type, int hour, String total, int count,
+                                String lastBalance, LocalDateTime lastAt) {
+        return new Document("_id", new Document("accountId", accountId).append("transactionType", type).append("hour", hour))
+                .append("total", new Decimal128(new BigDecimal(total)))
+                .append("count", count)
+                .append("lastBalance", new Decimal128(new BigDecimal(lastBalance)))
+                .append("lastAt", Date.from(lastAt.atZone(ZoneId.systemDefault()).toInstant()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.AccountDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Mono<AccountDTO> load(String accountId) {
+        loads.incrementAndGet();
+        return Mono.just(new AccountDTO(accountId, new BigDecimal("100.00")));
+    }
+
+    @Test
+    void testHitAfterFirstLoad() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccountCache cache = new AccountCache(true, 10, Duration.ofMinutes(1), registry);
+
+        cache.get("account123", this::load).block();
+        AccountDTO cached = cache.get("account123", this::load).block();
+
+        assertEquals(1, loads.get());
+        assertNotNull(cached);
+        assertEquals(new BigDecimal("100.00"), cached.getBalance());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "accounts").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void testWriteThroughAndInvalidate() {
+        AccountCache cache = new AccountCache(true, 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        cache.update(new AccountDTO("account123", new BigDecimal("42.00")));
+        assertEquals(new BigDecimal("42.00"), cache.get("account123", this::load).block().getBalance());
+        assertEquals(0, loads.get());
+
+        cache.invalidate("account123");
+        cache.get("account123", this::load).block();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testDisabledAlwaysLoads() {
+        AccountCache cache = new AccountCache(false, 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        cache.update(new AccountDTO("account123", new BigDecimal("42.00")));
+        cache.get("account123", this::load).block();
+        cache.get("account123", this::load).block();
+
+        assertEquals(2, loads.get());
+    }
+}
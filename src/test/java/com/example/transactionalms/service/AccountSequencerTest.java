@@ -0,0 +1,65 @@
+package com.example.transactionalms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountSequencerTest {
+
+    @Test
+    void testSameAccountRunsSequentially() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccountSequencer sequencer = new AccountSequencer(8, registry);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        List<Integer> results = Flux.range(0, 50)
+                .flatMap(i -> sequencer.submit("account123", () -> Mono.fromCallable(() -> {
+                            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                            return i;
+                        })
+                        .delayElement(Duration.ofMillis(1))
+                        .doOnTerminate(active::decrementAndGet)))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(results);
+        assertEquals(50, results.size());
+        assertEquals(1, maxActive.get());
+        assertEquals(50, registry.find("transaction.sequencer.wait").timers().stream()
+                .mapToLong(t -> t.count()).sum());
+    }
+
+    @Test
+    void testDifferentAccountsRunInParallel() {
+        AccountSequencer sequencer = new AccountSequencer(64, new SimpleMeterRegistry());
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        Flux.range(0, 20)
+                .flatMap(i -> sequencer.submit("account" + i, () -> Mono.fromRunnable(() ->
+                                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max))
+                        .then(Mono.delay(Duration.ofMillis(50)))
+                        .doFinally(s -> active.decrementAndGet())))
+                .blockLast(Duration.ofSeconds(10));
+
+        assertTrue(maxActive.get() > 1);
+    }
+
+    @Test
+    void testErrorReleasesStripe() {
+        AccountSequencer sequencer = new AccountSequencer(1, new SimpleMeterRegistry());
+
+        Mono<String> failed = sequencer.submit("account123", () -> Mono.error(new IllegalArgumentException("boom")));
+        assertThrows(IllegalArgumentException.class, failed::block);
+
+        assertEquals("ok", sequencer.submit("account123", () -> Mono.just("ok")).block(Duration.ofSeconds(1)));
+    }
+}
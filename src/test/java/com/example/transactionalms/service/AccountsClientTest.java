@@ -0,0 +1,157 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.AccountsClientProperties;
+import com.example.transactionalms.config.WebClientConfig;
+import com.example.transactionalms.dto.AccountDTO;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountsClientTest {
+
+    private MockWebServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private AccountsClientProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new AccountsClientProperties();
+        properties.setBaseUrl(server.url("/api/accounts").toString());
+        properties.setResponseTimeout(Duration.ofMillis(500));
+        properties.getRetry().setMinBackoff(Duration.ofMillis(10));
+        properties.getRetry().setMaxBackoff(Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private AccountsClient client() {
+        WebClient webClient = new WebClientConfig().accountsWebClient(WebClient.builder(), properties);
+        return new AccountsClient(webClient, properties, meterRegistry);
+    }
+
+    private static MockResponse account(String id, String balance) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"accountId\":\"" + id + "\",\"balance\":" + balance + "}");
+    }
+
+    @Test
+    void testGetIsRetriedOnServerErrors() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(account("a1", "150.00"));
+
+        AccountDTO account = client().getAccount("a1").block(Duration.ofSeconds(5));
+
+        assertNotNull(account);
+        assertEquals(0, new BigDecimal("150.00").compareTo(account.getBalance()));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2.0, meterRegistry.counter("accounts.client.retries").count());
+    }
+
+    @Test
+    void testSlowResponsesTimeOutAndAreRetriedOnlyForTheGet() {
+        properties.getRetry().setMaxAttempts(1);
+        AccountsClient client = client();
+        server.enqueue(account("a1", "1.00").setHeadersDelay(2, TimeUnit.SECONDS));
+        server.enqueue(account("a1", "1.00").setHeadersDelay(2, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setHeadersDelay(2, TimeUnit.SECONDS));
+
+        StepVerifier.create(client.getAccount("a1"))
+                .expectErrorMatches(AccountsClient::isTimeout)
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(client.updateBalance("a1", BigDecimal.TEN))
+                .expectErrorMatches(AccountsClient::isTimeout)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(3, server.getRequestCount());
+        assertEquals(3.0, meterRegistry.counter("accounts.client.timeouts").count());
+        assertEquals(1, meterRegistry.timer("accounts.client.requests", "operation", "update-balance", "outcome", "timeout").count());
+    }
+
+    @Test
+    void testClientErrorsAreNeitherRetriedNorRecordedByTheBreaker() {
+        AccountsClient client = client();
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        StepVerifier.create(client.getAccount("missing"))
+                .expectError(WebClientResponseException.NotFound.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, client.circuitBreaker().getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    void testCircuitOpensAfterRepeatedFailures() {
+        properties.getCircuitBreaker().setSlidingWindowSize(4);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(4);
+        AccountsClient client = client();
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(client.updateBalance("a1", BigDecimal.ONE))
+                    .expectError(WebClientResponseException.InternalServerError.class)
+                    .verify(Duration.ofSeconds(5));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, client.circuitBreaker().getState());
+
+        // rejected locally without reaching the accounts service, and not retried
+        StepVerifier.create(client.getAccount("a1"))
+                .expectError(CallNotPermittedException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(4, server.getRequestCount());
+        assertEquals(1.0, meterRegistry.get("resilience4j.circuitbreaker.state")
+                .tags("name", AccountsClient.NAME, "state", "open").gauge().value());
+    }
+
+    @Test
+    void testBulkheadShedsCallsBeyondTheConcurrencyLimit() {
+        properties.getBulkhead().setMaxConcurrentCalls(2);
+        properties.setResponseTimeout(Duration.ofSeconds(5));
+        AccountsClient client = client();
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(account("a" + i, "1.00").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        }
+
+        List<Object> results = Flux.range(0, 3)
+                .flatMap(i -> client.getAccount("a" + i)
+                        .<Object>map(AccountDTO::getAccountId)
+                        .onErrorResume(e -> Mono.just(e)))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(results);
+        assertEquals(1, results.stream().filter(BulkheadFullException.class::isInstance).count());
+        assertEquals(2, results.stream().filter(String.class::isInstance).count());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, meterRegistry.timer("accounts.client.requests", "operation", "get-account", "outcome", "bulkhead-full").count());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.VirtualThreads;
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.messaging.JacksonMessageCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockingMessagePublisherTest {
+
+    private final ScheduledExecutorService broker = Executors.newScheduledThreadPool(2);
+    private final Scheduler scheduler = Schedulers.newBoundedElastic(4, 10_000, "amqp-publisher-test");
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+        broker.shutdownNow();
+    }
+
+    private BlockingMessagePublisher publisher(ReactiveMessagePublisherTest.StubBrokerTemplate template, SimpleMeterRegistry registry) {
+        return publisher(template, registry, Duration.ofSeconds(5));
+    }
+
+    private BlockingMessagePublisher publisher(ReactiveMessagePublisherTest.StubBrokerTemplate template, SimpleMeterRegistry registry,
+                                               Duration confirmTimeout) {
+        return new BlockingMessagePublisher(template, JacksonMessageCodec.json(), scheduler, registry,
+                "queue-transaction", confirmTimeout);
+    }
+
+    private static TransactionEvent event(int i) {
+        return new TransactionEvent(String.valueOf(i), "account" + i, "user123", "DEPOSIT",
+                new BigDecimal("10.00"), new BigDecimal("110.00"), true, System.currentTimeMillis());
+    }
+
+    @Test
+    void testPublishWaitsForTheConfirm() {
+        ReactiveMessagePublisherTest.StubBrokerTemplate template =
+                new ReactiveMessagePublisherTest.StubBrokerTemplate(broker, 0, 0, 20, true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BlockingMessagePublisher publisher = publisher(template, registry);
+
+        StepVerifier.create(Flux.range(0, 20).flatMap(i -> publisher.publish(event(i))))
+                .verifyComplete();
+
+        assertEquals(20, template.published.get());
+        assertEquals(0, template.unconfirmed.get());
+        assertEquals(20.0, registry.get("amqp.publisher.confirms").tag("result", "ack").counter().count());
+    }
+
+    @Test
+    void testPublishFailsOnNack() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BlockingMessagePublisher publisher = publisher(
+                new ReactiveMessagePublisherTest.StubBrokerTemplate(broker, 0, 0, 1, false), registry);
+
+        StepVerifier.create(publisher.publish(event(1)))
+                .expectError(AmqpException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(1.0, registry.get("amqp.publisher.confirms").tag("result", "nack").counter().count());
+    }
+
+    @Test
+    void testConfirmTimeoutCountsAsNack() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BlockingMessagePublisher publisher = publisher(
+                new ReactiveMessagePublisherTest.StubBrokerTemplate(broker, 0, 0, 5_000, true), registry, Duration.ofMillis(100));
+
+        StepVerifier.create(publisher.publish(event(1)))
+                .expectErrorMatches(e -> e instanceof AmqpException && e.getMessage().contains("publisher confirm"))
+                .verify(Duration.ofSeconds(5));
+        assertEquals(1.0, registry.get("amqp.publisher.confirms").tag("result", "nack").counter().count());
+    }
+
+    @Test
+    void testVirtualThreadsNeedJava21() {
+        if (VirtualThreads.isSupported()) {
+            VirtualThreads.newExecutor("vt-test-").shutdown();
+        } else {
+            assertThrows(IllegalStateException.class, () -> VirtualThreads.newExecutor("vt-test-"));
+        }
+    }
+}
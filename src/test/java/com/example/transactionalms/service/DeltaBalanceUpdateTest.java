@@ -0,0 +1,156 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.AccountsClientProperties;
+import com.example.transactionalms.config.TransactionLimitsProperties;
+import com.example.transactionalms.config.WebClientConfig;
+import com.example.transactionalms.dto.AccountDTO;
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.dto.TransactionResponseDTO;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeltaBalanceUpdateTest {
+
+    private StandInAccountsService accounts;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        accounts = new StandInAccountsService(Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        accounts.close();
+    }
+
+    private AccountsClient client(AccountsClientProperties.BalanceUpdateMode mode, SimpleMeterRegistry meterRegistry) {
+        AccountsClientProperties properties = new AccountsClientProperties();
+        properties.setBaseUrl(accounts.baseUrl());
+        properties.setBalanceUpdateMode(mode);
+        properties.setConflictRetries(10);
+        properties.getRetry().setMinBackoff(Duration.ofMillis(2));
+        properties.getRetry().setMaxBackoff(Duration.ofMillis(50));
+        WebClient webClient = new WebClientConfig().accountsWebClient(WebClient.builder(), properties);
+        return new AccountsClient(webClient, properties, meterRegistry);
+    }
+
+    /** One application instance: its own sequencer and balance cache, sharing only the accounts service. */
+    private TransactionService instance(AccountsClient client) {
+        TransactionRepository repository = mock(TransactionRepository.class);
+        when(repository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            if (transaction.getId() == null) {
+                transaction.setId(new ObjectId().toHexString());
+            }
+            return Mono.just(transaction);
+        });
+        when(repository.saveAll(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.<Iterable<Transaction>>getArgument(0)));
+        when(repository.markBalanceRequested(anyCollection())).thenReturn(Mono.just(1L));
+        OutboxService outbox = mock(OutboxService.class);
+        when(outbox.enqueue(any())).thenReturn(Mono.empty());
+        AccountAggregateService aggregates = mock(AccountAggregateService.class);
+        when(aggregates.record(any(Transaction.class))).thenReturn(Mono.empty());
+        return new TransactionService(repository, client, outbox,
+                new AccountSequencer(16, new SimpleMeterRegistry()),
+                new AccountCache(true, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                mock(TransactionStreamHub.class), mock(TransactionQueryService.class),
+                aggregates, new TransactionLimitsEngine(new TransactionLimitsProperties(), null), new TransactionMetrics(new SimpleMeterRegistry()),
+                TransactionWriterTest.direct(repository));
+    }
+
+    @Test
+    void testConflictRefetchesAndRetriesTheDelta() {
+        accounts.open("a1", new BigDecimal("100.00"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AccountsClient client = client(AccountsClientProperties.BalanceUpdateMode.DELTA, meterRegistry);
+
+        AccountDTO stale = client.getAccount("a1").block();
+        assertNotNull(stale);
+        assertEquals(0L, stale.getVersion());
+        client.applyBalanceChange(stale, new BigDecimal("5.00"), null).block();
+
+        // the same stale read again: 412, refetch at version 1, then applied on top of the first change
+        AccountDTO updated = client.applyBalanceChange(stale, new BigDecimal("-30.00"), null).block();
+        assertNotNull(updated);
+        assertEquals(0, new BigDecimal("75.00").compareTo(updated.getBalance()));
+        assertEquals(2L, updated.getVersion());
+        assertEquals(1.0, meterRegistry.counter("accounts.client.balance.conflicts").count());
+    }
+
+    @Test
+    void testWithdrawalThatNoLongerFitsAfterAConflictIsRejected() {
+        accounts.open("a1", new BigDecimal("100.00"));
+        AccountsClient client = client(AccountsClientProperties.BalanceUpdateMode.DELTA, new SimpleMeterRegistry());
+        AccountDTO stale = client.getAccount("a1").block();
+        client.applyBalanceChange(stale, new BigDecimal("-80.00"), null).block();
+
+        StepVerifier.create(client.applyBalanceChange(stale, new BigDecimal("-50.00"), null))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException && "Insufficient balance".equals(e.getMessage()))
+                .verify(Duration.ofSeconds(5));
+        assertEquals(0, new BigDecimal("20.00").compareTo(accounts.balance("a1")));
+    }
+
+    @Test
+    void testNoLostUpdatesAcrossInstancesUnderConcurrentLoad() {
+        accounts.open("a1", new BigDecimal("1000.00"));
+        List<TransactionService> instances = List.of(
+                instance(client(AccountsClientProperties.BalanceUpdateMode.DELTA, new SimpleMeterRegistry())),
+                instance(client(AccountsClientProperties.BalanceUpdateMode.DELTA, new SimpleMeterRegistry())),
+                instance(client(AccountsClientProperties.BalanceUpdateMode.DELTA, new SimpleMeterRegistry())));
+        int perInstance = 150;
+
+        AtomicInteger failures = new AtomicInteger();
+        List<TransactionResponseDTO> responses = Flux.range(0, perInstance * instances.size())
+                .flatMap(i -> instances.get(i % instances.size()).performTransaction(
+                                new TransactionRequestDTO("a1", i % 3 == 0 ? "WITHDRAWAL" : "DEPOSIT", new BigDecimal("2.00"), "u1"))
+                        // a transaction may still give up after its bounded conflict retries; it must then leave no trace
+                        .onErrorResume(BalanceConflictException.class, e -> {
+                            failures.incrementAndGet();
+                            return Mono.empty();
+                        }), 64)
+                .collectList()
+                .block(Duration.ofSeconds(60));
+
+        assertNotNull(responses);
+        assertEquals(perInstance * instances.size(), responses.size() + failures.get());
+        assertTrue(accounts.conflicts() > 0, "the instances never raced");
+        // every applied transaction is reflected in the balance: nothing was overwritten
+        BigDecimal expectedBalance = new BigDecimal("1000.00");
+        for (TransactionResponseDTO response : responses) {
+            expectedBalance = "DEPOSIT".equals(response.getTransactionType())
+                    ? expectedBalance.add(response.getAmount().toBigDecimal())
+                    : expectedBalance.subtract(response.getAmount().toBigDecimal());
+        }
+        assertEquals(0, expectedBalance.compareTo(accounts.balance("a1")));
+        // recorded balances line up with what was applied, despite stale cached reads
+        for (TransactionResponseDTO response : responses) {
+            Money expected = "DEPOSIT".equals(response.getTransactionType())
+                    ? response.getInitialBalance().add(response.getAmount())
+                    : response.getInitialBalance().subtract(response.getAmount());
+            assertEquals(expected, response.getFinalBalance());
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.AccountsClientProperties;
+import com.example.transactionalms.config.RouterConfig;
+import com.example.transactionalms.config.TransactionLimitsProperties;
+import com.example.transactionalms.controller.TransactionHandler;
+import com.example.transactionalms.controller.TransactionRequestValidator;
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.messaging.JacksonMessageCodec;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.IdempotencyRecord;
+import com.example.transactionalms.model.OutboxEvent;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.repository.IdempotencyRepository;
+import com.example.transactionalms.repository.OutboxRepository;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the handlers through a real Reactor Netty server with BlockHound installed: any blocking call on
+ * an event-loop or parallel thread is recorded and fails the test. Repositories and the accounts service
+ * answer asynchronously, as the real ones do. Run with {@code ./gradlew blockHoundTest}.
+ */
+@Tag("blockhound")
+class EventLoopBlockingTest {
+
+    private static final Queue<String> blockingCalls = new ConcurrentLinkedQueue<>();
+    private static final Duration LATENCY = Duration.ofMillis(2);
+
+    private DisposableServer server;
+    private WebTestClient client;
+    private OutboxRepository outboxRepository;
+
+    @BeforeAll
+    static void installBlockHound() {
+        // one-off seeding from the OS entropy source, done while the application starts
+        new ObjectId();
+        BlockHound.install(builder -> builder
+                // console logging writes synchronously; production logging is not what is under test here
+                .allowBlockingCallsInside("ch.qos.logback.core.OutputStreamAppender", "writeBytes")
+                .allowBlockingCallsInside("ch.qos.logback.core.OutputStreamAppender", "subAppend")
+                .blockingMethodCallback(method -> {
+                    blockingCalls.add(method + " on " + Thread.currentThread().getName());
+                    throw new BlockingOperationError(method);
+                }));
+    }
+
+    @AfterAll
+    static void reportBlockingCalls() {
+        assertTrue(blockingCalls.isEmpty(), "Blocking calls on non-blocking threads: " + blockingCalls);
+    }
+
+    @BeforeEach
+    void setUp() {
+        blockingCalls.clear();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransactionMetrics metrics = new TransactionMetrics(meterRegistry);
+
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> later(withId(invocation.getArgument(0))));
+        when(transactionRepository.saveAll(anyIterable())).thenAnswer(invocation ->
+                Flux.fromIterable(invocation.<Iterable<Transaction>>getArgument(0)).delayElements(LATENCY));
+        when(transactionRepository.insert(anyList())).thenAnswer(invocation ->
+                Flux.fromIterable(invocation.<List<Transaction>>getArgument(0)).map(EventLoopBlockingTest::withId).delayElements(LATENCY));
+        when(transactionRepository.existsByAccountId(any())).thenReturn(later(true));
+        when(transactionRepository.markBalanceRequested(anyCollection())).thenReturn(later(1L));
+        outboxRepository = mock(OutboxRepository.class);
+        when(outboxRepository.save(any(OutboxEvent.class))).thenAnswer(invocation -> later(invocation.getArgument(0)));
+        when(outboxRepository.insert(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<OutboxEvent>>getArgument(0)));
+        IdempotencyRepository idempotencyRepository = mock(IdempotencyRepository.class);
+        when(idempotencyRepository.insert(any(IdempotencyRecord.class))).thenAnswer(invocation -> later(invocation.getArgument(0)));
+        when(idempotencyRepository.save(any(IdempotencyRecord.class))).thenAnswer(invocation -> later(invocation.getArgument(0)));
+        AccountAggregateService aggregates = mock(AccountAggregateService.class);
+        when(aggregates.record(any(Transaction.class))).thenReturn(Mono.empty());
+        when(aggregates.record(anyList())).thenReturn(Mono.empty());
+
+        WebClient accounts = WebClient.builder().exchangeFunction(request -> Mono.delay(LATENCY).map(tick ->
+                request.method() == HttpMethod.GET
+                        ? ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"accountId\":\"a1\",\"balance\":100.00}")
+                        .build()
+                        : ClientResponse.create(HttpStatus.OK).build())).build();
+        TransactionStreamHub hub = new TransactionStreamHub(
+                () -> Flux.interval(LATENCY).map(i -> withId(transaction("a1"))), meterRegistry, 16, 256);
+        TransactionQueryService queryService = mock(TransactionQueryService.class);
+        when(queryService.resumePoint(any())).thenReturn(Mono.empty());
+        TransactionService transactionService = new TransactionService(transactionRepository,
+                new AccountsClient(accounts, new AccountsClientProperties(), meterRegistry),
+                new OutboxService(outboxRepository, transactionRepository, null, null, metrics, meterRegistry,
+                        false, 100, Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(30)),
+                new AccountSequencer(16, meterRegistry),
+                new AccountCache(true, 100, Duration.ofMinutes(1), meterRegistry),
+                hub, queryService, aggregates,
+                new TransactionLimitsEngine(new TransactionLimitsProperties(), null), metrics,
+                TransactionWriterTest.direct(transactionRepository));
+        TransactionHandler handler = new TransactionHandler(transactionService, mock(TransactionQueryService.class),
+                new StatementExporter(256), aggregates,
+                new IdempotencyService(idempotencyRepository, transactionRepository, meterRegistry, Duration.ofHours(24), Duration.ofMinutes(2), 100, Duration.ofMinutes(10)),
+                new TransactionRequestValidator(Validation.buildDefaultValidatorFactory().getValidator()));
+
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(new RouterConfig().routes(handler))))
+                .bindNow();
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://127.0.0.1:" + server.port())
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+        assertTrue(blockingCalls.isEmpty(), "Blocking calls on non-blocking threads: " + blockingCalls);
+    }
+
+    @Test
+    void testBlockHoundIsInstalled() {
+        StepVerifier.create(Mono.fromCallable(() -> {
+                    Thread.sleep(1);
+                    return 1;
+                }).subscribeOn(Schedulers.parallel()))
+                .expectError(BlockingOperationError.class)
+                .verify(Duration.ofSeconds(5));
+        blockingCalls.clear();
+    }
+
+    @Test
+    void testPerformTransactionDoesNotBlock() {
+        client.post().uri("/api/transactions")
+                .bodyValue(new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("10.00"), "u1"))
+                .exchange()
+                .expectStatus().isOk();
+        // error path: rejected before the balance change, with a failure event written to the outbox
+        client.post().uri("/api/transactions")
+                .bodyValue(new TransactionRequestDTO("a1", "WITHDRAWAL", new BigDecimal("1000.00"), "u1"))
+                .exchange()
+                .expectStatus().is4xxClientError();
+        client.post().uri("/api/transactions")
+                .bodyValue(new TransactionRequestDTO("", "DEPOSIT", BigDecimal.ZERO, "u1"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testIdempotentTransactionDoesNotBlock() {
+        for (int i = 0; i < 2; i++) {
+            client.post().uri("/api/transactions")
+                    .header("Idempotency-Key", "key-1")
+                    .bodyValue(new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("10.00"), "u1"))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+    }
+
+    @Test
+    void testBatchDoesNotBlock() {
+        client.post().uri("/api/transactions/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("""
+                        {"accountId":"a1","transactionType":"DEPOSIT","amount":5.00,"userId":"u1"}
+                        {"accountId":"a2","transactionType":"WITHDRAWAL","amount":1.00,"userId":"u1"}
+                        {"accountId":"a1","transactionType":"DEPOSIT","amount":0,"userId":"u1"}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).value(body -> assertEquals(3, body.lines().count()));
+    }
+
+    @Test
+    void testStreamDoesNotBlock() {
+        StepVerifier.create(client.get().uri("/api/transactions/stream?accountId=a1")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .returnResult(String.class)
+                        .getResponseBody()
+                        .take(3))
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void testOutboxRelayKeepsBrokerCallsOffTheEventLoop() {
+        ScheduledExecutorService broker = Executors.newScheduledThreadPool(1);
+        Scheduler amqpScheduler = Schedulers.newBoundedElastic(2, 100, "amqp-publisher-test");
+        // RabbitTemplate operations park the calling thread, as a real channel round trip does
+        ReactiveMessagePublisherTest.StubBrokerTemplate template =
+                new ReactiveMessagePublisherTest.StubBrokerTemplate(broker, 100_000, 1_000, 1, true);
+        ReactiveMessagePublisher publisher = new ReactiveMessagePublisher(template, JacksonMessageCodec.json(), amqpScheduler,
+                new SimpleMeterRegistry(), "queue-transaction", 64, Duration.ofMillis(2), 16, 2, Duration.ofSeconds(5));
+        publisher.start();
+        OutboxEvent pending = new OutboxEvent(new TransactionEvent("t1", "a1", "u1", "DEPOSIT",
+                new BigDecimal("10.00"), new BigDecimal("110.00"), true, System.currentTimeMillis()));
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(OutboxEvent.class)))
+                .thenReturn(later(pending))
+                .thenReturn(Mono.empty());
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.clearEventCheck(anyCollection())).thenReturn(later(1L));
+        when(outboxRepository.deleteAll(anyIterable())).thenReturn(Mono.empty());
+        when(outboxRepository.findFirstByOrderByCreatedAtAsc()).thenReturn(Mono.empty());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OutboxService relay = new OutboxService(outboxRepository, transactionRepository, mongoTemplate, publisher,
+                new TransactionMetrics(meterRegistry), meterRegistry,
+                false, 100, Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(30));
+        try {
+            StepVerifier.create(relay.drain().subscribeOn(Schedulers.parallel()))
+                    .verifyComplete();
+            assertEquals(1, template.published.get());
+        } finally {
+            publisher.stop();
+            amqpScheduler.dispose();
+            broker.shutdownNow();
+        }
+    }
+
+    private static <T> Mono<T> later(T value) {
+        return Mono.just(value).delayElement(LATENCY);
+    }
+
+    private static Transaction withId(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(new ObjectId().toHexString());
+        }
+        return transaction;
+    }
+
+    private static Transaction transaction(String accountId) {
+        return TransactionService.mapDataToTransaction(
+                new TransactionRequestDTO(accountId, "DEPOSIT", BigDecimal.ONE, "u1"), Money.ZERO, Money.of("1.00"));
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionRequestDTO;
+import com.example.transactionalms.dto.TransactionResponseDTO;
+import com.example.transactionalms.model.IdempotencyRecord;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
+import com.example.transactionalms.repository.IdempotencyRepository;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private final Map<String, IdempotencyRecord> store = new ConcurrentHashMap<>();
+    private final IdempotencyRepository repository = inMemoryRepository(store);
+    private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
+    private final TransactionRepository transactionRepository = inMemoryTransactions(transactions);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyService service = newService(meterRegistry);
+
+    private final TransactionRequestDTO request = new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("10.00"), "u1");
+
+    private IdempotencyService newService(SimpleMeterRegistry registry) {
+        return new IdempotencyService(repository, transactionRepository, registry, Duration.ofHours(24), Duration.ofMinutes(2), 100, Duration.ofMinutes(10));
+    }
+
+    private static IdempotencyRepository inMemoryRepository(Map<String, IdempotencyRecord> store) {
+        IdempotencyRepository repository = mock(IdempotencyRepository.class);
+        when(repository.insert(any(IdempotencyRecord.class))).thenAnswer(invocation -> Mono.defer(() -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            return store.putIfAbsent(record.getKey(), record) == null
+                    ? Mono.just(record)
+                    : Mono.error(new DuplicateKeyException("duplicate key " + record.getKey()));
+        }));
+        when(repository.save(any(IdempotencyRecord.class))).thenAnswer(invocation -> Mono.fromCallable(() -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            store.put(record.getKey(), record);
+            return record;
+        }));
+        when(repository.findById(anyString())).thenAnswer(invocation -> Mono.justOrEmpty(store.get(invocation.<String>getArgument(0))));
+        when(repository.deleteByKeyAndTransactionId(anyString(), anyString())).thenAnswer(invocation -> Mono.fromCallable(() ->
+                store.computeIfPresent(invocation.<String>getArgument(0), (key, record) ->
+                        record.getTransactionId().equals(invocation.getArgument(1)) ? null : record) == null ? 1L : 0L));
+        return repository;
+    }
+
+    private static TransactionRepository inMemoryTransactions(Map<String, Transaction> transactions) {
+        TransactionRepository repository = mock(TransactionRepository.class);
+        when(repository.findById(anyString())).thenAnswer(invocation -> Mono.justOrEmpty(transactions.get(invocation.<String>getArgument(0))));
+        when(repository.insert(any(Transaction.class))).thenAnswer(invocation -> Mono.defer(() -> {
+            Transaction transaction = invocation.getArgument(0);
+            return transactions.putIfAbsent(transaction.getId(), transaction) == null
+                    ? Mono.just(transaction)
+                    : Mono.error(new DuplicateKeyException("duplicate key " + transaction.getId()));
+        }));
+        return repository;
+    }
+
+    /** Saves the transaction the way the service would, with the given status, and answers like it. */
+    private Mono<TransactionResponseDTO> save(String transactionId, TransactionStatus status, Throwable error) {
+        Transaction transaction = TransactionService.mapDataToTransaction(request, Money.of("100.00"), Money.of("110.00"));
+        transaction.setId(transactionId);
+        transaction.setStatus(status);
+        transactions.put(transactionId, transaction);
+        return error == null ? Mono.just(TransactionService.mapToResponse(transaction)) : Mono.error(error);
+    }
+
+    private static TransactionResponseDTO response(String id) {
+        TransactionResponseDTO response = new TransactionResponseDTO();
+        response.setTransactionId(id);
+        response.setStatus("SUCCESS");
+        return response;
+    }
+
+    @Test
+    void testConcurrentDuplicatesCoalesceOntoOneExecution() {
+        Sinks.One<TransactionResponseDTO> result = Sinks.one();
+        AtomicInteger executions = new AtomicInteger();
+
+        Mono<TransactionResponseDTO> first = service.execute("k1", request, id -> {
+            executions.incrementAndGet();
+            return result.asMono();
+        });
+        Mono<TransactionResponseDTO> second = service.execute("k1", request, id -> {
+            executions.incrementAndGet();
+            return Mono.just(response("other"));
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> result.tryEmitValue(response("t1")))
+                .assertNext(both -> {
+                    assertEquals("t1", both.getT1().getTransactionId());
+                    assertSame(both.getT1(), both.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, executions.get());
+        assertEquals(1.0, meterRegistry.counter("idempotency.coalesced").count());
+        assertEquals("t1", store.get("k1").getResponse().getTransactionId());
+    }
+
+    @Test
+    void testDuplicatesReplayTheStoredResponse() {
+        AtomicInteger executions = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            TransactionResponseDTO replayed = service.execute("k1", request, id -> {
+                executions.incrementAndGet();
+                return Mono.just(response("t1"));
+            }).block();
+            assertEquals("t1", replayed.getTransactionId());
+        }
+        assertEquals(1, executions.get());
+        assertEquals(2.0, meterRegistry.counter("idempotency.hits", "source", "cache").count());
+
+        // another instance has an empty cache and finds the key in Mongo
+        SimpleMeterRegistry otherRegistry = new SimpleMeterRegistry();
+        TransactionResponseDTO replayed = newService(otherRegistry)
+                .execute("k1", request, id -> Mono.error(new AssertionError("must not run again")))
+                .block();
+        assertEquals("t1", replayed.getTransactionId());
+        assertEquals(1.0, otherRegistry.counter("idempotency.hits", "source", "store").count());
+    }
+
+    @Test
+    void testKeyReusedWithDifferentRequestIsRejected() {
+        service.execute("k1", request, id -> Mono.just(response("t1"))).block();
+
+        TransactionRequestDTO different = new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("99.00"), "u1");
+        StepVerifier.create(service.execute("k1", different, id -> Mono.just(response("t2"))))
+                .expectErrorMatches(e -> e instanceof IdempotencyKeyConflictException conflict
+                        && IdempotencyKeyConflictException.REUSED.equals(conflict.getCode()))
+                .verify();
+    }
+
+    @Test
+    void testFailedExecutionReleasesTheKey() {
+        StepVerifier.create(service.execute("k1", request, id -> Mono.error(new IllegalArgumentException("Insufficient balance"))))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        assertFalse(store.containsKey("k1"));
+
+        assertEquals("t2", service.execute("k1", request, id -> Mono.just(response("t2"))).block().getTransactionId());
+
+        StepVerifier.create(service.execute("k2", request, id -> Mono.error(
+                        WebClientResponseException.create(404, "Not Found", HttpHeaders.EMPTY, new byte[0], null))))
+                .expectError(WebClientResponseException.class)
+                .verify();
+        assertFalse(store.containsKey("k2"));
+
+        // refused before anything was sent, or marked FAILED by the service: the balance did not move
+        for (Throwable error : List.of(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("accounts")),
+                new BalanceConflictException("Account a1 changed concurrently"),
+                new DataAccessResourceFailureException("insert timed out"))) {
+            StepVerifier.create(service.execute("k3", request, id -> save(id, TransactionStatus.FAILED, error)))
+                    .expectErrorMatches(error::equals)
+                    .verify();
+            assertFalse(store.containsKey("k3"));
+        }
+    }
+
+    @Test
+    void testKeyFollowsTheTransactionAfterAnUnsettledFailure() {
+        AtomicInteger executions = new AtomicInteger();
+        // e.g. the balance POST timed out: the transaction stays PENDING for the reconciler
+        StepVerifier.create(service.execute("k1", request, id -> {
+                    executions.incrementAndGet();
+                    return save(id, TransactionStatus.PENDING, new RecordSettledException(new IllegalStateException("accounts timed out")));
+                }))
+                .expectErrorMessage("accounts timed out")
+                .verify();
+        String transactionId = store.get("k1").getTransactionId();
+
+        Function<String, Mono<TransactionResponseDTO>> retry = id -> {
+            executions.incrementAndGet();
+            return Mono.just(response("t2"));
+        };
+        StepVerifier.create(service.execute("k1", request, retry))
+                .expectErrorMatches(e -> e instanceof IdempotencyKeyConflictException conflict
+                        && IdempotencyKeyConflictException.IN_PROGRESS.equals(conflict.getCode()))
+                .verify();
+
+        transactions.get(transactionId).setStatus(TransactionStatus.MANUAL_REVIEW);
+        StepVerifier.create(service.execute("k1", request, retry))
+                .expectErrorMatches(e -> e instanceof IdempotencyKeyConflictException conflict
+                        && IdempotencyKeyConflictException.OUTCOME_UNKNOWN.equals(conflict.getCode()))
+                .verify();
+
+        // the reconciler found it had landed: another instance replays it from the transaction
+        transactions.get(transactionId).setStatus(TransactionStatus.APPLIED);
+        assertEquals(transactionId, newService(new SimpleMeterRegistry()).execute("k1", request, retry).block().getTransactionId());
+        assertEquals(transactionId, store.get("k1").getResponse().getTransactionId());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testCompensatedTransactionReleasesTheKey() {
+        StepVerifier.create(service.execute("k1", request, id ->
+                        save(id, TransactionStatus.PENDING, new RecordSettledException(new IllegalStateException("accounts timed out")))))
+                .expectError(RecordSettledException.class)
+                .verify();
+        transactions.get(store.get("k1").getTransactionId()).setStatus(TransactionStatus.COMPENSATED);
+
+        assertEquals("t2", service.execute("k1", request, id -> Mono.just(response("t2"))).block().getTransactionId());
+    }
+
+    @Test
+    void testKeyClaimedByAnotherInstanceIsInProgress() {
+        LocalDateTime now = LocalDateTime.now();
+        store.put("k1", new IdempotencyRecord("k1", IdempotencyService.fingerprint(request), "65a1f0c2e4b0a1b2c3d4e5f0", null, now, now.plusHours(24)));
+
+        StepVerifier.create(service.execute("k1", request, id -> Mono.just(response("t1"))))
+                .expectErrorMatches(e -> e instanceof IdempotencyKeyConflictException conflict
+                        && IdempotencyKeyConflictException.IN_PROGRESS.equals(conflict.getCode()))
+                .verify();
+    }
+
+    @Test
+    void testAbandonedClaimIsFencedAndTakenOver() {
+        LocalDateTime claimedAt = LocalDateTime.now().minusMinutes(5);
+        String abandoned = "65a1f0c2e4b0a1b2c3d4e5f0";
+        store.put("k1", new IdempotencyRecord("k1", IdempotencyService.fingerprint(request), abandoned, null, claimedAt, claimedAt.plusHours(24)));
+
+        assertEquals("t2", service.execute("k1", request, id -> Mono.just(response("t2"))).block().getTransactionId());
+
+        // the original request, if it ever gets to save its transaction, now hits the FAILED one
+        assertEquals(TransactionStatus.FAILED, transactions.get(abandoned).getStatus());
+        assertNotEquals(abandoned, store.get("k1").getTransactionId());
+        assertEquals("t2", store.get("k1").getResponse().getTransactionId());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.model.OutboxEvent;
+import com.example.transactionalms.repository.OutboxRepository;
+import com.example.transactionalms.repository.TransactionRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxServiceTest {
+
+    private OutboxRepository repository;
+    private TransactionRepository transactions;
+    private ReactiveMongoTemplate template;
+    private TransactionEventPublisher publisher;
+    private SimpleMeterRegistry registry;
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxRepository.class);
+        transactions = mock(TransactionRepository.class);
+        when(transactions.clearEventCheck(any())).thenReturn(Mono.just(1L));
+        template = mock(ReactiveMongoTemplate.class);
+        publisher = mock(TransactionEventPublisher.class);
+        registry = new SimpleMeterRegistry();
+        outboxService = new OutboxService(repository, transactions, template, publisher, new TransactionMetrics(registry), registry,
+                false, 2, Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(30));
+    }
+
+    @SafeVarargs
+    private void claims(Mono<OutboxEvent>... results) {
+        when(template.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(OutboxEvent.class)))
+                .thenReturn(results[0], Arrays.copyOfRange(results, 1, results.length));
+    }
+
+    private OutboxEvent event(String id) {
+        OutboxEvent event = new OutboxEvent(new TransactionEvent(id, "account123", "user123", "DEPOSIT",
+                new BigDecimal("10.00"), new BigDecimal("110.00"), true, System.currentTimeMillis()));
+        event.setId(id);
+        return event;
+    }
+
+    @Test
+    void testRelayBatchPublishesAndDeletes() {
+        List<OutboxEvent> events = List.of(event("1"), event("2"));
+        claims(Mono.just(events.get(0)), Mono.just(events.get(1)), Mono.just(event("3")));
+        when(publisher.publish(any(TransactionEvent.class))).thenReturn(Mono.empty());
+        when(repository.deleteAll(events)).thenReturn(Mono.empty());
+
+        StepVerifier.create(outboxService.relayBatch())
+                .expectNext(2)
+                .verifyComplete();
+
+        // a batch claims at most batch-size events, each leased away from the other replicas
+        ArgumentCaptor<Update> take = ArgumentCaptor.forClass(Update.class);
+        verify(template, times(2)).findAndModify(any(Query.class), take.capture(), any(FindAndModifyOptions.class), eq(OutboxEvent.class));
+        Document set = take.getValue().getUpdateObject().get("$set", Document.class);
+        assertTrue(((LocalDateTime) set.get("nextAttemptAt")).isAfter(LocalDateTime.now().plusSeconds(20)));
+        assertNotNull(set.get("lease"));
+        verify(publisher, times(2)).publish(any(TransactionEvent.class));
+        verify(transactions).clearEventCheck(List.of("1", "2"));
+        assertEquals(2.0, registry.get("outbox.relay.published").counter().count());
+    }
+
+    @Test
+    void testRelayBatchSchedulesRetryOnBrokerFailure() {
+        OutboxEvent pending = event("1");
+        pending.setLease("pass-1");
+        claims(Mono.just(pending), Mono.empty());
+        when(publisher.publish(any(TransactionEvent.class)))
+                .thenReturn(Mono.error(new AmqpIOException(new IOException("broker down"))));
+        when(repository.deleteAll(List.<OutboxEvent>of())).thenReturn(Mono.empty());
+        when(template.updateFirst(any(Query.class), any(Update.class), eq(OutboxEvent.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(outboxService.relayBatch())
+                .expectNext(0)
+                .verifyComplete();
+
+        // rescheduled only while this pass still holds the lease
+        ArgumentCaptor<Query> held = ArgumentCaptor.forClass(Query.class);
+        verify(template).updateFirst(held.capture(), any(Update.class), eq(OutboxEvent.class));
+        assertEquals("pass-1", held.getValue().getQueryObject().get("lease"));
+        verify(transactions, never()).clearEventCheck(any());
+        assertEquals(1, pending.getAttempts());
+        assertTrue(pending.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertEquals(1.0, registry.get("outbox.relay.failures").counter().count());
+    }
+
+    @Test
+    void testEnqueueWritesOutboxDocument() {
+        TransactionEvent message = new TransactionEvent("1", "account123", "user123", "WITHDRAWAL",
+                new BigDecimal("10.00"), new BigDecimal("90.00"), false, System.currentTimeMillis());
+        when(repository.save(any(OutboxEvent.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(outboxService.enqueue(message)).verifyComplete();
+
+        verify(repository).save(argThat(e -> e.getPayload() == message && e.getAttempts() == 0));
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.MessageDto;
+import com.example.transactionalms.dto.TransactionEvent;
+import com.example.transactionalms.messaging.JacksonMessageCodec;
+import com.example.transactionalms.messaging.LegacyTextMessageEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.lang.NonNull;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveMessagePublisherTest {
+
+    private final ScheduledExecutorService broker = Executors.newScheduledThreadPool(2);
+    private final Scheduler amqpScheduler = Schedulers.newBoundedElastic(4, 10_000, "amqp-publisher-test");
+    private ReactiveMessagePublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.stop();
+        }
+        broker.shutdownNow();
+        amqpScheduler.dispose();
+    }
+
+    private TransactionEvent message(int i) {
+        return new TransactionEvent(String.valueOf(i), "account" + i, "user123", "DEPOSIT",
+                new BigDecimal("10.00"), new BigDecimal("110.00"), true, System.currentTimeMillis());
+    }
+
+    private ReactiveMessagePublisher start(StubBrokerTemplate template, SimpleMeterRegistry registry, int maxInFlight) {
+        return start(template, registry, maxInFlight, Duration.ofSeconds(5));
+    }
+
+    private ReactiveMessagePublisher start(StubBrokerTemplate template, SimpleMeterRegistry registry, int maxInFlight,
+                                           Duration confirmTimeout) {
+        ReactiveMessagePublisher started = new ReactiveMessagePublisher(template, JacksonMessageCodec.json(), amqpScheduler, registry,
+                "queue-transaction", 64, Duration.ofMillis(2), maxInFlight, 4, confirmTimeout);
+        started.start();
+        return started;
+    }
+
+    @Test
+    void testPublishCompletesOnAck() {
+        StubBrokerTemplate template = new StubBrokerTemplate(broker, 0, 0, 1, true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        publisher = start(template, registry, 16);
+
+        StepVerifier.create(publisher.publish(message(1)))
+                .verifyComplete();
+
+        assertEquals(1, template.published.get());
+        assertEquals(1.0, registry.get("amqp.publisher.confirms").tag("result", "ack").counter().count());
+    }
+
+    @Test
+    void testPublishFailsOnNack() {
+        publisher = start(new StubBrokerTemplate(broker, 0, 0, 1, false), new SimpleMeterRegistry(), 16);
+
+        StepVerifier.create(publisher.publish(message(1)))
+                .expectError(AmqpException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testInFlightLimitAppliesBackpressure() {
+        StubBrokerTemplate template = new StubBrokerTemplate(broker, 0, 0, 20, true);
+        publisher = start(template, new SimpleMeterRegistry(), 4);
+        AtomicInteger maxUnconfirmed = new AtomicInteger();
+        template.onPublish = () -> maxUnconfirmed.accumulateAndGet(template.unconfirmed.get(), Math::max);
+
+        Flux.range(0, 40)
+                .flatMap(i -> publisher.publish(message(i)))
+                .blockLast(Duration.ofSeconds(10));
+
+        assertEquals(40, template.published.get());
+        assertTrue(maxUnconfirmed.get() <= 4, "unconfirmed messages exceeded the in-flight limit: " + maxUnconfirmed.get());
+    }
+
+    @Test
+    void testCancelledCallerKeepsItsPermitUntilTheConfirmTimesOut() {
+        StubBrokerTemplate template = new StubBrokerTemplate(broker, 0, 0, 60_000, true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        publisher = start(template, registry, 1, Duration.ofMillis(500));
+
+        Disposable first = publisher.publish(message(1)).subscribe();
+        while (template.published.get() == 0) {
+            Thread.onSpinWait();
+        }
+        first.dispose();
+        StepVerifier.create(publisher.publish(message(2)))
+                .then(() -> {
+                    // the first event is still unconfirmed, so the second waits for its permit
+                    LockSupport.parkNanos(Duration.ofMillis(200).toNanos());
+                    assertEquals(1, template.published.get());
+                    assertEquals(1.0, registry.get("amqp.publisher.in-flight").gauge().value());
+                })
+                .expectErrorMatches(e -> e instanceof TimeoutException && e.getMessage().contains("publisher confirm"))
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(2, template.published.get());
+        assertEquals(2.0, registry.get("amqp.publisher.confirms").tag("result", "nack").counter().count());
+        assertEquals(0.0, registry.get("amqp.publisher.in-flight").gauge().value());
+    }
+
+    /**
+     * In-memory stand-in for the broker: each channel operation parks for {@code operationNanos}, each
+     * message for {@code messageNanos}, and publisher confirms arrive asynchronously after {@code confirmMillis}.
+     */
+    @Test
+    void testLegacyFormatIsWhatTheJsonConverterSent() {
+        TransactionEvent event = new TransactionEvent("65a1f0c2e4b0a1b2c3d4e5f6", "6790a7c1d2e3f4a5b6c7d8e9", "user-000123",
+                "WITHDRAWAL", new BigDecimal("15.00"), new BigDecimal("985.00"), true, 1_714_557_600_000L);
+        // what convertAndSend put on the wire before the encoders
+        Message baseline = new Jackson2JsonMessageConverter()
+                .toMessage(LegacyTextMessageEncoder.toLegacyMessage(event), new MessageProperties());
+
+        Message sent = ReactiveMessagePublisher.toMessage(new LegacyTextMessageEncoder(), event);
+
+        assertArrayEquals(baseline.getBody(), sent.getBody());
+        MessageProperties expected = baseline.getMessageProperties();
+        MessageProperties actual = sent.getMessageProperties();
+        assertEquals(expected.getHeaders(), actual.getHeaders());
+        assertEquals(MessageDto.class.getName(), actual.getHeader("__TypeId__"));
+        assertEquals(expected.getContentType(), actual.getContentType());
+        assertEquals(expected.getContentEncoding(), actual.getContentEncoding());
+        assertEquals(expected.getContentLength(), actual.getContentLength());
+        assertEquals(expected.getDeliveryMode(), actual.getDeliveryMode());
+    }
+
+    static class StubBrokerTemplate extends RabbitTemplate {
+        final AtomicInteger published = new AtomicInteger();
+        final AtomicInteger unconfirmed = new AtomicInteger();
+        private final ScheduledExecutorService broker;
+        private final long operationNanos;
+        private final long messageNanos;
+        private final long confirmMillis;
+        private final boolean ack;
+        volatile Runnable onPublish = () -> { };
+
+        StubBrokerTemplate(ScheduledExecutorService broker, long operationNanos, long messageNanos, long confirmMillis, boolean ack) {
+            this.broker = broker;
+            this.operationNanos = operationNanos;
+            this.messageNanos = messageNanos;
+            this.confirmMillis = confirmMillis;
+            this.ack = ack;
+        }
+
+        @Override
+        public <T> T invoke(@NonNull OperationsCallback<T> action) {
+            park(operationNanos);
+            return action.doInRabbit(this);
+        }
+
+        @Override
+        public void convertAndSend(String routingKey, Object object) {
+            park(operationNanos);
+            park(messageNanos);
+            published.incrementAndGet();
+        }
+
+        @Override
+        public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+            park(messageNanos);
+            published.incrementAndGet();
+            unconfirmed.incrementAndGet();
+            onPublish.run();
+            broker.schedule(() -> {
+                unconfirmed.decrementAndGet();
+                correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "rejected"));
+            }, confirmMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private static void park(long nanos) {
+            if (nanos > 0) {
+                LockSupport.parkNanos(nanos);
+            }
+        }
+    }
+}
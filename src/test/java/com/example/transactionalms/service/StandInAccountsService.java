@@ -0,0 +1,130 @@
+package com.example.transactionalms.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal accounts service for tests: GET returns the balance with its version as ETag, the absolute
+ * POST overwrites the balance, and the delta POST applies a signed change only if {@code If-Match}
+ * names the current version (412 otherwise). Each account is updated under its own lock.
+ */
+class StandInAccountsService implements AutoCloseable {
+
+    private static final Pattern PATH = Pattern.compile("/api/accounts/([^/]+)(/balance(/delta)?)?");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final MockWebServer server = new MockWebServer();
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final AtomicInteger conflicts = new AtomicInteger();
+    private final Duration latency;
+
+    private static final class Account {
+        private BigDecimal balance;
+        private long version;
+
+        Account(BigDecimal balance) {
+            this.balance = balance;
+        }
+    }
+
+    StandInAccountsService(Duration latency) throws IOException {
+        this.latency = latency;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return handle(request);
+            }
+        });
+        server.start();
+    }
+
+    String baseUrl() {
+        return server.url("/api/accounts").toString();
+    }
+
+    void open(String accountId, BigDecimal balance) {
+        accounts.put(accountId, new Account(balance));
+    }
+
+    BigDecimal balance(String accountId) {
+        Account account = accounts.get(accountId);
+        synchronized (account) {
+            return account.balance;
+        }
+    }
+
+    int conflicts() {
+        return conflicts.get();
+    }
+
+    private MockResponse handle(RecordedRequest request) {
+        Matcher matcher = PATH.matcher(request.getPath());
+        Account account = matcher.matches() ? accounts.get(matcher.group(1)) : null;
+        if (account == null) {
+            return new MockResponse().setResponseCode(404);
+        }
+        pause();
+        try {
+            synchronized (account) {
+                if ("GET".equals(request.getMethod()) && matcher.group(2) == null) {
+                    return ok(matcher.group(1), account);
+                }
+                JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+                if (matcher.group(3) == null) {
+                    account.balance = new BigDecimal(body.get("newBalance").asText());
+                    account.version++;
+                    return new MockResponse().setResponseCode(200);
+                }
+                String ifMatch = request.getHeader("If-Match");
+                if (ifMatch != null && !ifMatch.equals("\"" + account.version + "\"")) {
+                    conflicts.incrementAndGet();
+                    return new MockResponse().setResponseCode(412);
+                }
+                BigDecimal next = account.balance.add(new BigDecimal(body.get("delta").asText()));
+                if (next.signum() < 0) {
+                    return new MockResponse().setResponseCode(422);
+                }
+                account.balance = next;
+                account.version++;
+                return ok(matcher.group(1), account);
+            }
+        } catch (IOException e) {
+            return new MockResponse().setResponseCode(400);
+        }
+    }
+
+    private void pause() {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static MockResponse ok(String accountId, Account account) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("ETag", "\"" + account.version + "\"")
+                .setBody("{\"accountId\":\"" + accountId + "\",\"balance\":" + account.balance.toPlainString() + "}");
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementExporterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final StatementExporter exporter = new StatementExporter(256);
+
+    private static Transaction transaction(long i) {
+        Transaction transaction = new Transaction();
+        transaction.setId(String.format("%024x", i));
+        transaction.setAccountId("account123");
+        transaction.setTransactionType(i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL");
+        transaction.setInitialBalance(Money.ofMinor(i));
+        transaction.setAmount(Money.of("10.00"));
+        transaction.setFinalBalance(Money.ofMinor(i + 1000));
+        transaction.setUserId("user1");
+        transaction.setTimestamp(START.plusSeconds(i));
+        return transaction;
+    }
+
+    private static byte[] collect(Flux<DataBuffer> buffers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffers.doOnNext(buffer -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            out.writeBytes(bytes);
+            DataBufferUtils.release(buffer);
+        }).blockLast();
+        return out.toByteArray();
+    }
+
+    @Test
+    void testCsvExportEscapesValues() {
+        Transaction transaction = transaction(1);
+        transaction.setUserId("Pérez, \"Ana\"");
+
+        String csv = new String(collect(exporter.export(Flux.just(transaction), StatementExporter.Format.CSV, false)),
+                StandardCharsets.UTF_8);
+
+        assertEquals(StatementExporter.CSV_HEADER
+                + "000000000000000000000001,account123,WITHDRAWAL,0.01,10.00,10.01,\"Pérez, \"\"Ana\"\"\",2024-01-01T00:00:01\n", csv);
+    }
+
+    @Test
+    void testGzipNdjsonExportRoundTrips() throws IOException {
+        byte[] gzipped = collect(exporter.export(Flux.range(0, 1000).map(StatementExporterTest::transaction),
+                StatementExporter.Format.NDJSON, true));
+
+        String ndjson = new String(new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(), StandardCharsets.UTF_8);
+        String[] lines = ndjson.split("\n");
+        assertEquals(1000, lines.length);
+        assertTrue(lines[0].contains("\"timestamp\":\"2024-01-01T00:00:00\""));
+        assertTrue(lines[999].contains("\"id\":\"0000000000000000000003e7\""));
+    }
+
+    @Test
+    void testMillionsOfRowsExportWithFlatHeap() {
+        int rows = 3_000_000;
+        Runtime runtime = Runtime.getRuntime();
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong baseline = new AtomicLong();
+        AtomicLong peakGrowth = new AtomicLong();
+
+        exporter.export(Flux.range(0, rows).map(StatementExporterTest::transaction), StatementExporter.Format.CSV, false)
+                .index()
+                .doOnNext(indexed -> {
+                    DataBuffer buffer = indexed.getT2();
+                    bytes.addAndGet(buffer.readableByteCount());
+                    DataBufferUtils.release(buffer);
+                    // sample the live heap every ~250k rows
+                    if (indexed.getT1() % 1000 == 0) {
+                        System.gc();
+                        long used = runtime.totalMemory() - runtime.freeMemory();
+                        if (indexed.getT1() == 1000) {
+                            baseline.set(used);
+                        } else if (indexed.getT1() > 1000) {
+                            peakGrowth.accumulateAndGet(used - baseline.get(), Math::max);
+                        }
+                    }
+                })
+                .blockLast();
+
+        // The whole statement is several hundred MB; only a chunk at a time may be live
+        assertTrue(bytes.get() > 200L * 1024 * 1024, "exported " + bytes.get() + " bytes");
+        assertTrue(peakGrowth.get() < 16L * 1024 * 1024, "heap grew by " + peakGrowth.get() + " bytes");
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionBucket;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionArchiverTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionArchiver archiver = new TransactionArchiver(mongoTemplate, meterRegistry, true,
+            Duration.ofDays(90), Duration.ofHours(1), 10_000, 2, "zstd");
+
+    private static Transaction transaction(String id, String accountId, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAccountId(accountId);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    @Test
+    void testAccountDayIsRebuiltFromArchivedAndHotTransactions() {
+        Transaction t1 = transaction("65a1f0c2e4b0a1b2c3d4e5f1", "account123", DAY.atTime(8, 0));
+        Transaction t2 = transaction("65a1f0c2e4b0a1b2c3d4e5f2", "account123", DAY.atTime(9, 0));
+        Transaction t3 = transaction("65a1f0c2e4b0a1b2c3d4e5f3", "account123", DAY.atTime(10, 0));
+        Transaction t4 = transaction("65a1f0c2e4b0a1b2c3d4e5f4", "account123", DAY.atTime(10, 0));
+        // t2 was bucketed by a run that stopped before deleting it
+        when(mongoTemplate.exists(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(false));
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.just(t4, t2, t3));
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class)))
+                .thenReturn(Flux.just(new TransactionBucket("account123", DAY, 0, List.of(t1, t2))));
+        when(mongoTemplate.save(any(TransactionBucket.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.remove(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(DeleteResult.acknowledged(3)));
+
+        assertEquals(3L, archiver.archiveAccountDay("account123", DAY).block());
+
+        ArgumentCaptor<TransactionBucket> saved = ArgumentCaptor.forClass(TransactionBucket.class);
+        verify(mongoTemplate, times(2)).save(saved.capture());
+        TransactionBucket first = saved.getAllValues().get(0);
+        TransactionBucket second = saved.getAllValues().get(1);
+        assertEquals("account123|2024-05-01|0", first.getId());
+        assertEquals(List.of(t1, t2), first.getTransactions());
+        assertEquals(List.of(t3, t4), second.getTransactions());
+        assertEquals(2, second.getCount());
+        assertEquals(DAY.atTime(10, 0), second.getFirstAt());
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(Transaction.class));
+        assertEquals(List.of(t4.getId(), t2.getId(), t3.getId()),
+                List.copyOf((Collection<?>) ((Document) removed.getValue().getQueryObject().get("_id")).get("$in")));
+        assertEquals(3.0, meterRegistry.counter("transactions.archived").count());
+    }
+
+    @Test
+    void testDaysWithPendingTransactionsAreLeftHot() {
+        when(mongoTemplate.exists(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(true));
+
+        assertEquals(0L, archiver.archiveAccountDay("account123", DAY).block());
+
+        verify(mongoTemplate, never()).save(any(TransactionBucket.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(Transaction.class));
+    }
+
+    @Test
+    void testEachAccountDayIsVisitedOnce() {
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.just(
+                transaction("65a1f0c2e4b0a1b2c3d4e5f1", "account123", DAY.atTime(8, 0)),
+                transaction("65a1f0c2e4b0a1b2c3d4e5f2", "account123", DAY.atTime(9, 0)),
+                transaction("65a1f0c2e4b0a1b2c3d4e5f3", "account456", DAY.atTime(9, 0)),
+                transaction("65a1f0c2e4b0a1b2c3d4e5f4", "account123", DAY.plusDays(1).atTime(9, 0))));
+        when(mongoTemplate.exists(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(true));
+
+        assertEquals(0L, archiver.archive().block());
+
+        ArgumentCaptor<Query> scan = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(scan.capture(), eq(Transaction.class));
+        assertEquals(10_000, scan.getValue().getLimit());
+        assertEquals(new Document("accountId", 1).append("timestamp", 1), scan.getValue().getFieldsObject());
+        verify(mongoTemplate, times(3)).exists(any(Query.class), eq(Transaction.class));
+    }
+
+    @Test
+    void testScanResumesPastAccountDaysThatAreHeldBack() {
+        TransactionArchiver archiver = new TransactionArchiver(mongoTemplate, meterRegistry, true,
+                Duration.ofDays(90), Duration.ofHours(1), 2, 2, "zstd");
+        // account123 has a PENDING transaction that day, so its settled rows stay hot and fill the scan
+        Transaction blocked = transaction("65a1f0c2e4b0a1b2c3d4e5f2", "account123", DAY.atTime(9, 0));
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class)))
+                .thenReturn(Flux.just(transaction("65a1f0c2e4b0a1b2c3d4e5f1", "account123", DAY.atTime(8, 0)), blocked))
+                .thenReturn(Flux.just(transaction("65a1f0c2e4b0a1b2c3d4e5f3", "account456", DAY.atTime(9, 0))))
+                .thenReturn(Flux.empty());
+        when(mongoTemplate.exists(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(true));
+
+        archiver.archive().block();
+        archiver.archive().block();
+        archiver.archive().block();
+
+        ArgumentCaptor<Query> scans = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(3)).find(scans.capture(), eq(Transaction.class));
+        assertNull(scans.getAllValues().get(0).getQueryObject().get("$and"));
+        // the second scan starts after the last row of the first
+        List<?> and = (List<?>) scans.getAllValues().get(1).getQueryObject().get("$and");
+        List<?> or = (List<?>) ((Document) and.get(1)).get("$or");
+        assertEquals(new Document("timestamp", new Document("$gt", blocked.getTimestamp())), or.get(0));
+        assertEquals(new Document("timestamp", blocked.getTimestamp()).append("_id", new Document("$gt", blocked.getId())), or.get(1));
+        // that one came back short, so the third starts from the oldest again
+        assertNull(scans.getAllValues().get(2).getQueryObject().get("$and"));
+    }
+
+    @Test
+    void testTransactionsWithoutStatusAreArchived() {
+        // written before the status lifecycle existed
+        Transaction legacy = transaction("65a1f0c2e4b0a1b2c3d4e5f1", "account123", DAY.atTime(8, 0));
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.just(legacy));
+        when(mongoTemplate.exists(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(false));
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class))).thenReturn(Flux.empty());
+        when(mongoTemplate.save(any(TransactionBucket.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.remove(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        assertEquals(1L, archiver.archive().block());
+
+        ArgumentCaptor<Query> scans = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(scans.capture(), eq(Transaction.class));
+        // a status filter of $in would skip the document; $nin matches a missing field
+        assertEquals(new Document("$nin", List.of("PENDING", "MANUAL_REVIEW")),
+                scans.getAllValues().get(0).getQueryObject().get("status"));
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.TransactionLimitsProperties;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionLimitsEngineTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T10:00:00Z"));
+    private final TransactionQueryService queryService = mock(TransactionQueryService.class);
+    private final TransactionLimitsEngine engine = new TransactionLimitsEngine(properties(), queryService, clock);
+
+    TransactionLimitsEngineTest() {
+        when(queryService.recentTransactions(anyString(), any(), any(), any())).thenReturn(Flux.empty());
+    }
+
+    private TransactionLimitsEngine.Reservation acquire(String accountId, String transactionType, BigDecimal amount) {
+        return engine.limitsOf(accountId).block().tryAcquire(transactionType, amount);
+    }
+
+    private static TransactionLimitsProperties properties() {
+        TransactionLimitsProperties.Rule withdrawal = new TransactionLimitsProperties.Rule();
+        withdrawal.setMaxAmountPerDay(new BigDecimal("1000.00"));
+        withdrawal.setMaxOperationsPerMinute(3);
+        TransactionLimitsProperties properties = new TransactionLimitsProperties();
+        properties.getRules().put("WITHDRAWAL", withdrawal);
+        return properties;
+    }
+
+    @Test
+    void testVelocityLimitSlidesWithTheMinute() {
+        for (int i = 0; i < 3; i++) {
+            acquire("a1", "WITHDRAWAL", BigDecimal.ONE);
+        }
+        TransactionLimitExceededException e = assertThrows(TransactionLimitExceededException.class,
+                () -> acquire("a1", "withdrawal", BigDecimal.ONE));
+        assertEquals(TransactionLimitExceededException.VELOCITY, e.getCode());
+
+        // other accounts and unlimited types are unaffected
+        assertNotNull(acquire("a2", "WITHDRAWAL", BigDecimal.ONE));
+        assertNull(acquire("a1", "DEPOSIT", BigDecimal.ONE));
+
+        clock.advance(Duration.ofSeconds(61));
+        assertNotNull(acquire("a1", "WITHDRAWAL", BigDecimal.ONE));
+    }
+
+    @Test
+    void testDailyAmountLimitAndRelease() {
+        TransactionLimitsEngine.Reservation first = acquire("a1", "WITHDRAWAL", new BigDecimal("600.00"));
+        clock.advance(Duration.ofHours(2));
+        TransactionLimitExceededException e = assertThrows(TransactionLimitExceededException.class,
+                () -> acquire("a1", "WITHDRAWAL", new BigDecimal("500.00")));
+        assertEquals(TransactionLimitExceededException.DAILY_AMOUNT, e.getCode());
+        assertEquals(0, new BigDecimal("600.00").compareTo(e.getCurrent()));
+
+        // a failed transaction gives its amount back
+        engine.release(first);
+        assertNotNull(acquire("a1", "WITHDRAWAL", new BigDecimal("500.00")));
+
+        clock.advance(Duration.ofHours(25));
+        assertNotNull(acquire("a1", "WITHDRAWAL", new BigDecimal("900.00")));
+    }
+
+    @Test
+    void testReplayWarmsTheWindows() {
+        Transaction recent = new Transaction();
+        recent.setAccountId("a1");
+        recent.setTransactionType("WITHDRAWAL");
+        recent.setAmount(Money.of("950.00"));
+        recent.setTimestamp(LocalDateTime.ofInstant(clock.instant().minus(Duration.ofHours(3)), ZoneOffset.UTC));
+        engine.replay(recent);
+
+        assertThrows(TransactionLimitExceededException.class,
+                () -> acquire("a1", "WITHDRAWAL", new BigDecimal("100.00")));
+    }
+
+    @Test
+    void testWarmUpStopsWhereLiveCountingStarts() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Transaction lowerCase = new Transaction();
+        lowerCase.setAccountId("a1");
+        lowerCase.setTransactionType("withdrawal");
+        lowerCase.setAmount(Money.of("950.00"));
+        lowerCase.setTimestamp(now.minusHours(3));
+        when(queryService.recentTransactions(now.minusDays(1), now, properties().getRules().keySet()))
+                .thenReturn(Flux.just(lowerCase));
+
+        engine.start();
+
+        // the row stored lower-cased before types were normalized still counts
+        assertThrows(TransactionLimitExceededException.class,
+                () -> acquire("a1", "WITHDRAWAL", new BigDecimal("100.00")));
+        verify(queryService).recentTransactions(now.minusDays(1), now, properties().getRules().keySet());
+    }
+
+    @Test
+    void testChecksWaitForTheWarmUp() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Sinks.Many<Transaction> rows = Sinks.many().unicast().onBackpressureBuffer();
+        when(queryService.recentTransactions(now.minusDays(1), now, properties().getRules().keySet()))
+                .thenReturn(rows.asFlux());
+
+        engine.start();
+        CompletableFuture<TransactionLimitsEngine.AccountLimits> limits = engine.limitsOf("a1").toFuture();
+        assertFalse(limits.isDone());
+
+        rows.tryEmitNext(withdrawal("a1", "950.00", now.minusHours(3)));
+        rows.tryEmitComplete();
+        assertThrows(TransactionLimitExceededException.class,
+                () -> limits.join().tryAcquire("WITHDRAWAL", new BigDecimal("100.00")));
+        verify(queryService, never()).recentTransactions(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void testEvictedWindowsAreReloaded() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        when(queryService.recentTransactions("a1", now.minusDays(1), now, properties().getRules().keySet()))
+                .thenReturn(Flux.just(withdrawal("a1", "950.00", now.minusHours(3))));
+
+        // a1 was never warmed up, or was evicted since: its day comes back from Mongo before the check
+        assertThrows(TransactionLimitExceededException.class,
+                () -> acquire("a1", "WITHDRAWAL", new BigDecimal("100.00")));
+        assertNotNull(acquire("a1", "WITHDRAWAL", new BigDecimal("50.00")));
+        verify(queryService, times(1)).recentTransactions(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void testFailedWarmUpFallsBackToReloading() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        when(queryService.recentTransactions(now.minusDays(1), now, properties().getRules().keySet()))
+                .thenReturn(Flux.concat(Flux.just(withdrawal("a1", "10.00", now.minusHours(1))),
+                        Flux.error(new IllegalStateException("cursor killed"))));
+        when(queryService.recentTransactions("a1", now.minusDays(1), now, properties().getRules().keySet()))
+                .thenReturn(Flux.just(withdrawal("a1", "950.00", now.minusHours(3))));
+
+        engine.start();
+
+        assertThrows(TransactionLimitExceededException.class,
+                () -> acquire("a1", "WITHDRAWAL", new BigDecimal("100.00")));
+    }
+
+    private static Transaction withdrawal(String accountId, String amount, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId(accountId);
+        transaction.setTransactionType("WITHDRAWAL");
+        transaction.setAmount(Money.of(amount));
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    @Test
+    void testSlidingWindowCounterIsConsistentUnderContention() throws InterruptedException {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(1), 60);
+        long now = clock.millis();
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counter.add(now + (i % 1000), BigDecimal.ONE, 1);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        SlidingWindowCounter.Totals totals = counter.totals(now + 999);
+        assertEquals(threads * perThread, totals.count());
+        assertEquals(0, BigDecimal.valueOf(threads * perThread).compareTo(totals.amount()));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
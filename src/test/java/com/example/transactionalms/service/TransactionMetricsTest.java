@@ -0,0 +1,55 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.service.TransactionMetrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TransactionMetrics metrics = new TransactionMetrics(registry);
+
+    @Test
+    void testStagesAreTimedByOutcome() {
+        StepVerifier.create(metrics.stage(Stage.MONGO_SAVE, Mono.delay(Duration.ofMillis(20)))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(metrics.stage(Stage.MONGO_SAVE, Mono.error(new IllegalStateException()))).expectError().verify();
+        StepVerifier.create(metrics.stage(Stage.BALANCE_UPDATE, Mono.never())).thenCancel().verify();
+
+        assertEquals(1, stageCount("mongo.save", "success"));
+        assertEquals(1, stageCount("mongo.save", "error"));
+        assertEquals(1, stageCount("balance.update", "cancelled"));
+        assertTrue(registry.get("transaction.stage").tag("stage", "mongo.save").tag("outcome", "success").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 20);
+        // all stages are registered up front so dashboards see them before the first request
+        assertEquals(Stage.values().length * 3, registry.get("transaction.stage").timers().size());
+    }
+
+    @Test
+    void testRequestsAreTaggedByTypeAndException() {
+        StepVerifier.create(metrics.request("deposit", Mono.just(1))).expectNext(1).verifyComplete();
+        StepVerifier.create(metrics.request("WITHDRAWAL", Mono.error(new IllegalArgumentException("Insufficient balance"))))
+                .expectError().verify();
+        StepVerifier.create(metrics.request("account-42", Mono.error(new IllegalArgumentException())))
+                .expectError().verify();
+
+        assertEquals(1, registry.get("transaction.requests")
+                .tags("type", "DEPOSIT", "outcome", "success", "exception", "none").timer().count());
+        assertEquals(1, registry.get("transaction.requests")
+                .tags("type", "WITHDRAWAL", "outcome", "error", "exception", "IllegalArgumentException").timer().count());
+        // free-form input never becomes a tag value
+        assertEquals(1, registry.get("transaction.requests").tag("type", "OTHER").timer().count());
+        assertEquals(3, registry.get("transaction.requests").timers().size());
+    }
+
+    private long stageCount(String stage, String outcome) {
+        return registry.get("transaction.stage").tag("stage", stage).tag("outcome", outcome).timer().count();
+    }
+}
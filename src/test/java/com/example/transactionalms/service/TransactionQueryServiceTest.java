@@ -0,0 +1,219 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.dto.TransactionHistoryQuery;
+import com.example.transactionalms.dto.TransactionPageDTO;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionBucket;
+import com.example.transactionalms.model.TransactionStatus;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionQueryServiceTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final TransactionQueryService queryService = new TransactionQueryService(mongoTemplate, 100, 1000, false, Duration.ofDays(90));
+
+    private Transaction transaction(String id, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAccountId("account123");
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    @Test
+    void testFindHistoryReturnsSeekCursor() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.just(
+                transaction("65a1f0c2e4b0a1b2c3d4e5f1", now),
+                transaction("65a1f0c2e4b0a1b2c3d4e5f2", now),
+                transaction("65a1f0c2e4b0a1b2c3d4e5f3", now.plusSeconds(1))));
+
+        TransactionHistoryQuery request = TransactionHistoryQuery.builder().accountId("account123").limit(2).build();
+        TransactionPageDTO page = queryService.findHistory(request).block();
+
+        assertNotNull(page);
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+        TransactionQueryService.HistoryCursor cursor = TransactionQueryService.HistoryCursor.decode(page.getNextCursor());
+        assertEquals(now, cursor.timestamp());
+        assertEquals(new ObjectId("65a1f0c2e4b0a1b2c3d4e5f2"), cursor.id());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Transaction.class));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("timestamp", 1).append("_id", 1), query.getValue().getSortObject());
+    }
+
+    @Test
+    void testFindHistoryAppliesCursorAndProjection() {
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.empty());
+        String cursor = new TransactionQueryService.HistoryCursor(LocalDateTime.of(2024, 5, 1, 10, 0),
+                new ObjectId("65a1f0c2e4b0a1b2c3d4e5f2")).encode();
+
+        TransactionHistoryQuery request = TransactionHistoryQuery.builder()
+                .accountId("account123").cursor(cursor).fields(List.of("amount")).build();
+        TransactionPageDTO page = queryService.findHistory(request).block();
+
+        assertNotNull(page);
+        assertNull(page.getNextCursor());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Transaction.class));
+        List<?> clauses = (List<?>) query.getValue().getQueryObject().get("$and");
+        assertEquals(2, clauses.size());
+        assertTrue(((Document) clauses.get(1)).containsKey("$or"));
+        assertEquals(new Document("amount", 1).append("timestamp", 1), query.getValue().getFieldsObject());
+    }
+
+    @Test
+    void testFindHistoryRejectsInvalidInput() {
+        StepVerifier.create(queryService.findHistory(TransactionHistoryQuery.builder().build()))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(queryService.findHistory(TransactionHistoryQuery.builder().accountId("a").cursor("???").build()))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(queryService.findHistory(TransactionHistoryQuery.builder().accountId("a").fields(List.of("secret")).build()))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void testBackfillSeeksPastTheLastRowOfEachPage() {
+        TransactionQueryService paged = new TransactionQueryService(mongoTemplate, 2, 1000, false, Duration.ofDays(90));
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 0);
+        // the second row was created on another instance: its id sorts below the first one
+        Transaction t1 = transaction("65a1f0c2e4b0a1b2c3d4e5f2", now);
+        Transaction t2 = transaction("65a1f0c2e4b0a1b2c3d4e5f1", now.plusSeconds(1));
+        Transaction t3 = transaction("65a1f0c2e4b0a1b2c3d4e5f3", now.plusSeconds(2));
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class)))
+                .thenReturn(Flux.just(t1, t2))
+                .thenReturn(Flux.just(t3));
+
+        StepVerifier.create(paged.backfill("account123", null, null)).expectNext(t1, t2, t3).verifyComplete();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queries.capture(), eq(Transaction.class));
+        Query second = queries.getAllValues().get(1);
+        assertEquals(new Document("timestamp", 1).append("_id", 1), second.getSortObject());
+        assertEquals(new TransactionQueryService.HistoryCursor(now.plusSeconds(1), new ObjectId(t2.getId())).seekPast().getCriteriaObject(),
+                ((List<?>) second.getQueryObject().get("$and")).get(1));
+    }
+
+    @Test
+    void testResumePointReadsEventIdsAndBareTransactionIds() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 10, 0);
+        Transaction transaction = transaction("65a1f0c2e4b0a1b2c3d4e5f1", timestamp);
+        when(mongoTemplate.findOne(any(Query.class), eq(Transaction.class))).thenReturn(Mono.just(transaction));
+        TransactionQueryService.HistoryCursor expected = TransactionQueryService.HistoryCursor.of(transaction);
+
+        assertEquals(expected, queryService.resumePoint(TransactionQueryService.eventId(transaction)).block());
+        assertEquals(expected, queryService.resumePoint(transaction.getId()).block());
+        assertNull(queryService.resumePoint("not-an-event-id").block());
+    }
+
+    @Test
+    void testRecentTransactionsStopAtUntilAndMatchBothSpellings() {
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.empty());
+        LocalDateTime until = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+        queryService.recentTransactions(until.minusDays(1), until, List.of("Withdrawal")).blockLast();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Transaction.class));
+        Document criteria = query.getValue().getQueryObject();
+        assertEquals(new Document("$gte", until.minusDays(1)).append("$lt", until), criteria.get("timestamp"));
+        assertEquals(List.of("WITHDRAWAL", "withdrawal"), criteria.get("transactionType", Document.class).get("$in"));
+    }
+
+    @Test
+    void testArchivedTransactionsAreMergedInOrder() {
+        TransactionQueryService archiveQueryService = new TransactionQueryService(mongoTemplate, 100, 1000, true, Duration.ofDays(90));
+        LocalDateTime day = LocalDateTime.of(2024, 5, 1, 0, 0);
+        Transaction a1 = transaction("65a1f0c2e4b0a1b2c3d4e5f1", day.plusHours(8));
+        Transaction a2 = transaction("65a1f0c2e4b0a1b2c3d4e5f3", day.plusHours(9));
+        Transaction a3 = transaction("65a1f0c2e4b0a1b2c3d4e5f4", day.plusDays(1).plusHours(7));
+        Transaction h1 = transaction("65a1f0c2e4b0a1b2c3d4e5f2", day.plusHours(9));
+        // a3 was archived but not yet deleted from the hot collection
+        Transaction h2 = transaction("65a1f0c2e4b0a1b2c3d4e5f4", day.plusDays(1).plusHours(7));
+        Transaction h3 = transaction("65a1f0c2e4b0a1b2c3d4e5f5", day.plusDays(200));
+        // archived settled rows that never moved the balance are left out of the statement
+        Transaction failed = transaction("65a1f0c2e4b0a1b2c3d4e5f6", day.plusHours(10));
+        failed.setStatus(TransactionStatus.FAILED);
+        a2.setStatus(TransactionStatus.APPLIED);
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class))).thenAnswer(invocation -> Flux.just(
+                new TransactionBucket("account123", LocalDate.of(2024, 5, 1), 0, List.of(a1, a2, failed)),
+                new TransactionBucket("account123", LocalDate.of(2024, 5, 2), 0, List.of(a3))));
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenAnswer(invocation -> Flux.just(h1, h2, h3));
+
+        List<String> ids = archiveQueryService.streamStatement("account123", null, null).map(Transaction::getId).collectList().block();
+
+        assertEquals(List.of(a1.getId(), h1.getId(), a2.getId(), a3.getId(), h3.getId()), ids);
+        ArgumentCaptor<Query> hot = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(hot.capture(), eq(Transaction.class));
+        assertEquals(new Document("$in", Arrays.asList("APPLIED", null)), hot.getValue().getQueryObject().get("status"));
+        // a range inside the horizon never touches the archive
+        archiveQueryService.streamStatement("account123", LocalDateTime.now().minusDays(1), null).blockLast();
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(TransactionBucket.class));
+    }
+
+    @Test
+    void testHistoryPagesAcrossTheArchive() {
+        TransactionQueryService archiveQueryService = new TransactionQueryService(mongoTemplate, 100, 1000, true, Duration.ofDays(90));
+        LocalDateTime day = LocalDateTime.of(2024, 5, 1, 0, 0);
+        Transaction a1 = transaction("65a1f0c2e4b0a1b2c3d4e5f1", day.plusHours(8));
+        a1.setAmount(Money.of("10.00"));
+        a1.setUserId("user1");
+        Transaction a2 = transaction("65a1f0c2e4b0a1b2c3d4e5f3", day.plusHours(9));
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class))).thenReturn(Flux.just(
+                new TransactionBucket("account123", LocalDate.of(2024, 5, 1), 0, List.of(a1, a2))));
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.just(
+                transaction("65a1f0c2e4b0a1b2c3d4e5f2", day.plusHours(8).plusMinutes(30))));
+
+        TransactionPageDTO page = archiveQueryService.findHistory(TransactionHistoryQuery.builder()
+                .accountId("account123").limit(2).fields(List.of("amount")).build()).block();
+
+        assertNotNull(page);
+        assertEquals(List.of(a1.getId(), "65a1f0c2e4b0a1b2c3d4e5f2"), page.getItems().stream().map(Transaction::getId).toList());
+        Transaction projected = page.getItems().get(0);
+        assertEquals(Money.of("10.00"), projected.getAmount());
+        assertEquals(a1.getTimestamp(), projected.getTimestamp());
+        assertNull(projected.getUserId());
+
+        // the hot row is behind the cursor now
+        when(mongoTemplate.find(any(Query.class), eq(Transaction.class))).thenReturn(Flux.empty());
+        TransactionPageDTO next = archiveQueryService.findHistory(TransactionHistoryQuery.builder()
+                .accountId("account123").limit(2).cursor(page.getNextCursor()).build()).block();
+        assertNotNull(next);
+        assertEquals(List.of(a2.getId()), next.getItems().stream().map(Transaction::getId).toList());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void testExistsInArchive() {
+        when(mongoTemplate.exists(any(Query.class), eq(TransactionBucket.class))).thenReturn(Mono.just(true));
+
+        assertFalse(queryService.existsInArchive("account123").block());
+        assertTrue(new TransactionQueryService(mongoTemplate, 100, 1000, true, Duration.ofDays(90))
+                .existsInArchive("account123").block());
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.AccountsClientProperties;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.argThat;
+
+class TransactionReconcilerTest {
+
+    private final List<String> idempotencyKeys = new ArrayList<>();
+    private final List<String> ifMatch = new ArrayList<>();
+    private final AtomicInteger balanceStatus = new AtomicInteger(200);
+    private final AtomicReference<String> accountBalance = new AtomicReference<>("100.00");
+    private final AtomicLong accountVersion = new AtomicLong(7);
+    private final AtomicInteger gets = new AtomicInteger();
+    private TransactionRepository repository;
+    private OutboxService outbox;
+    private AccountAggregateService aggregates;
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TransactionRepository.class);
+        when(repository.save(any(Transaction.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(repository.countByStatusAndStatusUpdatedAtLessThan(eq(TransactionStatus.PENDING), any())).thenReturn(Mono.just(0L));
+        when(repository.findFirstByStatusOrderByTimestampAsc(TransactionStatus.PENDING)).thenReturn(Mono.empty());
+        when(repository.findByEventCheckAtLessThanOrderByEventCheckAtAsc(any(), any())).thenReturn(Flux.empty());
+        when(repository.deferEventCheck(any(), any())).thenReturn(Mono.just(1L));
+        outbox = mock(OutboxService.class);
+        when(outbox.enqueue(any())).thenReturn(Mono.empty());
+        aggregates = mock(AccountAggregateService.class);
+        when(aggregates.record(any(Transaction.class))).thenReturn(Mono.empty());
+        meterRegistry = new SimpleMeterRegistry();
+        reconciler = reconciler(AccountsClientProperties.BalanceUpdateMode.DELTA);
+    }
+
+    private TransactionReconciler reconciler(AccountsClientProperties.BalanceUpdateMode mode) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            if (request.method() == HttpMethod.GET) {
+                gets.incrementAndGet();
+                return Mono.just(account(HttpStatus.OK, accountBalance.get(), accountVersion.get()));
+            }
+            idempotencyKeys.add(request.headers().getFirst("Idempotency-Key"));
+            ifMatch.add(request.headers().getFirst(HttpHeaders.IF_MATCH));
+            HttpStatus status = HttpStatus.valueOf(balanceStatus.get());
+            return Mono.just(status.is2xxSuccessful()
+                    ? account(status, "110.00", accountVersion.get() + 1)
+                    : ClientResponse.create(status).build());
+        });
+        AccountsClientProperties properties = new AccountsClientProperties();
+        properties.setBalanceUpdateMode(mode);
+        return new TransactionReconciler(repository,
+                new AccountsClient(builder.build(), properties, meterRegistry),
+                new AccountSequencer(4, meterRegistry),
+                new AccountCache(false, 100, Duration.ofMinutes(1), meterRegistry),
+                aggregates, outbox, meterRegistry,
+                false, 10, Duration.ofSeconds(30), Duration.ofMinutes(2), 3);
+    }
+
+    private static ClientResponse account(HttpStatus status, String balance, long version) {
+        return ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"accountId\":\"a1\",\"balance\":" + balance + ",\"version\":" + version + "}")
+                .build();
+    }
+
+    @Test
+    void testChangeThatDidNotLandIsSentAgainUnderTheSameVersion() {
+        Transaction stuck = stuck("t1", 0);
+        stubStuck(stuck);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.APPLIED, stuck.getStatus());
+        assertEquals(stuck.getStatusUpdatedAt(), stuck.getEventCheckAt());
+        assertEquals(Money.of("100.00"), stuck.getInitialBalance());
+        assertEquals(Money.of("110.00"), stuck.getFinalBalance());
+        assertEquals(List.of("t1"), idempotencyKeys);
+        assertEquals(List.of("\"7\""), ifMatch);
+        verify(aggregates).record(stuck);
+        verify(outbox).enqueue(argThat(event -> event.isSuccess() && "t1".equals(event.getTransactionId())));
+        assertEquals(1.0, meterRegistry.get("transactions.reconciler.processed").tag("outcome", "applied").counter().count());
+    }
+
+    @Test
+    void testMatchingBalanceOnAMovedAccountIsNotTakenAsApplied() {
+        // t1 never landed, but another withdrawal of the same amount from the same balance did
+        accountBalance.set("110.00");
+        accountVersion.set(8);
+        Transaction stuck = stuck("t1", 0);
+        stubStuck(stuck);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.MANUAL_REVIEW, stuck.getStatus());
+        assertEquals(List.of(), idempotencyKeys);
+        verify(aggregates, never()).record(any(Transaction.class));
+        verify(outbox, never()).enqueue(any());
+    }
+
+    @Test
+    void testAccountThatMovedSinceIsParkedForManualReview() {
+        // t1 landed and a later withdrawal brought the balance back: it must not be sent again
+        accountVersion.set(9);
+        Transaction stuck = stuck("t1", 0);
+        stubStuck(stuck);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.MANUAL_REVIEW, stuck.getStatus());
+        assertEquals(List.of(), idempotencyKeys);
+        verify(aggregates, never()).record(any(Transaction.class));
+        verify(outbox, never()).enqueue(any());
+        assertEquals(1.0, meterRegistry.get("transactions.reconciler.processed").tag("outcome", "manual-review").counter().count());
+    }
+
+    @Test
+    void testWithoutConditionalUpdatesNothingIsResent() {
+        Transaction absolute = stuck("t1", 0);
+        Transaction legacy = stuck("t2", 0);
+        legacy.setBalanceRequested(null);
+        legacy.setAccountVersion(null);
+        stubStuck(absolute);
+
+        StepVerifier.create(reconciler(AccountsClientProperties.BalanceUpdateMode.ABSOLUTE).reconcile()).verifyComplete();
+        stubStuck(legacy);
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.MANUAL_REVIEW, absolute.getStatus());
+        assertEquals(TransactionStatus.MANUAL_REVIEW, legacy.getStatus());
+        assertEquals(0, gets.get());
+        assertEquals(List.of(), idempotencyKeys);
+    }
+
+    @Test
+    void testTransactionNeverSentIsFailed() {
+        Transaction stuck = stuck("t1", 0);
+        stuck.setBalanceRequested(false);
+        stubStuck(stuck);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.FAILED, stuck.getStatus());
+        assertEquals(0, gets.get());
+        assertEquals(List.of(), idempotencyKeys);
+        verify(outbox).enqueue(argThat(event -> !event.isSuccess() && "t1".equals(event.getTransactionId())));
+        assertEquals(1.0, meterRegistry.get("transactions.reconciler.processed").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void testLostAppliedWriteOnlyRewritesTheStatus() {
+        accountBalance.set("120.00");
+        Transaction stuck = stuck("t1", 0);
+        stuck.setBalanceApplied(true);
+        stubStuck(stuck);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.APPLIED, stuck.getStatus());
+        assertEquals(0, gets.get());
+        assertEquals(List.of(), idempotencyKeys);
+        verify(outbox).enqueue(argThat(event -> event.isSuccess() && "t1".equals(event.getTransactionId())));
+    }
+
+    @Test
+    void testUnansweredRetryStaysPending() {
+        balanceStatus.set(503);
+        Transaction stuck = stuck("t1", 1);
+        stubStuck(stuck);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.PENDING, stuck.getStatus());
+        assertEquals(2, stuck.getReconcileAttempts());
+        verify(outbox, never()).enqueue(any());
+        assertEquals(1.0, meterRegistry.get("transactions.reconciler.processed").tag("outcome", "deferred").counter().count());
+    }
+
+    @Test
+    void testRejectedOrExhaustedTransactionsAreCompensated() {
+        balanceStatus.set(422);
+        Transaction rejected = stuck("t1", 0);
+        Transaction exhausted = stuck("t2", 3);
+        stubStuck(rejected, exhausted);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.COMPENSATED, rejected.getStatus());
+        assertEquals(TransactionStatus.COMPENSATED, exhausted.getStatus());
+        // the exhausted one is not sent again
+        assertEquals(List.of("t1"), idempotencyKeys);
+        verify(outbox).enqueue(argThat(event -> !event.isSuccess() && "t1".equals(event.getTransactionId())));
+        verify(outbox).enqueue(argThat(event -> !event.isSuccess() && "t2".equals(event.getTransactionId())));
+        verify(aggregates, never()).record(any(Transaction.class));
+    }
+
+    @Test
+    void testExhaustedTransactionThatMayHaveLandedIsNotCompensated() {
+        accountVersion.set(8);
+        Transaction exhausted = stuck("t1", 3);
+        stubStuck(exhausted);
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        assertEquals(TransactionStatus.MANUAL_REVIEW, exhausted.getStatus());
+        assertEquals(List.of(), idempotencyKeys);
+        verify(outbox, never()).enqueue(any());
+    }
+
+    @Test
+    void testSettledTransactionMissingItsEventIsRequeued() {
+        Transaction lost = settled("t1", TransactionStatus.APPLIED);
+        Transaction queued = settled("t2", TransactionStatus.COMPENSATED);
+        when(repository.findByEventCheckAtLessThanOrderByEventCheckAtAsc(any(), any())).thenReturn(Flux.just(lost, queued));
+        when(outbox.isQueued("t1")).thenReturn(Mono.just(false));
+        when(outbox.isQueued("t2")).thenReturn(Mono.just(true));
+        stubStuck();
+
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        verify(outbox).enqueue(argThat(event -> event.isSuccess() && "t1".equals(event.getTransactionId())));
+        verify(outbox, never()).enqueue(argThat(event -> "t2".equals(event.getTransactionId())));
+        // both are looked at again later, so a queued event waiting for the broker does not stall the scan
+        verify(repository).deferEventCheck(eq("t1"), any());
+        verify(repository).deferEventCheck(eq("t2"), any());
+        assertEquals(1.0, meterRegistry.get("transactions.reconciler.events.requeued").counter().count());
+    }
+
+    private static Transaction settled(String id, TransactionStatus status) {
+        Transaction transaction = stuck(id, 0);
+        transaction.setStatus(status);
+        transaction.setEventCheckAt(transaction.getStatusUpdatedAt());
+        return transaction;
+    }
+
+    private void stubStuck(Transaction... transactions) {
+        when(repository.findByStatusAndStatusUpdatedAtLessThanOrderByStatusUpdatedAtAsc(eq(TransactionStatus.PENDING), any(), any()))
+                .thenReturn(Flux.just(transactions));
+    }
+
+    private static Transaction stuck(String id, int attempts) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAccountId("a1");
+        transaction.setTransactionType("DEPOSIT");
+        transaction.setAmount(Money.of("10.00"));
+        transaction.setInitialBalance(Money.of("100.00"));
+        transaction.setFinalBalance(Money.of("110.00"));
+        transaction.setTimestamp(LocalDateTime.now().minusMinutes(10));
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setStatusUpdatedAt(transaction.getTimestamp());
+        transaction.setReconcileAttempts(attempts);
+        transaction.setBalanceRequested(true);
+        transaction.setAccountVersion(7L);
+        return transaction;
+    }
+}
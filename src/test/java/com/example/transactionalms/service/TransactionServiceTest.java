@@ -1,12 +1,48 @@
 package com.example.transactionalms.service;
 
+import com.example.transactionalms.config.AccountsClientProperties;
+import com.example.transactionalms.config.TransactionLimitsProperties;
+import com.example.transactionalms.dto.BatchItemResultDTO;
 import com.example.transactionalms.dto.TransactionRequestDTO;
 import com.example.transactionalms.dto.TransactionResponseDTO;
+import com.example.transactionalms.model.Money;
 import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.model.TransactionStatus;
+import com.example.transactionalms.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class TransactionServiceTest {
 
@@ -19,8 +55,8 @@ class TransactionServiceTest {
         request.setAmount(new BigDecimal("100.00"));
         request.setUserId("user123");
 
-        BigDecimal initialBalance = new BigDecimal("200.00");
-        BigDecimal finalBalance = initialBalance.add(request.getAmount());
+        Money initialBalance = Money.of("200.00");
+        Money finalBalance = initialBalance.add(Money.of(request.getAmount()));
 
         // Llamar al método estático
         Transaction transaction = TransactionService.mapDataToTransaction(request, initialBalance, finalBalance);
@@ -30,12 +66,28 @@ class TransactionServiceTest {
         assertEquals("account123", transaction.getAccountId());
         assertEquals("DEPOSIT", transaction.getTransactionType());
         assertEquals(initialBalance, transaction.getInitialBalance());
-        assertEquals(request.getAmount(), transaction.getAmount());
+        assertEquals(Money.of(request.getAmount()), transaction.getAmount());
         assertEquals(finalBalance, transaction.getFinalBalance());
         assertEquals("user123", transaction.getUserId());
         assertNotNull(transaction.getTimestamp());  // Verifica que el timestamp no es null
     }
 
+    @Test
+    void testMapDataToTransactionStoresTheTypeUpperCased() {
+        TransactionRequestDTO request = new TransactionRequestDTO("account123", "withdrawal", new BigDecimal("10.00"), "user123");
+
+        Locale defaultLocale = Locale.getDefault();
+        // the Turkish dotted capital I must not leak into stored types
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            Transaction transaction = TransactionService.mapDataToTransaction(request, Money.of("20.00"), Money.of("10.00"));
+
+            assertEquals("WITHDRAWAL", transaction.getTransactionType());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
     @Test
     void testMapToResponseManually() {
         // Crear una instancia del objeto Transaction
@@ -43,9 +95,9 @@ class TransactionServiceTest {
         transaction.setId(String.valueOf(1L));
         transaction.setAccountId("account123");
         transaction.setTransactionType("DEPOSIT");
-        transaction.setInitialBalance(new BigDecimal("200.00"));
-        transaction.setAmount(new BigDecimal("100.00"));
-        transaction.setFinalBalance(new BigDecimal("300.00"));
+        transaction.setInitialBalance(Money.of("200.00"));
+        transaction.setAmount(Money.of("100.00"));
+        transaction.setFinalBalance(Money.of("300.00"));
         transaction.setUserId("user123");
         transaction.setTimestamp(LocalDateTime.now());
 
@@ -64,19 +116,294 @@ class TransactionServiceTest {
         assertEquals(String.valueOf(1L), response.getTransactionId());
         assertEquals("account123", response.getAccountId());
         assertEquals("DEPOSIT", response.getTransactionType());
-        assertEquals(new BigDecimal("200.00"), response.getInitialBalance());
-        assertEquals(new BigDecimal("100.00"), response.getAmount());
-        assertEquals(new BigDecimal("300.00"), response.getFinalBalance());
+        assertEquals(Money.of("200.00"), response.getInitialBalance());
+        assertEquals(Money.of("100.00"), response.getAmount());
+        assertEquals(Money.of("300.00"), response.getFinalBalance());
         assertEquals("SUCCESS", response.getStatus());
     }
 
+    @Test
+    void testComputeFinalBalance() {
+        TransactionRequestDTO deposit = new TransactionRequestDTO("account123", "DEPOSIT", new BigDecimal("50.00"), "user123");
+        TransactionRequestDTO withdrawal = new TransactionRequestDTO("account123", "WITHDRAWAL", new BigDecimal("250.00"), "user123");
+        TransactionRequestDTO unknown = new TransactionRequestDTO("account123", "TRANSFER", new BigDecimal("1.00"), "user123");
+
+        assertEquals(Money.of("250.00"), TransactionService.computeFinalBalance(deposit, Money.of("200.00")));
+        assertThrows(IllegalArgumentException.class, () -> TransactionService.computeFinalBalance(withdrawal, Money.of("200.00")));
+        assertThrows(IllegalArgumentException.class, () -> TransactionService.computeFinalBalance(unknown, Money.of("200.00")));
+    }
 
+    @Test
+    void testPerformBatchGroupsByAccount() {
+        AtomicInteger gets = new AtomicInteger();
+        AtomicInteger posts = new AtomicInteger();
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            if (request.method() == HttpMethod.GET) {
+                gets.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"accountId\":\"acc\",\"balance\":100.00}")
+                        .build());
+            }
+            posts.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        });
 
-}
+        TransactionRepository repository = mock(TransactionRepository.class);
+        when(repository.insert(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Transaction> transactions = invocation.getArgument(0);
+            return Flux.fromIterable(transactions);
+        });
+        when(repository.saveAll(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.<Iterable<Transaction>>getArgument(0)));
+        when(repository.markBalanceRequested(anyCollection())).thenReturn(Mono.just(1L));
+        OutboxService outbox = mock(OutboxService.class);
+        when(outbox.enqueueAll(anyList())).thenReturn(Mono.empty());
+        AccountAggregateService aggregates = mock(AccountAggregateService.class);
+        when(aggregates.record(anyList())).thenReturn(Mono.empty());
+        TransactionService service = new TransactionService(repository,
+                new AccountsClient(builder.build(), new AccountsClientProperties(), new SimpleMeterRegistry()), outbox,
+                new AccountSequencer(4, new SimpleMeterRegistry()),
+                new AccountCache(true, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                mock(TransactionStreamHub.class),
+                mock(TransactionQueryService.class),
+                aggregates,
+                new TransactionLimitsEngine(new TransactionLimitsProperties(), null), new TransactionMetrics(new SimpleMeterRegistry()),
+                TransactionWriterTest.direct(repository));
+
+        Flux<TransactionRequestDTO> requests = Flux.just(
+                new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("10.00"), "u1"),
+                new TransactionRequestDTO("a2", "WITHDRAWAL", new BigDecimal("30.00"), "u1"),
+                new TransactionRequestDTO("a1", "WITHDRAWAL", new BigDecimal("500.00"), "u1"),
+                new TransactionRequestDTO("a1", "WITHDRAWAL", new BigDecimal("110.00"), "u1"));
+
+        List<BatchItemResultDTO> results = service.performBatch(requests, r -> Optional.empty())
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        assertEquals(4, results.size());
+        assertEquals(2, gets.get());
+        assertEquals(2, posts.get());
+        verify(repository, times(2)).insert(anyIterable());
+        verify(outbox, times(2)).enqueueAll(anyList());
+        verify(aggregates, times(2)).record(anyList());
+
+        Map<Long, BatchItemResultDTO> byIndex = new HashMap<>();
+        results.forEach(r -> byIndex.put(r.getIndex(), r));
+        assertEquals("SUCCESS", byIndex.get(0L).getStatus());
+        assertEquals("SUCCESS", byIndex.get(1L).getStatus());
+        assertEquals("REJECTED", byIndex.get(2L).getStatus());
+        assertEquals("SUCCESS", byIndex.get(3L).getStatus());
+        assertEquals(Money.ZERO, byIndex.get(3L).getTransaction().getFinalBalance());
+    }
+
+    @Test
+    void testBalanceFailureMarksTheTransaction() {
+        TransactionRepository repository = mock(TransactionRepository.class);
+        List<Transaction> stored = new ArrayList<>();
+        when(repository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(new ObjectId().toHexString());
+            stored.add(transaction);
+            return Mono.just(transaction);
+        });
+        when(repository.saveAll(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.<Iterable<Transaction>>getArgument(0)));
+        when(repository.markBalanceRequested(anyCollection())).thenReturn(Mono.just(1L));
+        OutboxService outbox = mock(OutboxService.class);
+        when(outbox.enqueue(any())).thenReturn(Mono.empty());
+
+        AtomicInteger balanceStatus = new AtomicInteger();
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> request.method() == HttpMethod.GET
+                ? Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"accountId\":\"a1\",\"balance\":100.00}")
+                        .build())
+                : Mono.just(ClientResponse.create(HttpStatus.valueOf(balanceStatus.get())).build()));
+        TransactionService service = new TransactionService(repository,
+                new AccountsClient(builder.build(), new AccountsClientProperties(), new SimpleMeterRegistry()), outbox,
+                new AccountSequencer(4, new SimpleMeterRegistry()),
+                new AccountCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                mock(TransactionStreamHub.class), mock(TransactionQueryService.class),
+                mock(AccountAggregateService.class), new TransactionLimitsEngine(new TransactionLimitsProperties(), null), new TransactionMetrics(new SimpleMeterRegistry()),
+                TransactionWriterTest.direct(repository));
+        TransactionRequestDTO request = new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("10.00"), "u1");
+
+        // rejected outright: the balance did not move
+        balanceStatus.set(422);
+        StepVerifier.create(service.performTransaction(request)).expectError().verify(Duration.ofSeconds(5));
+        assertEquals(TransactionStatus.FAILED, stored.get(0).getStatus());
+        verify(outbox).enqueue(argThat(event -> !event.isSuccess()));
+
+        // no clear answer: left PENDING for the reconciler, without a failure event
+        balanceStatus.set(503);
+        StepVerifier.create(service.performTransaction(request)).expectError().verify(Duration.ofSeconds(5));
+        assertEquals(TransactionStatus.PENDING, stored.get(1).getStatus());
+        verify(repository).markBalanceRequested(List.of(stored.get(1).getId()));
+        verify(outbox, times(1)).enqueue(any());
+
+        // the balance moved but the APPLIED write failed: flagged so the reconciler does not send it again
+        balanceStatus.set(200);
+        when(repository.saveAll(anyIterable())).thenReturn(Flux.error(new IllegalStateException("mongo down")));
+        when(repository.markBalanceApplied(anyCollection())).thenReturn(Mono.just(1L));
+        StepVerifier.create(service.performTransaction(request)).expectErrorMessage("mongo down").verify(Duration.ofSeconds(5));
+        verify(repository).markBalanceApplied(List.of(stored.get(2).getId()));
+        verify(outbox, times(1)).enqueue(any());
+    }
+
+    @Test
+    void testFailedInsertIsMarkedFailedAndNeverSent() {
+        TransactionRepository repository = mock(TransactionRepository.class);
+        List<Transaction> attempted = new ArrayList<>();
+        when(repository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            attempted.add(invocation.getArgument(0));
+            return Mono.error(new DataAccessResourceFailureException("write timed out"));
+        });
+        when(repository.markFailed(anyCollection(), any(), any())).thenReturn(Mono.just(1L));
+        OutboxService outbox = mock(OutboxService.class);
+        when(outbox.enqueue(any())).thenReturn(Mono.empty());
+        AtomicInteger posts = new AtomicInteger();
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            if (request.method() != HttpMethod.GET) {
+                posts.incrementAndGet();
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("{\"accountId\":\"a1\",\"balance\":100.00}")
+                    .build());
+        });
+        TransactionService service = new TransactionService(repository,
+                new AccountsClient(builder.build(), new AccountsClientProperties(), new SimpleMeterRegistry()), outbox,
+                new AccountSequencer(4, new SimpleMeterRegistry()),
+                new AccountCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                mock(TransactionStreamHub.class), mock(TransactionQueryService.class),
+                mock(AccountAggregateService.class), new TransactionLimitsEngine(new TransactionLimitsProperties(), null), new TransactionMetrics(new SimpleMeterRegistry()),
+                TransactionWriterTest.direct(repository));
+
+        StepVerifier.create(service.performTransaction(new TransactionRequestDTO("a1", "DEPOSIT", new BigDecimal("10.00"), "u1")))
+                .expectErrorMessage("write timed out")
+                .verify(Duration.ofSeconds(5));
+
+        // the write may have been stored anyway: it is closed under the id it was sent with
+        assertNotNull(attempted.get(0).getId());
+        verify(repository).markFailed(eq(List.of(attempted.get(0).getId())), eq("write timed out"), any());
+        verify(repository, never()).markBalanceRequested(anyCollection());
+        assertEquals(0, posts.get());
+        verify(outbox).enqueue(argThat(event -> !event.isSuccess()));
+    }
 
+    @Test
+    void testStreamTransactionsResumesAfterLastEventId() {
+        TransactionStreamHub hub = mock(TransactionStreamHub.class);
+        TransactionQueryService queryService = mock(TransactionQueryService.class);
+        TransactionService service = new TransactionService(mock(TransactionRepository.class), mock(AccountsClient.class),
+                mock(OutboxService.class),
+                new AccountSequencer(4, new SimpleMeterRegistry()),
+                new AccountCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                hub, queryService, mock(AccountAggregateService.class), new TransactionLimitsEngine(new TransactionLimitsProperties(), null), new TransactionMetrics(new SimpleMeterRegistry()),
+                TransactionWriterTest.direct(mock(TransactionRepository.class)));
+
+        LocalDateTime resumedAt = LocalDateTime.now().minusMinutes(10);
+        TransactionQueryService.HistoryCursor after =
+                new TransactionQueryService.HistoryCursor(resumedAt, new ObjectId("65a1f0c2e4b0a1b2c3d4e5f0"));
+        Transaction delivered = transaction(after.id().toHexString(), resumedAt);
+        Transaction first = transaction(new ObjectId().toHexString(), resumedAt.plusMinutes(1));
+        Transaction second = transaction(new ObjectId().toHexString(), LocalDateTime.now());
+        // created by another instance a little earlier, committed after the backfill: its id sorts below both
+        Transaction late = transaction(new ObjectId(new Date(System.currentTimeMillis() - 5_000)).toHexString(),
+                LocalDateTime.now().plusSeconds(1));
+        // the hub replays its last events to every new subscriber, however old they are
+        Sinks.Many<Transaction> live = Sinks.many().replay().limit(16);
+        live.tryEmitNext(delivered);
+        live.tryEmitNext(first);
+        String lastEventId = TransactionQueryService.eventId(delivered);
+        when(queryService.resumePoint(lastEventId)).thenReturn(Mono.just(after));
+        when(hub.subscribe("account123")).thenReturn(live.asFlux());
+        when(queryService.backfill("account123", after, null))
+                .thenReturn(Flux.defer(() -> {
+                    // Inserted while the backfill is running: must come out once, from the backfill
+                    live.tryEmitNext(second);
+                    return Flux.just(first, second);
+                }));
 
+        StepVerifier.create(service.streamTransactions("account123", lastEventId, null).map(Transaction::getId))
+                .expectNext(first.getId(), second.getId())
+                .then(() -> live.tryEmitNext(late))
+                .expectNext(late.getId())
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
 
+    @Test
+    void testResumedStreamPassesSettlementsOfTransactionsSentPending() {
+        TransactionStreamHub hub = mock(TransactionStreamHub.class);
+        TransactionQueryService queryService = mock(TransactionQueryService.class);
+        TransactionService service = new TransactionService(mock(TransactionRepository.class), mock(AccountsClient.class),
+                mock(OutboxService.class),
+                new AccountSequencer(4, new SimpleMeterRegistry()),
+                new AccountCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                hub, queryService, mock(AccountAggregateService.class), new TransactionLimitsEngine(new TransactionLimitsProperties(), null), new TransactionMetrics(new SimpleMeterRegistry()),
+                TransactionWriterTest.direct(mock(TransactionRepository.class)));
 
+        LocalDateTime now = LocalDateTime.now();
+        Transaction seen = transaction(new ObjectId().toHexString(), now.minusMinutes(5), TransactionStatus.PENDING);
+        Transaction pending = transaction(new ObjectId().toHexString(), now.minusMinutes(1), TransactionStatus.PENDING);
+        Transaction applied = transaction(new ObjectId().toHexString(), now.minusSeconds(30), TransactionStatus.APPLIED);
+        TransactionQueryService.HistoryCursor after = TransactionQueryService.HistoryCursor.of(seen);
+        Sinks.Many<Transaction> live = Sinks.many().replay().limit(16);
+        // the client saw this one PENDING before reconnecting: its settlement is news
+        live.tryEmitNext(transaction(seen.getId(), seen.getTimestamp(), TransactionStatus.APPLIED));
+        when(queryService.resumePoint("cursor")).thenReturn(Mono.just(after));
+        when(hub.subscribe("account123")).thenReturn(live.asFlux());
+        when(queryService.backfill("account123", after, null)).thenReturn(Flux.defer(() -> {
+            // the insert of a row read back already settled, and the settlement read back as sent
+            live.tryEmitNext(transaction(applied.getId(), applied.getTimestamp(), TransactionStatus.PENDING));
+            live.tryEmitNext(applied);
+            return Flux.just(pending, applied);
+        }));
 
+        StepVerifier.create(service.streamTransactions("account123", "cursor", null)
+                        .map(transaction -> transaction.getId() + "|" + transaction.getStatus()))
+                .expectNext(pending.getId() + "|PENDING", applied.getId() + "|APPLIED", seen.getId() + "|APPLIED")
+                .then(() -> live.tryEmitNext(transaction(pending.getId(), pending.getTimestamp(), TransactionStatus.FAILED)))
+                .expectNext(pending.getId() + "|FAILED")
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
 
+    @Test
+    void testStreamWithoutResumePointIsLiveOnly() {
+        TransactionStreamHub hub = mock(TransactionStreamHub.class);
+        TransactionQueryService queryService = mock(TransactionQueryService.class);
+        TransactionService service = new TransactionService(mock(TransactionRepository.class), mock(AccountsClient.class),
+                mock(OutboxService.class),
+                new AccountSequencer(4, new SimpleMeterRegistry()),
+                new AccountCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry()),
+                hub, queryService, mock(AccountAggregateService.class), new TransactionLimitsEngine(new TransactionLimitsProperties(), null), new TransactionMetrics(new SimpleMeterRegistry()),
+                TransactionWriterTest.direct(mock(TransactionRepository.class)));
+        when(queryService.resumePoint("not-an-event-id")).thenReturn(Mono.empty());
+        when(hub.subscribe("account123")).thenReturn(Flux.empty());
 
+        StepVerifier.create(service.streamTransactions("account123", "not-an-event-id", null)).verifyComplete();
+
+        verify(queryService, never()).backfill(any(), any(), any());
+    }
+
+    private static Transaction transaction(String id, LocalDateTime timestamp, TransactionStatus status) {
+        Transaction transaction = transaction(id, timestamp);
+        transaction.setStatus(status);
+        return transaction;
+    }
+
+    private static Transaction transaction(String id, LocalDateTime timestamp) {
+        Transaction transaction = transaction(id);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    private static Transaction transaction(String id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAccountId("account123");
+        return transaction;
+    }
+}
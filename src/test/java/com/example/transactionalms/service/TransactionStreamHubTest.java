@@ -0,0 +1,87 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.model.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStreamHubTest {
+
+    private final Sinks.Many<Transaction> changes = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger upstreamSubscriptions = new AtomicInteger();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private TransactionStreamHub hub(int replaySize, int subscriberBuffer) {
+        return new TransactionStreamHub(() -> changes.asFlux().doOnSubscribe(s -> upstreamSubscriptions.incrementAndGet()),
+                registry, replaySize, subscriberBuffer);
+    }
+
+    private Transaction transaction(String id, String accountId) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAccountId(accountId);
+        return transaction;
+    }
+
+    @Test
+    void testFansOutBySingleUpstreamPerAccount() {
+        TransactionStreamHub hub = hub(0, 16);
+
+        StepVerifier.create(hub.subscribe("a1").take(2).map(Transaction::getId))
+                .then(() -> StepVerifier.create(hub.subscribe("a1").take(1).map(Transaction::getId))
+                        .then(() -> {
+                            changes.tryEmitNext(transaction("1", "a1"));
+                            changes.tryEmitNext(transaction("2", "a2"));
+                            changes.tryEmitNext(transaction("3", "a1"));
+                        })
+                        .expectNext("1")
+                        .verifyComplete())
+                .expectNext("1", "3")
+                .verifyComplete();
+
+        assertEquals(1, upstreamSubscriptions.get());
+        assertEquals(0.0, registry.get("transaction.stream.subscribers").gauge().value());
+        assertEquals(0.0, registry.get("transaction.stream.accounts").gauge().value());
+    }
+
+    @Test
+    void testReplaysRecentEventsToLateSubscribers() {
+        TransactionStreamHub hub = hub(2, 16);
+
+        StepVerifier.create(hub.subscribe("a1").map(Transaction::getId), 0)
+                .then(() -> {
+                    changes.tryEmitNext(transaction("1", "a1"));
+                    changes.tryEmitNext(transaction("2", "a1"));
+                    changes.tryEmitNext(transaction("3", "a1"));
+                })
+                .then(() -> StepVerifier.create(hub.subscribe("a1").take(2).map(Transaction::getId))
+                        .expectNext("2", "3")
+                        .verifyComplete())
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testSlowSubscriberDropsOldestEvents() {
+        TransactionStreamHub hub = hub(0, 2);
+
+        StepVerifier.create(hub.subscribe("a1").map(Transaction::getId), 0)
+                .then(() -> {
+                    for (int i = 1; i <= 5; i++) {
+                        changes.tryEmitNext(transaction(String.valueOf(i), "a1"));
+                    }
+                })
+                .thenRequest(2)
+                .expectNext("4", "5")
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(3.0, registry.get("transaction.stream.dropped").counter().count());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.transactionalms.service;
+
+import com.example.transactionalms.config.MongoConfigTest;
+import com.example.transactionalms.model.Money;
+import com.example.transactionalms.model.Transaction;
+import com.example.transactionalms.repository.TransactionRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.WriteConcernError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class TransactionWriterTest {
+
+    private final MongoCollection<Document> collection = mock(MongoCollection.class);
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final List<List<Document>> batches = new CopyOnWriteArrayList<>();
+    private final List<InsertManyOptions> options = new CopyOnWriteArrayList<>();
+    private TransactionWriter writer;
+
+    /** A writer that goes straight to the repository, as with coalescing off and no write concerns set. */
+    static TransactionWriter direct(TransactionRepository repository) {
+        return new TransactionWriter(repository, null, new SimpleMeterRegistry(), false, 64, Duration.ofMillis(2), 4, "", "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    private TransactionWriter writer(boolean coalescing, int maxBatchSize, Duration maxWait, String single, String batch,
+                                     Function<List<Document>, Mono<InsertManyResult>> insertMany) {
+        when(mongoTemplate.getConverter()).thenReturn(MongoConfigTest.converter());
+        when(mongoTemplate.getCollection("transactions")).thenReturn(Mono.just(collection));
+        when(collection.withWriteConcern(any())).thenReturn(collection);
+        when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            batches.add(documents);
+            options.add(invocation.getArgument(1));
+            return insertMany.apply(documents);
+        });
+        writer = new TransactionWriter(mock(TransactionRepository.class), mongoTemplate, new SimpleMeterRegistry(),
+                coalescing, maxBatchSize, maxWait, 4, single, batch);
+        writer.start();
+        return writer;
+    }
+
+    private static Transaction transaction(int i) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId("account" + i);
+        transaction.setTransactionType("DEPOSIT");
+        transaction.setAmount(Money.of("10.00"));
+        return transaction;
+    }
+
+    @Test
+    void testConcurrentInsertsShareOneUnorderedInsertMany() {
+        TransactionWriter writer = writer(true, 10, Duration.ofMillis(50), "", "",
+                documents -> Mono.just(InsertManyResult.acknowledged(Map.of())));
+
+        List<Transaction> saved = Flux.range(0, 25)
+                .flatMap(i -> writer.insert(transaction(i)))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(25, saved.size());
+        assertEquals(25, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.size() <= 5, "batches=" + batches.size());
+        assertTrue(batches.stream().allMatch(documents -> documents.size() <= 10));
+        assertTrue(options.stream().noneMatch(InsertManyOptions::isOrdered));
+        Document document = batches.get(0).get(0);
+        assertInstanceOf(ObjectId.class, document.get("_id"));
+        assertEquals(0L, document.get("version"));
+        assertEquals(new Decimal128(Money.of("10.00").toBigDecimal()), document.get("amount"));
+        assertTrue(saved.stream().allMatch(transaction -> transaction.getId() != null));
+    }
+
+    @Test
+    void testOnlyTheRejectedDocumentFails() {
+        TransactionWriter writer = writer(true, 3, Duration.ofSeconds(1), "", "",
+                documents -> Mono.error(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                        List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+                        null, new ServerAddress(), Set.of())));
+
+        List<Object> outcomes = Flux.range(0, 3)
+                .flatMapSequential(i -> writer.insert(transaction(i))
+                        .<Object>map(Transaction::getId)
+                        .onErrorResume(Mono::just))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(1, batches.size());
+        String rejectedId = batches.get(0).get(1).get("_id").toString();
+        for (int i = 0; i < 3; i++) {
+            Object outcome = outcomes.get(i);
+            if (outcome instanceof DuplicateKeyException) {
+                assertEquals(rejectedId, batches.get(0).get(i).get("_id").toString());
+            } else {
+                assertNotEquals(rejectedId, outcome);
+            }
+        }
+        assertEquals(1, outcomes.stream().filter(DuplicateKeyException.class::isInstance).count());
+    }
+
+    @Test
+    void testUnconfirmedDocumentsFailWithTheWriteConcernError() {
+        TransactionWriter writer = writer(true, 3, Duration.ofSeconds(1), "", "",
+                documents -> Mono.error(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                        List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+                        new WriteConcernError(64, "WriteConcernFailed", "waiting for replication timed out", new BsonDocument()),
+                        new ServerAddress(), Set.of())));
+
+        List<Object> outcomes = Flux.range(0, 3)
+                .flatMapSequential(i -> writer.insert(transaction(i))
+                        .<Object>map(Transaction::getId)
+                        .onErrorResume(Mono::just))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertInstanceOf(DuplicateKeyException.class, outcomes.get(1));
+        assertInstanceOf(Exception.class, outcomes.get(0));
+        assertFalse(outcomes.get(0) instanceof DuplicateKeyException);
+        assertSame(outcomes.get(0), outcomes.get(2));
+    }
+
+    @Test
+    void testEachEndpointUsesItsOwnWriteConcern() {
+        TransactionWriter writer = writer(false, 64, Duration.ofMillis(2), "majority", "W2",
+                documents -> Mono.just(InsertManyResult.acknowledged(Map.of())));
+
+        writer.insert(transaction(1)).block(Duration.ofSeconds(5));
+        verify(collection).withWriteConcern(WriteConcern.MAJORITY);
+        assertEquals(2, writer.insertAll(List.of(transaction(2), transaction(3))).count().block(Duration.ofSeconds(5)));
+        verify(collection).withWriteConcern(WriteConcern.W2);
+        assertTrue(options.get(1).isOrdered());
+
+        assertNull(TransactionWriter.writeConcern(" "));
+        assertThrows(IllegalArgumentException.class, () -> TransactionWriter.writeConcern("sometimes"));
+    }
+}